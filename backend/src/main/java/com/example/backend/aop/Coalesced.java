@@ -0,0 +1,15 @@
+package com.example.backend.aop;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Đánh dấu phương thức đọc được gộp bởi RequestCoalescingAspect: các lời gọi đồng thời với cùng tham số
+ * (sau khi chuẩn hóa) dùng chung một lần thực thi. Kết quả trả về phải được người gọi coi là chỉ đọc
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Coalesced {
+}
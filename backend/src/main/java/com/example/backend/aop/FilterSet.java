@@ -0,0 +1,16 @@
+package com.example.backend.aop;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Đánh dấu tham số của phương thức @Coalesced là tập bộ lọc (thứ tự phần tử không đổi kết quả), ví dụ danh sách
+ * thương hiệu hay các giá trị của bộ lọc thông số. RequestCoalescingAspect chỉ sắp xếp lại các tham số này khi tạo khóa;
+ * danh sách không đánh dấu được giữ nguyên thứ tự
+ */
+@Target(ElementType.PARAMETER)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface FilterSet {
+}
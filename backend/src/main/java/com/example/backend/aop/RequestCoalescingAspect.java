@@ -0,0 +1,128 @@
+package com.example.backend.aop;
+
+import com.example.backend.event.CategoryChangedEvent;
+import com.example.backend.event.ProductChangedEvent;
+import com.example.backend.util.SingleFlight;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Lớp single-flight phía trước các phương thức đọc catalog của ProductService (@Coalesced).
+ * Khi hàng trăm người dùng mở cùng một trang danh mục với cùng bộ lọc trong cùng một giây, chỉ một lần
+ * truy vấn thực sự chạy, các yêu cầu còn lại chờ và nhận chung kết quả; kết quả được giữ thêm một khoảng rất ngắn.
+ * Aspect chạy ngoài transaction (thứ tự cao nhất) để các yêu cầu đang chờ không giữ kết nối database.
+ * Kết quả giữ lại bị bỏ ngay khi sản phẩm/danh mục thay đổi; tồn kho chỉ trễ tối đa một TTL
+ */
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class RequestCoalescingAspect {
+
+    private final boolean enabled;
+    private final SingleFlight<List<Object>, Object> singleFlight;
+    // Với mỗi phương thức: tham số nào được đánh dấu @FilterSet
+    private final Map<Method, boolean[]> filterSetParams = new ConcurrentHashMap<>();
+
+    public RequestCoalescingAspect(@Value("${app.catalog.coalescing.enabled:true}") boolean enabled,
+                                   @Value("${app.catalog.coalescing.ttl-ms:500}") long ttlMillis) {
+        this.enabled = enabled;
+        this.singleFlight = new SingleFlight<>(ttlMillis);
+    }
+
+    @Around("@annotation(com.example.backend.aop.Coalesced)")
+    public Object coalesce(ProceedingJoinPoint joinPoint) throws Throwable {
+        if (!enabled) {
+            return joinPoint.proceed();
+        }
+        Method method = AopUtils.getMostSpecificMethod(((MethodSignature) joinPoint.getSignature()).getMethod(),
+                joinPoint.getTarget().getClass());
+        boolean[] filterSets = filterSetParams.computeIfAbsent(method, RequestCoalescingAspect::findFilterSets);
+        Object[] args = joinPoint.getArgs();
+        List<Object> key = new ArrayList<>();
+        key.add(joinPoint.getSignature().toLongString());
+        for (int i = 0; i < args.length; i++) {
+            key.add(normalize(args[i], i < filterSets.length && filterSets[i]));
+        }
+        return singleFlight.execute(key, joinPoint::proceed);
+    }
+
+    /**
+     * Thay đổi tồn kho (đặt hàng, flash sale) xảy ra liên tục nên không xóa kết quả đang giữ: số lượng tồn và thứ tự
+     * "bán chạy" có thể trễ tối đa ttl-ms (mặc định 500ms) so với database. Chấp nhận được vì đặt hàng luôn kiểm tra
+     * tồn kho thật; đặt app.catalog.coalescing.ttl-ms=0 nếu cần chỉ gộp các lời gọi đang chạy
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        if (event.getType() != ProductChangedEvent.Type.STOCK_CHANGED) {
+            singleFlight.invalidate();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCategoryChanged(CategoryChangedEvent event) {
+        singleFlight.invalidate();
+    }
+
+    /**
+     * Chuẩn hóa tham số để các yêu cầu tương đương có cùng khóa: chuỗi được bỏ khoảng trắng đầu/cuối, thứ tự key
+     * trong map không quan trọng. Chỉ tham số @FilterSet (và các giá trị bên trong nó) được sắp xếp lại; danh sách khác
+     * giữ nguyên thứ tự vì thứ tự có thể đổi kết quả
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Object normalize(Object arg, boolean filterSet) {
+        if (arg instanceof String text) {
+            return text.trim();
+        }
+        if (arg instanceof Collection<?> values) {
+            List<Object> normalized = new ArrayList<>();
+            for (Object value : values) {
+                normalized.add(normalize(value, filterSet));
+            }
+            if (filterSet && !normalized.isEmpty() && normalized.get(0) instanceof Comparable
+                    && normalized.stream().allMatch(value -> value != null && value.getClass() == normalized.get(0).getClass())) {
+                normalized.sort((a, b) -> ((Comparable) a).compareTo(b));
+            }
+            return normalized;
+        }
+        if (arg instanceof Map<?, ?> map) {
+            Map<String, Object> normalized = new TreeMap<>();
+            map.forEach((k, v) -> normalized.put(String.valueOf(k), normalize(v, filterSet)));
+            return normalized;
+        }
+        if (arg instanceof Object[] array) {
+            return normalize(Arrays.asList(array), filterSet);
+        }
+        return arg;
+    }
+
+    private static boolean[] findFilterSets(Method method) {
+        Annotation[][] annotations = method.getParameterAnnotations();
+        boolean[] filterSets = new boolean[annotations.length];
+        for (int i = 0; i < annotations.length; i++) {
+            for (Annotation annotation : annotations[i]) {
+                if (annotation instanceof FilterSet) {
+                    filterSets[i] = true;
+                }
+            }
+        }
+        return filterSets;
+    }
+}
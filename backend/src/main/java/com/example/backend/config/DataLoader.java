@@ -2,6 +2,7 @@ package com.example.backend.config;
 
 import com.example.backend.model.*;
 import com.example.backend.repository.*;
+import com.example.backend.util.OrderNumberGenerator;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -11,7 +12,6 @@ import org.springframework.stereotype.Component;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.*;
 import java.util.function.Function;
 import java.util.stream.Collectors;
@@ -39,6 +39,7 @@ public class DataLoader implements CommandLineRunner {
     
     // Base URL for static images
     private final PasswordEncoder passwordEncoder;
+    private final OrderNumberGenerator orderNumberGenerator;
 
 
     // Random generator
@@ -47,6 +48,15 @@ public class DataLoader implements CommandLineRunner {
     @Override
     @Transactional
     public void run(String... args) {
+        // Tính giá sau giảm giá cho dữ liệu cũ chưa có cột effective_price
+        int backfilled = productRepository.backfillEffectivePrices();
+        if (backfilled > 0) {
+            log.info("Backfilled effective price for {} products", backfilled);
+        }
+        
+        // Id đơn hàng chuyển từ IDENTITY sang sequence: đưa sequence vượt qua id của các dòng cũ (chỉ chạy một lần)
+        alignOrderSequences();
+        
         // Create user
         log.info("Creating user...");
         createUser();
@@ -977,6 +987,16 @@ public class DataLoader implements CommandLineRunner {
         return products;
     }
     
+    private void alignOrderSequences() {
+        List<Long> aligned = new ArrayList<>();
+        aligned.addAll(orderRepository.alignIdSequence());
+        aligned.addAll(orderItemRepository.alignIdSequence());
+        aligned.addAll(orderStatusHistoryRepository.alignIdSequence());
+        if (!aligned.isEmpty()) {
+            log.info("Aligned order id sequences past existing rows: {}", aligned);
+        }
+    }
+    
     /**
      * Create product images for all products
      */
@@ -1406,11 +1426,7 @@ public class DataLoader implements CommandLineRunner {
             order.setCreatedAt(orderDate);
             order.setUpdatedAt(orderDate);
             
-            // Tạo order number độc nhất dựa trên thời gian và một số ngẫu nhiên để đảm bảo không trùng lặp
-            String timestamp = orderDate.format(DateTimeFormatter.ofPattern("yyMMddHHmmss"));
-            String randomCode = String.format("%04d", random.nextInt(10000));
-            String customOrderNumber = "OD" + timestamp + randomCode;
-            order.setOrderNumber(customOrderNumber);
+            order.setOrderNumber(orderNumberGenerator.next());
             
             // Thêm sản phẩm vào đơn hàng (2-4 sản phẩm)
             int numItems = 2 + random.nextInt(3);
@@ -0,0 +1,28 @@
+package com.example.backend.config;
+
+import org.hibernate.boot.model.FunctionContributions;
+import org.hibernate.boot.model.FunctionContributor;
+import org.hibernate.type.StandardBasicTypes;
+
+/**
+ * Đăng ký các hàm JSON của PostgreSQL để dùng được trong Criteria/JPQL.
+ * Được Hibernate nạp qua META-INF/services/org.hibernate.boot.model.FunctionContributor
+ */
+public class JsonFunctionContributor implements FunctionContributor {
+
+    /**
+     * json_path_exists(cột_json, 'jsonpath') - cột specifications có kiểu json nên cần ép sang jsonb,
+     * còn tham số đường dẫn được bind dưới dạng chuỗi nên cần ép sang jsonpath
+     */
+    public static final String JSON_PATH_EXISTS = "json_path_exists";
+
+    @Override
+    public void contributeFunctions(FunctionContributions functionContributions) {
+        functionContributions.getFunctionRegistry().registerPattern(
+                JSON_PATH_EXISTS,
+                "jsonb_path_exists(cast(?1 as jsonb), cast(?2 as jsonpath))",
+                functionContributions.getTypeConfiguration()
+                        .getBasicTypeRegistry()
+                        .resolve(StandardBasicTypes.BOOLEAN));
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.backend.config;
+
+import com.example.backend.util.OrderNumberGenerator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class OrderNumberConfig {
+
+    @Bean
+    public OrderNumberGenerator orderNumberGenerator(@Value("${app.order-number.node-id:0}") int nodeId) {
+        // Mỗi instance backend phải có node-id riêng để mã đơn hàng không trùng giữa các instance
+        return new OrderNumberGenerator(nodeId);
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.backend.controller;
+
+import com.example.backend.dto.ApiResponse;
+import com.example.backend.dto.FlashSaleStatusDTO;
+import com.example.backend.service.impl.FlashSaleInventory;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/admin/flash-sales")
+@RequiredArgsConstructor
+@PreAuthorize("hasAnyAuthority('MANAGER', 'STAFF')")
+public class AdminFlashSaleController {
+
+    private final FlashSaleInventory flashSaleInventory;
+
+    /**
+     * Danh sách sản phẩm đang flash sale kèm số suất còn lại
+     */
+    @GetMapping
+    public ResponseEntity<ApiResponse<List<FlashSaleStatusDTO>>> getActiveSales() {
+        return ResponseEntity.ok(new ApiResponse<>(true, "Danh sách flash sale", flashSaleInventory.getActiveSales()));
+    }
+
+    /**
+     * Bắt đầu flash sale: nạp tồn kho hiện tại của sản phẩm vào bộ đếm trong bộ nhớ
+     */
+    @PostMapping("/{productId}")
+    public ResponseEntity<ApiResponse<FlashSaleStatusDTO>> startSale(@PathVariable Long productId) {
+        FlashSaleStatusDTO status = flashSaleInventory.start(productId);
+        return ResponseEntity.ok(new ApiResponse<>(true, "Đã bắt đầu flash sale", status));
+    }
+
+    /**
+     * Dừng flash sale và ghi số lượng đã bán xuống database
+     */
+    @DeleteMapping("/{productId}")
+    public ResponseEntity<ApiResponse<FlashSaleStatusDTO>> stopSale(@PathVariable Long productId) {
+        FlashSaleStatusDTO status = flashSaleInventory.stop(productId);
+        return ResponseEntity.ok(new ApiResponse<>(true, "Đã dừng flash sale", status));
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.backend.controller;
 
+import com.example.backend.dto.BrandCountDTO;
 import com.example.backend.model.Brand;
 import com.example.backend.service.BrandService;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -42,8 +43,8 @@ public class BrandController {
     }
     
     @GetMapping("/category/{categoryId}")
-    public ResponseEntity<List<Brand>> getBrandsByCategoryId(@PathVariable Long categoryId) {
-        List<Brand> brands = brandService.getBrandsByCategoryId(categoryId);
+    public ResponseEntity<List<BrandCountDTO>> getBrandsByCategoryId(@PathVariable Long categoryId) {
+        List<BrandCountDTO> brands = brandService.getBrandsByCategoryId(categoryId);
         return ResponseEntity.ok(brands);
     }
 }
\ No newline at end of file
@@ -4,6 +4,7 @@ import com.example.backend.dto.CreateOrderDTO;
 import com.example.backend.dto.OrderResponseDTO;
 import com.example.backend.exception.ResourceNotFoundException;
 import com.example.backend.service.OrderService;
+import com.example.backend.service.impl.OrderIdempotencyService;
 import com.example.backend.util.SecurityUtils;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
@@ -20,21 +21,35 @@ import java.util.Map;
 public class OrderController {
 
     private final OrderService orderService;
+    private final OrderIdempotencyService orderIdempotencyService;
     
     /**
-     * Tạo đơn hàng mới
+     * Tạo đơn hàng mới. Client có thể gửi header Idempotency-Key (mỗi lần đặt hàng một khóa mới, giữ nguyên khi gửi lại):
+     * request gửi lại với cùng khóa nhận lại đúng response của lần đầu, kèm header Idempotent-Replayed: true
      */
     @PostMapping
-    public ResponseEntity<?> createOrder(@RequestBody CreateOrderDTO createOrderDTO) {
+    public ResponseEntity<?> createOrder(
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+            @RequestBody CreateOrderDTO createOrderDTO) {
         Long userId = SecurityUtils.getCurrentUserId();
-        OrderResponseDTO order = orderService.createOrder(userId, createOrderDTO);
+        String orderNumber;
+        boolean replayed = false;
+        if (idempotencyKey != null) {
+            OrderIdempotencyService.Outcome outcome = orderIdempotencyService.createOrder(userId, idempotencyKey, createOrderDTO);
+            orderNumber = outcome.orderNumber();
+            replayed = outcome.replayed();
+        } else {
+            orderNumber = orderService.createOrder(userId, createOrderDTO).getOrderNumber();
+        }
         
         // Trả về response đơn giản hơn
         Map<String, Object> response = new HashMap<>();
-        response.put("orderNumber", order.getOrderNumber());
+        response.put("orderNumber", orderNumber);
         response.put("success", true);
         
-        return ResponseEntity.status(HttpStatus.CREATED).body(response);
+        return ResponseEntity.status(HttpStatus.CREATED)
+                .header("Idempotent-Replayed", String.valueOf(replayed))
+                .body(response);
     }
     
     /**
@@ -3,31 +3,52 @@ package com.example.backend.controller;
 import com.example.backend.model.Product;
 import com.example.backend.service.ProductService;
 import com.example.backend.dto.ProductCreateDTO;
+import com.example.backend.exception.BadRequestException;
 import com.example.backend.exception.ResourceNotFoundException;
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.WebAsyncUtils;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.*;
 import java.util.ArrayList;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
 @RequestMapping("/api/products")
 @CrossOrigin(origins = "*")
 public class ProductController {
 
+    private static final Logger log = LoggerFactory.getLogger(ProductController.class);
+    private static final int GZIP_BUFFER_SIZE = 64 * 1024;
+    // Thời gian tối đa cho một lần xuất catalog dạng luồng (chỉ áp dụng cho request xuất, không đổi mặc định chung)
+    private static final long EXPORT_TIMEOUT_MS = 30 * 60 * 1000L;
+
     private final ProductService productService;
     private final ObjectMapper objectMapper;
+    private final int maxSkip;
+    private final int maxLimit;
 
     @Autowired
-    public ProductController(ProductService productService, ObjectMapper objectMapper) {
+    public ProductController(ProductService productService, ObjectMapper objectMapper,
+                             @Value("${app.product.page.max-skip:10000}") int maxSkip,
+                             @Value("${app.product.page.max-limit:500}") int maxLimit) {
         this.productService = productService;
         this.objectMapper = objectMapper;
+        this.maxSkip = maxSkip;
+        this.maxLimit = maxLimit;
     }
 
     @GetMapping
@@ -40,36 +61,43 @@ public class ProductController {
             @RequestParam(required = false, defaultValue = "newest") String sort,
             @RequestParam(required = false, defaultValue = "0") Integer skip,
             @RequestParam(required = false, defaultValue = "12") Integer limit,
+            @RequestParam(required = false) String cursor,
             @RequestParam(required = false) Boolean is_featured,
-            @RequestParam(required = false, defaultValue = "true") Boolean is_active
+            @RequestParam(required = false, defaultValue = "true") Boolean is_active,
+            @RequestParam(required = false, defaultValue = "false") boolean include_facets,
+            @RequestParam(required = false, defaultValue = "full") String view
     ) {
-        try {
-            // Parse specifications JSON if provided
-            Map<String, List<String>> specifications = new HashMap<>();
-            if (specifications_json != null && !specifications_json.isEmpty()) {
-                specifications = objectMapper.readValue(specifications_json, 
-                    new TypeReference<Map<String, List<String>>>() {});
-            }
+        checkPage(skip, limit);
+        // Parse specifications JSON if provided
+        Map<String, List<String>> specifications = parseSpecifications(specifications_json);
 
-            // Get filtered products
-            Map<String, Object> result = productService.getFilteredProducts(
-                category_id, brand_id, min_price, max_price, specifications, 
-                sort, skip, limit, is_featured, is_active
-            );
+        // Get filtered products
+        Map<String, Object> result = productService.getFilteredProducts(
+            category_id, brand_id, min_price, max_price, specifications, 
+            sort, skip, limit, cursor, is_featured, is_active, include_facets, "summary".equals(view)
+        );
 
-            return ResponseEntity.ok(result);
-        } catch (Exception e) {
-            Map<String, Object> error = new HashMap<>();
-            error.put("error", e.getMessage());
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(error);
-        }
+        return ResponseEntity.ok(result);
     }
 
+    /**
+     * Toàn bộ sản phẩm. Với tham số stream (ndjson hoặc json), catalog được xuất dạng luồng cho các feed
+     * (bộ nhớ không đổi theo số sản phẩm, có thể nén gzip); không có stream thì trả về {items, total} như trước
+     */
     @GetMapping("/all")
-    public ResponseEntity<Map<String, Object>> getAllProducts(
+    public ResponseEntity<?> getAllProducts(
             @RequestParam(required = false, defaultValue = "0") Integer skip,
-            @RequestParam(required = false, defaultValue = "0") Integer limit
+            @RequestParam(required = false, defaultValue = "0") Integer limit,
+            @RequestParam(required = false) String stream,
+            @RequestParam(required = false, defaultValue = "false") boolean gzip,
+            HttpServletRequest request
     ) {
+        if (stream != null) {
+            return exportProducts(stream, gzip, request);
+        }
+        if (skip < 0 || limit < 0) {
+            throw new BadRequestException("skip và limit không được âm");
+        }
         try {
             // Lấy tất cả sản phẩm không có lọc
             List<Product> allProducts = productService.getAllProducts();
@@ -98,6 +126,32 @@ public class ProductController {
         }
     }
 
+    private ResponseEntity<StreamingResponseBody> exportProducts(String stream, boolean gzip, HttpServletRequest request) {
+        boolean ndjson = "ndjson".equalsIgnoreCase(stream);
+        if (!ndjson && !"json".equalsIgnoreCase(stream)) {
+            throw new BadRequestException("Tham số stream chỉ nhận ndjson hoặc json");
+        }
+        // Timeout bất đồng bộ được đặt trước khi handler chạy; nới riêng cho request này trước khi bắt đầu ghi luồng
+        WebAsyncUtils.getAsyncManager(request).getAsyncWebRequest().setTimeout(EXPORT_TIMEOUT_MS);
+        
+        StreamingResponseBody body = output -> {
+            if (gzip) {
+                GZIPOutputStream compressed = new GZIPOutputStream(output, GZIP_BUFFER_SIZE);
+                productService.exportProducts(compressed, ndjson);
+                compressed.finish();
+            } else {
+                productService.exportProducts(output, ndjson);
+            }
+        };
+        
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(ndjson ? MediaType.APPLICATION_NDJSON : MediaType.APPLICATION_JSON);
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(body);
+    }
+
     @GetMapping("/category/slug/{categorySlug}")
     public ResponseEntity<Map<String, Object>> getProductsByCategorySlug(
             @PathVariable String categorySlug,
@@ -108,40 +162,76 @@ public class ProductController {
             @RequestParam(required = false, defaultValue = "newest") String sort,
             @RequestParam(required = false, defaultValue = "0") Integer skip,
             @RequestParam(required = false, defaultValue = "12") Integer limit,
+            @RequestParam(required = false) String cursor,
             @RequestParam(required = false) Boolean is_featured,
-            @RequestParam(required = false, defaultValue = "true") Boolean is_active
+            @RequestParam(required = false, defaultValue = "true") Boolean is_active,
+            @RequestParam(required = false, defaultValue = "false") boolean include_facets,
+            @RequestParam(required = false, defaultValue = "full") String view
     ) {
-        try {
-            // Parse specifications JSON if provided
-            Map<String, List<String>> specifications = new HashMap<>();
-            if (specifications_json != null && !specifications_json.isEmpty()) {
-                System.out.println("Received specifications_json: " + specifications_json);
-                try {
-                    specifications = objectMapper.readValue(specifications_json, 
-                        new TypeReference<Map<String, List<String>>>() {});
-                    System.out.println("Parsed specifications: " + specifications);
-                } catch (Exception jsonEx) {
-                    System.err.println("Error parsing specifications_json: " + jsonEx.getMessage());
-                    jsonEx.printStackTrace();
-                    // Tiếp tục với specifications rỗng thay vì dừng hoàn toàn
-                }
-            }
+        checkPage(skip, limit);
+        // Parse specifications JSON if provided
+        Map<String, List<String>> specifications = parseSpecifications(specifications_json);
+        log.debug("Category {} specifications filter: {}", categorySlug, specifications);
 
-            // Get products by category slug
-            Map<String, Object> result = productService.getProductsByCategorySlug(
-                categorySlug, brand_id, min_price, max_price, specifications, 
-                sort, skip, limit, is_featured, is_active
-            );
+        // Get products by category slug
+        Map<String, Object> result = productService.getProductsByCategorySlug(
+            categorySlug, brand_id, min_price, max_price, specifications, 
+            sort, skip, limit, cursor, is_featured, is_active, include_facets, "summary".equals(view)
+        );
 
-            return ResponseEntity.ok(result);
-        } catch (Exception e) {
-            System.err.println("Error in getProductsByCategorySlug: " + e.getMessage());
-            e.printStackTrace();
-            Map<String, Object> error = new HashMap<>();
-            error.put("error", e.getMessage());
-            error.put("error_type", e.getClass().getSimpleName());
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(error);
+        return ResponseEntity.ok(result);
+    }
+
+    /**
+     * Kiểm tra skip/limit của các danh sách có phân trang. OFFSET lớn buộc database đọc rồi bỏ qua toàn bộ các dòng
+     * phía trước, nên trang sâu hơn max-skip phải đi tiếp bằng cursor (nextCursor của trang trước)
+     * @throws BadRequestException nếu skip/limit âm hoặc vượt giới hạn cấu hình
+     */
+    private void checkPage(Integer skip, Integer limit) {
+        if (skip < 0 || limit < 0) {
+            throw new BadRequestException("skip và limit không được âm");
+        }
+        if (limit > maxLimit) {
+            throw new BadRequestException("limit tối đa là " + maxLimit);
+        }
+        if (skip > maxSkip) {
+            throw new BadRequestException("skip tối đa là " + maxSkip + ", hãy dùng cursor (nextCursor) để xem các trang sau");
+        }
+    }
+
+    /**
+     * Đọc bộ lọc thông số từ tham số specifications_json
+     * @throws BadRequestException nếu JSON không đúng dạng {"key": ["giá trị", ...]}
+     */
+    private Map<String, List<String>> parseSpecifications(String specificationsJson) {
+        if (specificationsJson == null || specificationsJson.isEmpty()) {
+            return new HashMap<>();
         }
+        try {
+            return objectMapper.readValue(specificationsJson, new TypeReference<Map<String, List<String>>>() {});
+        } catch (JsonProcessingException e) {
+            throw new BadRequestException("specifications_json không hợp lệ: " + e.getOriginalMessage());
+        }
+    }
+
+    /**
+     * Lấy nhiều sản phẩm trong một yêu cầu theo ids hoặc slugs (giỏ hàng, yêu thích, so sánh, sản phẩm đã xem),
+     * kết quả theo đúng thứ tự yêu cầu
+     */
+    @GetMapping("/batch")
+    public ResponseEntity<Map<String, Object>> getProductsBatch(
+            @RequestParam(required = false) List<Long> ids,
+            @RequestParam(required = false) List<String> slugs
+    ) {
+        return ResponseEntity.ok(productService.getProductsByIdsOrSlugs(ids, slugs));
+    }
+
+    /**
+     * Bảng so sánh thông số của 2-6 sản phẩm, đã căn theo khung thông số của danh mục gốc
+     */
+    @GetMapping("/compare")
+    public ResponseEntity<Map<String, Object>> compareProducts(@RequestParam List<Long> ids) {
+        return ResponseEntity.ok(productService.compareProducts(ids));
     }
 
     @GetMapping("/{id}")
@@ -165,6 +255,21 @@ public class ProductController {
         return ResponseEntity.ok(specifications);
     }
 
+    /**
+     * Gợi ý tự động hoàn thành cho ô tìm kiếm, gọi trên mỗi lần gõ phím thay cho /search
+     */
+    @GetMapping("/suggest")
+    public ResponseEntity<Map<String, Object>> suggestProducts(
+            @RequestParam(required = false, defaultValue = "") String q,
+            @RequestParam(required = false, defaultValue = "5") Integer limit
+    ) {
+        return ResponseEntity.ok(productService.suggestProducts(q, limit));
+    }
+
+    /**
+     * Tìm kiếm theo từ khóa. Mặc định vẫn sắp xếp newest như trước; client muốn xếp theo độ liên quan (BM25)
+     * phải truyền sort=relevance
+     */
     @GetMapping("/search")
     public ResponseEntity<Map<String, Object>> searchProducts(
             @RequestParam String keyword,
@@ -176,28 +281,22 @@ public class ProductController {
             @RequestParam(required = false, defaultValue = "newest") String sort,
             @RequestParam(required = false, defaultValue = "0") Integer skip,
             @RequestParam(required = false, defaultValue = "12") Integer limit,
-            @RequestParam(required = false, defaultValue = "true") Boolean is_active
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false, defaultValue = "true") Boolean is_active,
+            @RequestParam(required = false, defaultValue = "false") boolean include_facets,
+            @RequestParam(required = false, defaultValue = "full") String view
     ) {
-        try {
-            // Parse specifications JSON if provided
-            Map<String, List<String>> specifications = new HashMap<>();
-            if (specifications_json != null && !specifications_json.isEmpty()) {
-                specifications = objectMapper.readValue(specifications_json, 
-                    new TypeReference<Map<String, List<String>>>() {});
-            }
+        checkPage(skip, limit);
+        // Parse specifications JSON if provided
+        Map<String, List<String>> specifications = parseSpecifications(specifications_json);
 
-            // Gọi service để tìm kiếm sản phẩm
-            Map<String, Object> result = productService.searchProducts(
-                keyword, category_id, brand_id, min_price, max_price, specifications, 
-                sort, skip, limit, is_active
-            );
+        // Gọi service để tìm kiếm sản phẩm
+        Map<String, Object> result = productService.searchProducts(
+            keyword, category_id, brand_id, min_price, max_price, specifications, 
+            sort, skip, limit, cursor, is_active, include_facets, "summary".equals(view)
+        );
 
-            return ResponseEntity.ok(result);
-        } catch (Exception e) {
-            Map<String, Object> error = new HashMap<>();
-            error.put("error", e.getMessage());
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(error);
-        }
+        return ResponseEntity.ok(result);
     }
 
     @PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
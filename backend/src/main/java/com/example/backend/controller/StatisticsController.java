@@ -48,6 +48,15 @@ public class StatisticsController {
         return ResponseEntity.ok(new ApiResponse<>(true, "Dữ liệu thống kê sản phẩm", statistics));
     }
 
+    /**
+     * Endpoint để lấy số liệu cache chi tiết sản phẩm (hit/miss, kích thước)
+     */
+    @GetMapping("/product-cache")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> getProductCacheStatistics() {
+        Map<String, Object> statistics = statisticsService.getProductCacheStatistics();
+        return ResponseEntity.ok(new ApiResponse<>(true, "Số liệu cache chi tiết sản phẩm", statistics));
+    }
+
     /**
      * Endpoint để lấy thống kê người dùng (người dùng mới, hoạt động, v.v)
      */
@@ -0,0 +1,21 @@
+package com.example.backend.dto;
+
+import com.fasterxml.jackson.annotation.JsonUnwrapped;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.experimental.Accessors;
+
+/**
+ * Thương hiệu trong một danh mục kèm số sản phẩm. Các trường của thương hiệu nằm cùng cấp với productCount trong JSON
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Accessors(chain = true)
+public class BrandCountDTO {
+
+    @JsonUnwrapped
+    private BrandDTO brand;
+    private Long productCount;
+}
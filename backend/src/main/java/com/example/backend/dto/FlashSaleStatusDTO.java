@@ -0,0 +1,26 @@
+package com.example.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Trạng thái một sản phẩm đang flash sale: số suất ban đầu, số suất còn lại trong bộ nhớ
+ * và số lượng đã bán chưa ghi xuống database
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class FlashSaleStatusDTO {
+    private Long productId;
+    private String sku;
+    private String name;
+    private Long initialStock;
+    private Long remaining;
+    private Long pendingWriteBack;
+    private LocalDateTime startedAt;
+}
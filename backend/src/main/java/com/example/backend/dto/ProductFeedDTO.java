@@ -0,0 +1,55 @@
+package com.example.backend.dto;
+
+import com.example.backend.util.PriceCalculator;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.experimental.Accessors;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Một dòng của bản xuất catalog (feed so sánh giá), lấy bằng biểu thức "SELECT new" nên không tạo entity
+ * trong persistence context: bộ nhớ không tăng theo số sản phẩm khi đọc dạng luồng
+ */
+@Data
+@NoArgsConstructor
+@Accessors(chain = true)
+public class ProductFeedDTO {
+
+    private Long id;
+    private String sku;
+    private String name;
+    private String slug;
+    private BigDecimal price;
+    private BigDecimal effectivePrice;
+    private Float discount;
+    private Integer quantityInStock;
+    private Boolean isActive;
+    private String mainImageUrl;
+    private String brandName;
+    private String categoryName;
+    private LocalDateTime updatedAt;
+
+    /**
+     * Constructor cho biểu thức "SELECT new" trong ProductRepository.streamFeedRows
+     */
+    public ProductFeedDTO(Long id, String sku, String name, String slug, BigDecimal price, Long effectivePrice,
+                          Float discount, Integer quantityInStock, Boolean isActive, String mainImageUrl,
+                          String brandName, String categoryName, LocalDateTime updatedAt) {
+        this.id = id;
+        this.sku = sku;
+        this.name = name;
+        this.slug = slug;
+        this.price = price;
+        this.effectivePrice = PriceCalculator.toAmount(effectivePrice != null
+                ? effectivePrice : PriceCalculator.effectivePrice(price, discount));
+        this.discount = discount;
+        this.quantityInStock = quantityInStock;
+        this.isActive = isActive;
+        this.mainImageUrl = mainImageUrl;
+        this.brandName = brandName;
+        this.categoryName = categoryName;
+        this.updatedAt = updatedAt;
+    }
+}
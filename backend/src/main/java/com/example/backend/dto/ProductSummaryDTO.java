@@ -0,0 +1,84 @@
+package com.example.backend.dto;
+
+import com.example.backend.model.Product;
+import com.example.backend.model.ProductImage;
+import com.example.backend.util.PriceCalculator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.experimental.Accessors;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.Objects;
+
+/**
+ * Dữ liệu rút gọn của sản phẩm cho trang danh sách/tìm kiếm, lấy bằng một truy vấn (không chạm tới
+ * các quan hệ lazy hay JSON thông số kỹ thuật). Chi tiết đầy đủ vẫn lấy qua /api/products/{id} hoặc /slug/{slug}
+ */
+@Data
+@NoArgsConstructor
+@Accessors(chain = true)
+public class ProductSummaryDTO {
+
+    private Long id;
+    private String name;
+    private String slug;
+    private BigDecimal price;
+    private BigDecimal effectivePrice;
+    private Float discount;
+    private String mainImageUrl;
+    private String brandName;
+    private Boolean inStock;
+
+    // Chỉ dùng để tạo nextCursor, không trả về client
+    @JsonIgnore
+    private long effectivePriceMinorUnits;
+    @JsonIgnore
+    private Integer quantitySold;
+    @JsonIgnore
+    private LocalDateTime createdAt;
+
+    /**
+     * Constructor cho biểu thức "SELECT new" trong ProductRepository.findSummariesByIdIn
+     */
+    public ProductSummaryDTO(Long id, String name, String slug, BigDecimal price, Long effectivePrice, Float discount,
+                             String mainImageUrl, String brandName, Integer quantityInStock, Integer quantitySold,
+                             LocalDateTime createdAt) {
+        this.id = id;
+        this.name = name;
+        this.slug = slug;
+        this.price = price;
+        this.effectivePriceMinorUnits = effectivePrice != null ? effectivePrice : PriceCalculator.effectivePrice(price, discount);
+        this.effectivePrice = PriceCalculator.toAmount(this.effectivePriceMinorUnits);
+        this.discount = discount;
+        this.mainImageUrl = mainImageUrl;
+        this.brandName = brandName;
+        this.inStock = quantityInStock != null && quantityInStock > 0;
+        this.quantitySold = quantitySold;
+        this.createdAt = createdAt;
+    }
+
+    /**
+     * Tạo từ entity đã nạp sẵn brand và images (ví dụ lấy từ cache chi tiết), cùng quy tắc chọn ảnh chính
+     * với ProductRepository.findSummariesByIdIn
+     */
+    public static ProductSummaryDTO from(Product product) {
+        Comparator<String> byUrl = Comparator.naturalOrder();
+        String mainImageUrl = product.getImages().stream()
+                .filter(image -> Boolean.TRUE.equals(image.getIsMain()))
+                .map(ProductImage::getImageUrl)
+                .filter(Objects::nonNull)
+                .min(byUrl)
+                .orElseGet(() -> product.getImages().stream()
+                        .map(ProductImage::getImageUrl)
+                        .filter(Objects::nonNull)
+                        .min(byUrl)
+                        .orElse(null));
+        return new ProductSummaryDTO(product.getId(), product.getName(), product.getSlug(), product.getPrice(),
+                product.getEffectivePrice(), product.getDiscount(), mainImageUrl,
+                product.getBrand() != null ? product.getBrand().getName() : null,
+                product.getQuantityInStock(), product.getQuantitySold(), product.getCreatedAt());
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.backend.event;
+
+import lombok.Getter;
+
+/**
+ * Sự kiện phát ra khi cây danh mục thay đổi (tạo/sửa/xóa danh mục hoặc đổi danh mục cha).
+ * Các cấu trúc dữ liệu dẫn xuất từ cây danh mục lắng nghe sự kiện này sau khi transaction commit để dựng lại
+ */
+@Getter
+public class CategoryChangedEvent {
+
+    private final Long categoryId;
+
+    public CategoryChangedEvent(Long categoryId) {
+        this.categoryId = categoryId;
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.backend.event;
+
+import lombok.Getter;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Sự kiện phát ra khi dữ liệu sản phẩm thay đổi (tạo/sửa/xóa, hoặc tồn kho/số lượng bán thay đổi do đơn hàng).
+ * Các bộ chỉ mục và cache trong bộ nhớ lắng nghe sự kiện này sau khi transaction commit để tự cập nhật.
+ * categoryIds là danh mục của các sản phẩm trước và sau thay đổi, để cache theo danh mục chỉ xóa các nhánh liên quan;
+ * rỗng nghĩa là không biết (người nghe phải coi như mọi danh mục đều có thể bị ảnh hưởng)
+ */
+@Getter
+public class ProductChangedEvent {
+
+    public enum Type {
+        SAVED,
+        DELETED,
+        STOCK_CHANGED
+    }
+
+    private final Type type;
+    private final Set<Long> productIds;
+    private final Set<Long> categoryIds;
+
+    public ProductChangedEvent(Type type, Collection<Long> productIds) {
+        this(type, productIds, Set.of());
+    }
+
+    public ProductChangedEvent(Type type, Collection<Long> productIds, Collection<Long> categoryIds) {
+        this.type = type;
+        this.productIds = Set.copyOf(productIds);
+        this.categoryIds = categoryIds.stream().filter(Objects::nonNull).collect(Collectors.toUnmodifiableSet());
+    }
+
+    public static ProductChangedEvent saved(Long productId) {
+        return new ProductChangedEvent(Type.SAVED, Set.of(productId));
+    }
+
+    /**
+     * @param categoryIds danh mục cũ và mới của sản phẩm (null được bỏ qua)
+     */
+    public static ProductChangedEvent saved(Long productId, Long... categoryIds) {
+        return new ProductChangedEvent(Type.SAVED, Set.of(productId), Arrays.asList(categoryIds));
+    }
+
+    public static ProductChangedEvent deleted(Long productId) {
+        return new ProductChangedEvent(Type.DELETED, Set.of(productId));
+    }
+
+    public static ProductChangedEvent deleted(Long productId, Long categoryId) {
+        return new ProductChangedEvent(Type.DELETED, Set.of(productId), Arrays.asList(categoryId));
+    }
+
+    public static ProductChangedEvent stockChanged(Collection<Long> productIds) {
+        return new ProductChangedEvent(Type.STOCK_CHANGED, productIds);
+    }
+}
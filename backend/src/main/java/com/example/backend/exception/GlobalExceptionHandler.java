@@ -3,6 +3,8 @@ package com.example.backend.exception;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -16,11 +18,14 @@ import org.springframework.web.servlet.mvc.method.annotation.ResponseEntityExcep
 
 import java.time.LocalDateTime;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 @ControllerAdvice
 public class GlobalExceptionHandler extends ResponseEntityExceptionHandler {
 
+    private static final Logger log = LoggerFactory.getLogger(GlobalExceptionHandler.class);
+
     /**
      * Xử lý lỗi validation
      */
@@ -82,6 +87,48 @@ public class GlobalExceptionHandler extends ResponseEntityExceptionHandler {
         return new ResponseEntity<>(apiError, HttpStatus.BAD_REQUEST);
     }
     
+    /**
+     * Xử lý lỗi ConflictException
+     */
+    @ExceptionHandler(ConflictException.class)
+    public ResponseEntity<ApiError> handleConflictException(
+            ConflictException ex, WebRequest request) {
+        
+        ApiError apiError = ApiError.builder()
+                .timestamp(LocalDateTime.now())
+                .status(HttpStatus.CONFLICT.value())
+                .message(ex.getMessage())
+                .path(request.getDescription(false))
+                .build();
+        
+        return new ResponseEntity<>(apiError, HttpStatus.CONFLICT);
+    }
+    
+    /**
+     * Xử lý lỗi thiếu tồn kho khi đặt hàng: errors liệt kê từng SKU thiếu hàng
+     */
+    @ExceptionHandler(InsufficientStockException.class)
+    public ResponseEntity<ApiError> handleInsufficientStockException(
+            InsufficientStockException ex, WebRequest request) {
+        
+        Map<String, String> errors = new LinkedHashMap<>();
+        for (InsufficientStockException.StockShortage shortage : ex.getShortages()) {
+            String key = shortage.sku() != null ? shortage.sku() : String.valueOf(shortage.productId());
+            errors.put(key, (shortage.productName() != null ? shortage.productName() + ": " : "")
+                    + "yêu cầu " + shortage.requested() + ", còn " + shortage.available());
+        }
+        
+        ApiError apiError = ApiError.builder()
+                .timestamp(LocalDateTime.now())
+                .status(HttpStatus.CONFLICT.value())
+                .message(ex.getMessage())
+                .errors(errors)
+                .path(request.getDescription(false))
+                .build();
+        
+        return new ResponseEntity<>(apiError, HttpStatus.CONFLICT);
+    }
+    
     /**
      * Xử lý lỗi BadCredentialsException
      */
@@ -123,6 +170,7 @@ public class GlobalExceptionHandler extends ResponseEntityExceptionHandler {
     public ResponseEntity<ApiError> handleGlobalException(
             Exception ex, WebRequest request) {
         
+        log.error("Unhandled exception at {}", request.getDescription(false), ex);
         ApiError apiError = ApiError.builder()
                 .timestamp(LocalDateTime.now())
                 .status(HttpStatus.INTERNAL_SERVER_ERROR.value())
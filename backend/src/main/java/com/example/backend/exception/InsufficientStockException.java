@@ -0,0 +1,26 @@
+package com.example.backend.exception;
+
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * Không đủ tồn kho cho một hoặc nhiều sản phẩm khi đặt hàng. Không sản phẩm nào bị trừ kho (tất cả hoặc không),
+ * danh sách shortages cho biết từng SKU thiếu bao nhiêu
+ */
+@Getter
+public class InsufficientStockException extends RuntimeException {
+
+    private final List<StockShortage> shortages;
+
+    public InsufficientStockException(List<StockShortage> shortages) {
+        super("Không đủ số lượng trong kho cho " + shortages.size() + " sản phẩm");
+        this.shortages = List.copyOf(shortages);
+    }
+
+    /**
+     * @param available Số lượng còn trong kho tại thời điểm đặt, 0 nếu sản phẩm không còn tồn tại
+     */
+    public record StockShortage(Long productId, String sku, String productName, int requested, int available) {
+    }
+}
@@ -1,5 +1,7 @@
 package com.example.backend.model;
 
+import com.example.backend.util.PriceCalculator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
@@ -40,12 +42,18 @@ public class CartItem {
     
     @Transient
     public BigDecimal getSubtotal() {
+        return PriceCalculator.toAmount(getSubtotalMinorUnits());
+    }
+    
+    /**
+     * Thành tiền theo đơn vị nhỏ nhất (1/100), dùng để cộng dồn tổng giỏ hàng/đơn hàng bằng số nguyên
+     */
+    @Transient
+    @JsonIgnore
+    public long getSubtotalMinorUnits() {
         if (product != null && product.getPrice() != null) {
-            BigDecimal discountMultiplier = BigDecimal.ONE.subtract(
-                new BigDecimal(product.getDiscount().toString()).divide(new BigDecimal("100"))
-            );
-            return product.getPrice().multiply(discountMultiplier).multiply(new BigDecimal(quantity));
+            return PriceCalculator.subtotal(PriceCalculator.effectivePrice(product), quantity);
         }
-        return BigDecimal.ZERO;
+        return 0L;
     }
 } 
\ No newline at end of file
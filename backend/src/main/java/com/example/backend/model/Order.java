@@ -7,10 +7,8 @@ import lombok.NoArgsConstructor;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Random;
 
 @Entity
 @Table(name = "orders")
@@ -20,9 +18,11 @@ import java.util.Random;
 public class Order {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "orders_seq")
+    @SequenceGenerator(name = "orders_seq", sequenceName = "orders_seq", allocationSize = 50)
     private Long id;
     
+    // Được gán trước khi lưu bằng OrderNumberGenerator
     @Column(unique = true)
     private String orderNumber;
     
@@ -71,9 +71,18 @@ public class Order {
     protected void onCreate() {
         this.createdAt = LocalDateTime.now();
         this.updatedAt = LocalDateTime.now();
-        this.orderNumber = generateOrderNumber();
         
-        // Thêm trạng thái ban đầu vào lịch sử
+        // Thêm trạng thái ban đầu vào lịch sử nếu chưa được thêm trước khi lưu
+        if (this.statusHistory.isEmpty()) {
+            addInitialStatus();
+        }
+    }
+    
+    /**
+     * Ghi trạng thái hiện tại làm trạng thái ban đầu trong lịch sử.
+     * Gọi trước updateStatus khi đơn hàng đổi trạng thái trước lần lưu đầu tiên
+     */
+    public void addInitialStatus() {
         OrderStatusHistory initialStatus = new OrderStatusHistory();
         initialStatus.setOrder(this);
         initialStatus.setStatus(this.status);
@@ -87,13 +96,6 @@ public class Order {
         this.updatedAt = LocalDateTime.now();
     }
     
-    private String generateOrderNumber() {
-        LocalDateTime now = LocalDateTime.now();
-        // Thêm số ngẫu nhiên 4 chữ số để tránh trùng lặp khi nhiều người dùng tạo cùng lúc
-        String randomCode = String.format("%04d", new Random().nextInt(10000));
-        return "OD" + now.format(DateTimeFormatter.ofPattern("yyMMddHHmmss")) + randomCode;
-    }
-    
     // Phương thức để cập nhật trạng thái đơn hàng và lưu lịch sử
     public void updateStatus(OrderStatus newStatus, String notes) {
         this.status = newStatus;
@@ -1,5 +1,7 @@
 package com.example.backend.model;
 
+import com.example.backend.util.PriceCalculator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
@@ -17,7 +19,11 @@ import java.util.Map;
 import java.util.Set;
 
 @Entity
-@Table(name = "products")
+@Table(name = "products", indexes = {
+        @Index(name = "idx_products_effective_price", columnList = "effective_price, id"),
+        @Index(name = "idx_products_created_at", columnList = "created_at, id"),
+        @Index(name = "idx_products_quantity_sold", columnList = "quantity_sold, id")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -48,6 +54,11 @@ public class Product {
     @Column
     private Float discount = 0.0f;
     
+    // Giá sau giảm giá theo đơn vị nhỏ nhất (1/100), tự tính lại khi giá hoặc giảm giá thay đổi
+    @JsonIgnore
+    @Column(name = "effective_price")
+    private Long effectivePrice;
+    
     @Column(name = "quantity_in_stock")
     private Integer quantityInStock = 0;
     
@@ -83,15 +94,33 @@ public class Product {
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
     
+    public Product setPrice(BigDecimal price) {
+        this.price = price;
+        updateEffectivePrice();
+        return this;
+    }
+    
+    public Product setDiscount(Float discount) {
+        this.discount = discount;
+        updateEffectivePrice();
+        return this;
+    }
+    
     @PrePersist
     protected void onCreate() {
         this.createdAt = LocalDateTime.now();
         this.updatedAt = LocalDateTime.now();
+        updateEffectivePrice();
     }
     
     @PreUpdate
     protected void onUpdate() {
         this.updatedAt = LocalDateTime.now();
+        updateEffectivePrice();
+    }
+    
+    private void updateEffectivePrice() {
+        this.effectivePrice = price != null ? PriceCalculator.effectivePrice(price, discount) : null;
     }
     
 }
\ No newline at end of file
@@ -12,7 +12,9 @@ import lombok.experimental.Accessors;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "product_images")
+@Table(name = "product_images", indexes = {
+        @Index(name = "idx_product_images_product", columnList = "product_id, is_main")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -0,0 +1,13 @@
+package com.example.backend.repository;
+
+import com.example.backend.model.Brand;
+
+/**
+ * Thương hiệu kèm số sản phẩm đang bán trong một tập danh mục (kết quả GROUP BY)
+ */
+public interface BrandProductCountRow {
+
+    Brand getBrand();
+
+    Long getProductCount();
+}
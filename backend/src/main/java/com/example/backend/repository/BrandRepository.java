@@ -2,8 +2,12 @@ package com.example.backend.repository;
 
 import com.example.backend.model.Brand;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -12,4 +16,13 @@ public interface BrandRepository extends JpaRepository<Brand, Long> {
     Optional<Brand> findBySlug(String slug);
     
     Optional<Brand> findByName(String name);
+    
+    /**
+     * Các thương hiệu có sản phẩm đang bán trong tập danh mục, kèm số sản phẩm, trong một truy vấn GROUP BY.
+     * Sắp xếp theo số sản phẩm giảm dần, sau đó theo tên
+     */
+    @Query("SELECT b AS brand, COUNT(p) AS productCount FROM Product p JOIN p.brand b " +
+           "WHERE p.category.id IN :categoryIds AND p.isActive = true " +
+           "GROUP BY b ORDER BY COUNT(p) DESC, b.name ASC")
+    List<BrandProductCountRow> findWithProductCountByCategoryIdIn(@Param("categoryIds") Collection<Long> categoryIds);
 }
\ No newline at end of file
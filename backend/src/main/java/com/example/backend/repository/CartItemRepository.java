@@ -5,6 +5,7 @@ import com.example.backend.model.Product;
 import com.example.backend.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -29,5 +30,10 @@ public interface CartItemRepository extends JpaRepository<CartItem, Long> {
     
     List<CartItem> findByIdInAndUserIdOrderByCreatedAtDesc(List<Long> ids, Long userId);
     
-    List<CartItem> findAllByIdInAndUserId(List<Long> ids, Long userId);
+    /**
+     * Các mục giỏ hàng được chọn để đặt hàng, nạp sẵn sản phẩm và ảnh trong cùng truy vấn
+     */
+    @Query("SELECT ci FROM CartItem ci JOIN FETCH ci.product p LEFT JOIN FETCH p.images " +
+           "WHERE ci.id IN :ids AND ci.user.id = :userId")
+    List<CartItem> findAllByIdInAndUserId(@Param("ids") List<Long> ids, @Param("userId") Long userId);
 } 
\ No newline at end of file
@@ -2,6 +2,7 @@ package com.example.backend.repository;
 
 import com.example.backend.model.Category;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -19,4 +20,10 @@ public interface CategoryRepository extends JpaRepository<Category, Long> {
     List<Category> findByParentIsNull();
     
     Optional<Category> findByName(String name);
+    
+    /**
+     * Chỉ lấy (id, parentId, slug) của toàn bộ danh mục để dựng cây trong bộ nhớ bằng một truy vấn
+     */
+    @Query("SELECT c.id, p.id, c.slug FROM Category c LEFT JOIN c.parent p")
+    List<Object[]> findAllParentLinks();
 }
\ No newline at end of file
@@ -46,4 +46,11 @@ public interface OrderItemRepository extends JpaRepository<OrderItem, Long> {
      * @param orderId ID của Order cần xóa
      */
     void deleteByOrderId(Long orderId);
+    
+    /**
+     * Như OrderRepository.alignIdSequence, cho order_items_seq
+     */
+    @Query(value = "SELECT setval('order_items_seq', m.max_id + 50) FROM (SELECT MAX(id) AS max_id FROM order_items) m " +
+            "WHERE m.max_id >= (SELECT last_value FROM order_items_seq)", nativeQuery = true)
+    List<Long> alignIdSequence();
 } 
\ No newline at end of file
@@ -5,6 +5,7 @@ import com.example.backend.model.OrderStatus;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
@@ -31,4 +32,13 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
     Page<Order> findByUserId(Long userId, Pageable pageable);
     
     List<Order> findByCreatedAtBetween(LocalDateTime startDate, LocalDateTime endDate);
+    
+    /**
+     * Đưa orders_seq vượt qua id lớn nhất của bảng (các dòng tạo khi id còn là IDENTITY).
+     * Chỉ chạy setval khi sequence còn đứng sau dữ liệu, nên sau lần đầu câu lệnh không làm gì
+     * @return giá trị mới của sequence, rỗng nếu không cần căn chỉnh
+     */
+    @Query(value = "SELECT setval('orders_seq', m.max_id + 50) FROM (SELECT MAX(id) AS max_id FROM orders) m " +
+            "WHERE m.max_id >= (SELECT last_value FROM orders_seq)", nativeQuery = true)
+    List<Long> alignIdSequence();
 } 
\ No newline at end of file
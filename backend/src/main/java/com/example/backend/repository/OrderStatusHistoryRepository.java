@@ -2,6 +2,7 @@ package com.example.backend.repository;
 
 import com.example.backend.model.OrderStatusHistory;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -10,4 +11,11 @@ import java.util.List;
 public interface OrderStatusHistoryRepository extends JpaRepository<OrderStatusHistory, Long> {
     
     List<OrderStatusHistory> findByOrderIdOrderByCreatedAtDesc(Long orderId);
+    
+    /**
+     * Như OrderRepository.alignIdSequence, cho order_status_history_seq
+     */
+    @Query(value = "SELECT setval('order_status_history_seq', m.max_id + 50) FROM (SELECT MAX(id) AS max_id FROM order_status_history) m " +
+            "WHERE m.max_id >= (SELECT last_value FROM order_status_history_seq)", nativeQuery = true)
+    List<Long> alignIdSequence();
 } 
\ No newline at end of file
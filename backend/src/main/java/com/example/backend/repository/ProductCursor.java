@@ -0,0 +1,120 @@
+package com.example.backend.repository;
+
+import com.example.backend.exception.BadRequestException;
+import com.example.backend.model.Product;
+import com.example.backend.util.PriceCalculator;
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.Base64;
+
+/**
+ * Con trỏ phân trang keyset: cặp (khóa sắp xếp, id) của sản phẩm cuối cùng đã trả về.
+ * Trang tiếp theo là truy vấn "seek" (khóa, id) > / < con trỏ thay vì OFFSET, nên chi phí không tăng theo độ sâu.
+ * Khóa sắp xếp là long: newest - createdAt theo micro giây epoch, price_asc/price_desc - effectivePrice,
+ * best_selling - quantitySold. Token gửi cho client được mã hóa base64 và không có ý nghĩa với client
+ */
+@Getter
+public final class ProductCursor {
+
+    public static final String NEWEST = "newest";
+    public static final String PRICE_ASC = "price_asc";
+    public static final String PRICE_DESC = "price_desc";
+    public static final String BEST_SELLING = "best_selling";
+
+    private static final String VERSION = "1";
+
+    private final String sortBy;
+    private final long sortKey;
+    private final long id;
+
+    public ProductCursor(String sortBy, long sortKey, long id) {
+        this.sortBy = normalizeSort(sortBy);
+        this.sortKey = sortKey;
+        this.id = id;
+    }
+
+    /**
+     * Chỉ price_asc sắp xếp tăng dần, các kiểu còn lại giảm dần (id cùng chiều với khóa chính)
+     */
+    public boolean isAscending() {
+        return PRICE_ASC.equals(sortBy);
+    }
+
+    public String encode() {
+        String raw = VERSION + ":" + sortBy + ":" + sortKey + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static ProductCursor after(String sortBy, Product product) {
+        return new ProductCursor(sortBy, sortKeyOf(sortBy, product), product.getId());
+    }
+
+    /**
+     * Con trỏ sau dòng có các giá trị sắp xếp cho trước (dùng cho projection không phải entity)
+     */
+    public static ProductCursor after(String sortBy, Long id, long effectivePrice, Integer quantitySold,
+                                      LocalDateTime createdAt) {
+        return new ProductCursor(sortBy, sortKeyOf(sortBy, effectivePrice, quantitySold, createdAt), id);
+    }
+
+    /**
+     * Giải mã token từ request
+     * @throws BadRequestException nếu token không hợp lệ hoặc được tạo cho kiểu sắp xếp khác
+     */
+    public static ProductCursor decode(String token, String sortBy) {
+        String expectedSort = normalizeSort(sortBy);
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8).split(":");
+            if (parts.length == 4 && VERSION.equals(parts[0]) && expectedSort.equals(parts[1])) {
+                return new ProductCursor(parts[1], Long.parseLong(parts[2]), Long.parseLong(parts[3]));
+            }
+        } catch (IllegalArgumentException e) {
+            // Rơi xuống lỗi bên dưới
+        }
+        throw new BadRequestException("Cursor không hợp lệ cho kiểu sắp xếp " + expectedSort);
+    }
+
+    public static String normalizeSort(String sortBy) {
+        if (PRICE_ASC.equals(sortBy) || PRICE_DESC.equals(sortBy) || BEST_SELLING.equals(sortBy)) {
+            return sortBy;
+        }
+        return NEWEST;
+    }
+
+    public static long sortKeyOf(String sortBy, Product product) {
+        return sortKeyOf(sortBy, PriceCalculator.effectivePrice(product), product.getQuantitySold(), product.getCreatedAt());
+    }
+
+    private static long sortKeyOf(String sortBy, long effectivePrice, Integer quantitySold, LocalDateTime createdAt) {
+        switch (normalizeSort(sortBy)) {
+            case PRICE_ASC:
+            case PRICE_DESC:
+                return effectivePrice;
+            case BEST_SELLING:
+                return quantitySold != null ? quantitySold : 0L;
+            case NEWEST:
+            default:
+                return toEpochMicros(createdAt);
+        }
+    }
+
+    /**
+     * PostgreSQL lưu timestamp ở độ chính xác micro giây, nên khóa newest cũng dùng micro giây để so sánh chính xác
+     */
+    public static long toEpochMicros(LocalDateTime dateTime) {
+        if (dateTime == null) {
+            return Long.MIN_VALUE;
+        }
+        Instant instant = dateTime.atZone(ZoneId.systemDefault()).toInstant();
+        return ChronoUnit.MICROS.between(Instant.EPOCH, instant);
+    }
+
+    public static LocalDateTime fromEpochMicros(long epochMicros) {
+        return LocalDateTime.ofInstant(Instant.EPOCH.plus(epochMicros, ChronoUnit.MICROS), ZoneId.systemDefault());
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.backend.repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * Projection chỉ gồm các cột cần cho chỉ mục catalog trong bộ nhớ (không nạp entity, ảnh hay quan hệ lazy)
+ */
+public interface ProductIndexRow {
+
+    Long getId();
+
+    BigDecimal getPrice();
+
+    Float getDiscount();
+
+    Long getEffectivePrice();
+
+    Long getBrandId();
+
+    Long getCategoryId();
+
+    Boolean getIsActive();
+
+    Boolean getIsFeatured();
+
+    Integer getQuantitySold();
+
+    LocalDateTime getCreatedAt();
+
+    Map<String, Object> getSpecifications();
+}
@@ -0,0 +1,26 @@
+package com.example.backend.repository;
+
+import com.example.backend.dto.ProductSummaryDTO;
+import com.example.backend.model.Product;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+
+/**
+ * Trang sản phẩm theo Specification nhưng chỉ chọn các cột cần dùng, thay cho findAll(spec, pageable) nạp cả entity.
+ * Thứ tự lấy từ spec (ProductSpecifications.orderBy), không chạy câu COUNT
+ */
+public interface ProductPageRepository {
+
+    /**
+     * @param limit null là lấy hết các dòng từ offset
+     * @return id sản phẩm của trang, theo thứ tự
+     */
+    List<Long> findPageIds(Specification<Product> spec, int offset, Integer limit);
+
+    /**
+     * Bản rút gọn của trang trong một truy vấn, cùng cột với ProductRepository.findSummariesByIdIn
+     * @param limit null là lấy hết các dòng từ offset
+     */
+    List<ProductSummaryDTO> findPageSummaries(Specification<Product> spec, int offset, Integer limit);
+}
@@ -0,0 +1,75 @@
+package com.example.backend.repository;
+
+import com.example.backend.dto.ProductSummaryDTO;
+import com.example.backend.model.Brand;
+import com.example.backend.model.Product;
+import com.example.backend.model.ProductImage;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.JoinType;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Subquery;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+
+/**
+ * Fragment của ProductRepository: dựng truy vấn Criteria chọn cột rồi áp dụng Specification lên cùng root
+ */
+class ProductPageRepositoryImpl implements ProductPageRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<Long> findPageIds(Specification<Product> spec, int offset, Integer limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = cb.createQuery(Long.class);
+        Root<Product> root = query.from(Product.class);
+        query.select(root.get("id"));
+        return page(spec, root, query, offset, limit);
+    }
+
+    @Override
+    public List<ProductSummaryDTO> findPageSummaries(Specification<Product> spec, int offset, Integer limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<ProductSummaryDTO> query = cb.createQuery(ProductSummaryDTO.class);
+        Root<Product> root = query.from(Product.class);
+        Join<Product, Brand> brand = root.join("brand", JoinType.LEFT);
+        // Ảnh is_main, nếu không có thì ảnh bất kỳ của sản phẩm
+        query.select(cb.construct(ProductSummaryDTO.class,
+                root.get("id"), root.get("name"), root.get("slug"), root.get("price"), root.get("effectivePrice"),
+                root.get("discount"),
+                cb.coalesce(imageUrl(query, root, cb, true), imageUrl(query, root, cb, false)),
+                brand.get("name"), root.get("quantityInStock"), root.get("quantitySold"), root.get("createdAt")));
+        return page(spec, root, query, offset, limit);
+    }
+
+    private <T> List<T> page(Specification<Product> spec, Root<Product> root, CriteriaQuery<T> query,
+                             int offset, Integer limit) {
+        Predicate predicate = spec.toPredicate(root, query, entityManager.getCriteriaBuilder());
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        TypedQuery<T> typedQuery = entityManager.createQuery(query);
+        typedQuery.setFirstResult(offset);
+        if (limit != null) {
+            typedQuery.setMaxResults(limit);
+        }
+        return typedQuery.getResultList();
+    }
+
+    private static Subquery<String> imageUrl(CriteriaQuery<?> query, Root<Product> product, CriteriaBuilder cb,
+                                             boolean mainOnly) {
+        Subquery<String> subquery = query.subquery(String.class);
+        Root<ProductImage> image = subquery.from(ProductImage.class);
+        Predicate ofProduct = cb.equal(image.get("product"), product);
+        return subquery.select(cb.least(image.<String>get("imageUrl")))
+                .where(mainOnly ? cb.and(ofProduct, cb.isTrue(image.get("isMain"))) : ofProduct);
+    }
+}
@@ -1,27 +1,61 @@
 package com.example.backend.repository;
 
+import com.example.backend.dto.ProductFeedDTO;
+import com.example.backend.dto.ProductSummaryDTO;
 import com.example.backend.model.Category;
 import com.example.backend.model.Product;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
-public interface ProductRepository extends JpaRepository<Product, Long> {
+public interface ProductRepository extends JpaRepository<Product, Long>, JpaSpecificationExecutor<Product>,
+        ProductPageRepository {
     List<Product> findByCategoryId(Long categoryId);
     
     Optional<Product> findBySlug(String slug);
     
+    String DETAIL_SELECT = "SELECT p FROM Product p LEFT JOIN FETCH p.brand LEFT JOIN FETCH p.category " +
+            "LEFT JOIN FETCH p.images";
+    
+    /**
+     * Sản phẩm kèm brand, category, images trong một truy vấn, dùng cho trang chi tiết (và cache chi tiết)
+     */
+    @Query(DETAIL_SELECT + " WHERE p.id = :id")
+    Optional<Product> findDetailById(@Param("id") Long id);
+    
+    @Query(DETAIL_SELECT + " WHERE p.slug = :slug")
+    Optional<Product> findDetailBySlug(@Param("slug") String slug);
+    
+    @Query(DETAIL_SELECT + " WHERE p.id IN :ids")
+    List<Product> findDetailsByIdIn(@Param("ids") Collection<Long> ids);
+    
+    @Query(DETAIL_SELECT + " WHERE p.slug IN :slugs")
+    List<Product> findDetailsBySlugIn(@Param("slugs") Collection<String> slugs);
+    
     Optional<Product> findBySku(String sku);
     
     List<Product> findByCategory(Category category);
     
     List<Product> findByBrandId(Long brandId);
     
+    @Query("SELECT p.id FROM Product p WHERE p.brand.id = :brandId")
+    List<Long> findIdsByBrandId(@Param("brandId") Long brandId);
+    
+    @Query("SELECT p.category.id FROM Product p WHERE p.id = :id")
+    Optional<Long> findCategoryIdById(@Param("id") Long id);
+    
     /**
      * Kiểm tra xem một mã SKU đã tồn tại trong cơ sở dữ liệu chưa
      * @param sku Mã SKU cần kiểm tra
@@ -32,27 +66,149 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
     @Query("SELECT p FROM Product p WHERE p.isFeatured = true AND p.isActive = true ORDER BY p.createdAt DESC")
     List<Product> findFeaturedProducts();
     
-    @Query("SELECT p FROM Product p WHERE LOWER(p.name) LIKE LOWER(CONCAT('%', :keyword, '%')) OR LOWER(p.description) LIKE LOWER(CONCAT('%', :keyword, '%'))")
-    List<Product> findByKeyword(@Param("keyword") String keyword);
-    
     @Query("SELECT p FROM Product p WHERE p.isActive = true AND p.category.id = :categoryId ORDER BY p.createdAt DESC")
     List<Product> findActiveByCategoryId(@Param("categoryId") Long categoryId);
     
-    @Query("SELECT p FROM Product p WHERE p.category.id = :categoryId AND p.isActive = true")
-    List<Product> findActiveByCategoryIdAndSortByNewest(@Param("categoryId") Long categoryId);
-    
-    @Query("SELECT p FROM Product p WHERE p.category.id = :categoryId AND p.isActive = true ORDER BY p.price ASC")
-    List<Product> findActiveByCategoryIdAndSortByPriceAsc(@Param("categoryId") Long categoryId);
-    
-    @Query("SELECT p FROM Product p WHERE p.category.id = :categoryId AND p.isActive = true ORDER BY p.price DESC")
-    List<Product> findActiveByCategoryIdAndSortByPriceDesc(@Param("categoryId") Long categoryId);
-    
-    @Query("SELECT p FROM Product p WHERE p.category.id = :categoryId AND p.isActive = true ORDER BY p.quantitySold DESC")
-    List<Product> findActiveByCategoryIdAndSortByBestSelling(@Param("categoryId") Long categoryId);
-    
     @Query("SELECT p FROM Product p WHERE p.isFeatured = :isFeatured AND p.isActive = :isActive")
     List<Product> findByFeaturedAndActive(
         @Param("isFeatured") Boolean isFeatured, 
         @Param("isActive") Boolean isActive
     );
+    
+    String INDEX_ROW_SELECT = "SELECT p.id AS id, p.price AS price, p.discount AS discount, p.effectivePrice AS effectivePrice, " +
+            "p.brand.id AS brandId, p.category.id AS categoryId, p.isActive AS isActive, " +
+            "p.isFeatured AS isFeatured, p.quantitySold AS quantitySold, p.createdAt AS createdAt, " +
+            "p.specifications AS specifications FROM Product p";
+    
+    /**
+     * Nạp toàn bộ dữ liệu dạng cột cho chỉ mục catalog trong bộ nhớ
+     */
+    @Query(INDEX_ROW_SELECT)
+    List<ProductIndexRow> findAllIndexRows();
+    
+    @Query(INDEX_ROW_SELECT + " WHERE p.id IN :ids")
+    List<ProductIndexRow> findIndexRowsByIdIn(@Param("ids") Collection<Long> ids);
+    
+    String SEARCH_ROW_SELECT = "SELECT p.id AS id, p.name AS name, p.description AS description, " +
+            "b.name AS brandName FROM Product p LEFT JOIN p.brand b";
+    
+    /**
+     * Nạp văn bản của toàn bộ sản phẩm cho chỉ mục tìm kiếm toàn văn
+     */
+    @Query(SEARCH_ROW_SELECT)
+    List<ProductSearchRow> findAllSearchRows();
+    
+    @Query(SEARCH_ROW_SELECT + " WHERE p.id IN :ids")
+    List<ProductSearchRow> findSearchRowsByIdIn(@Param("ids") Collection<Long> ids);
+    
+    String SUGGEST_ROW_SELECT = "SELECT p.id AS id, p.name AS name, p.slug AS slug, p.isActive AS isActive, " +
+            "p.quantitySold AS quantitySold, b.id AS brandId, b.name AS brandName, b.slug AS brandSlug, " +
+            "c.id AS categoryId, c.name AS categoryName, c.slug AS categorySlug " +
+            "FROM Product p LEFT JOIN p.brand b LEFT JOIN p.category c";
+    
+    /**
+     * Nạp dữ liệu cho chỉ mục gợi ý tự động hoàn thành
+     */
+    @Query(SUGGEST_ROW_SELECT)
+    List<ProductSuggestRow> findAllSuggestRows();
+    
+    @Query(SUGGEST_ROW_SELECT + " WHERE p.id IN :ids")
+    List<ProductSuggestRow> findSuggestRowsByIdIn(@Param("ids") Collection<Long> ids);
+    
+    /**
+     * Dữ liệu rút gọn cho trang danh sách trong một truy vấn: ảnh chính lấy bằng subquery
+     * (ảnh is_main, nếu không có thì ảnh bất kỳ của sản phẩm), thương hiệu qua LEFT JOIN
+     */
+    @Query("SELECT new com.example.backend.dto.ProductSummaryDTO(p.id, p.name, p.slug, p.price, p.effectivePrice, " +
+            "p.discount, COALESCE(" +
+            "(SELECT MIN(i.imageUrl) FROM ProductImage i WHERE i.product = p AND i.isMain = true), " +
+            "(SELECT MIN(i2.imageUrl) FROM ProductImage i2 WHERE i2.product = p)), " +
+            "b.name, p.quantityInStock, p.quantitySold, p.createdAt) " +
+            "FROM Product p LEFT JOIN p.brand b WHERE p.id IN :ids")
+    List<ProductSummaryDTO> findSummariesByIdIn(@Param("ids") Collection<Long> ids);
+    
+    /**
+     * Toàn bộ catalog theo id tăng dần, đọc dạng luồng bằng con trỏ chỉ tiến của JDBC (fetch size 500).
+     * Phải được gọi trong một transaction và đóng Stream sau khi dùng
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT new com.example.backend.dto.ProductFeedDTO(p.id, p.sku, p.name, p.slug, p.price, p.effectivePrice, " +
+            "p.discount, p.quantityInStock, p.isActive, COALESCE(" +
+            "(SELECT MIN(i.imageUrl) FROM ProductImage i WHERE i.product = p AND i.isMain = true), " +
+            "(SELECT MIN(i2.imageUrl) FROM ProductImage i2 WHERE i2.product = p)), " +
+            "b.name, c.name, p.updatedAt) " +
+            "FROM Product p LEFT JOIN p.brand b LEFT JOIN p.category c ORDER BY p.id")
+    Stream<ProductFeedDTO> streamFeedRows();
+    
+    // Các cột của ProductStockRow, trả về bởi RETURNING của reserveStock/releaseStock
+    String STOCK_RETURNING = "p.id, p.sku, p.name, p.quantity_in_stock AS \"quantityInStock\", " +
+            "p.quantity_sold AS \"quantitySold\"";
+    
+    /**
+     * Trừ tồn kho có điều kiện (quantity_in_stock >= số lượng) và cộng số lượng bán cho nhiều sản phẩm
+     * trong một câu lệnh. Các dòng được khóa theo thứ tự id trước khi cập nhật để hai đơn hàng đồng thời
+     * không khóa chéo nhau (deadlock)
+     * @param ids Id sản phẩm, không trùng lặp
+     * @param quantities Số lượng tương ứng với từng id
+     * @return Tồn kho sau khi trừ của các sản phẩm đã trừ được; thiếu id nào nghĩa là sản phẩm đó không đủ hàng
+     * hoặc không tồn tại
+     */
+    @Query(value = "WITH requested AS (" +
+            "SELECT * FROM unnest(CAST(:ids AS bigint[]), CAST(:quantities AS int[])) AS r(id, quantity)), " +
+            "locked AS (SELECT p.id FROM products p JOIN requested r ON r.id = p.id ORDER BY p.id FOR UPDATE OF p) " +
+            "UPDATE products p SET quantity_in_stock = p.quantity_in_stock - r.quantity, " +
+            "quantity_sold = COALESCE(p.quantity_sold, 0) + r.quantity, updated_at = LOCALTIMESTAMP " +
+            "FROM requested r JOIN locked l ON l.id = r.id " +
+            "WHERE p.id = r.id AND p.quantity_in_stock >= r.quantity " +
+            "RETURNING " + STOCK_RETURNING, nativeQuery = true)
+    List<ProductStockRow> reserveStock(@Param("ids") Long[] ids, @Param("quantities") Integer[] quantities);
+    
+    /**
+     * Hoàn lại tồn kho và trừ số lượng bán (hủy/trả hàng) cho nhiều sản phẩm trong một câu lệnh,
+     * khóa theo cùng thứ tự id với reserveStock
+     * @return Tồn kho sau khi hoàn của từng sản phẩm
+     */
+    @Query(value = "WITH requested AS (" +
+            "SELECT * FROM unnest(CAST(:ids AS bigint[]), CAST(:quantities AS int[])) AS r(id, quantity)), " +
+            "locked AS (SELECT p.id FROM products p JOIN requested r ON r.id = p.id ORDER BY p.id FOR UPDATE OF p) " +
+            "UPDATE products p SET quantity_in_stock = p.quantity_in_stock + r.quantity, " +
+            "quantity_sold = COALESCE(p.quantity_sold, 0) - r.quantity, updated_at = LOCALTIMESTAMP " +
+            "FROM requested r JOIN locked l ON l.id = r.id " +
+            "WHERE p.id = r.id " +
+            "RETURNING " + STOCK_RETURNING, nativeQuery = true)
+    List<ProductStockRow> releaseStock(@Param("ids") Long[] ids, @Param("quantities") Integer[] quantities);
+
+    /**
+     * Ghi số lượng đã bán trong flash sale xuống database (trừ kho, cộng số lượng bán) không kèm điều kiện:
+     * việc kiểm tra đủ hàng đã diễn ra trên bộ đếm trong bộ nhớ. Khóa theo cùng thứ tự id với reserveStock
+     */
+    @Modifying
+    @Query(value = "WITH requested AS (" +
+            "SELECT * FROM unnest(CAST(:ids AS bigint[]), CAST(:quantities AS int[])) AS r(id, quantity)), " +
+            "locked AS (SELECT p.id FROM products p JOIN requested r ON r.id = p.id ORDER BY p.id FOR UPDATE OF p) " +
+            "UPDATE products p SET quantity_in_stock = p.quantity_in_stock - r.quantity, " +
+            "quantity_sold = COALESCE(p.quantity_sold, 0) + r.quantity, updated_at = LOCALTIMESTAMP " +
+            "FROM requested r JOIN locked l ON l.id = r.id " +
+            "WHERE p.id = r.id", nativeQuery = true)
+    int deductStock(@Param("ids") Long[] ids, @Param("quantities") Integer[] quantities);
+
+    /**
+     * Tồn kho hiện tại kèm SKU và tên của các sản phẩm, dùng để báo thiếu hàng và nạp flash sale
+     */
+    @Query(value = "SELECT id, sku, name, quantity_in_stock AS \"quantityInStock\", quantity_sold AS \"quantitySold\" " +
+            "FROM products WHERE id IN (:ids)", nativeQuery = true)
+    List<ProductStockRow> findStockRowsByIdIn(@Param("ids") Collection<Long> ids);
+    
+    /**
+     * Tính effective_price cho các dòng chưa có (dữ liệu cũ trước khi thêm cột).
+     * Cùng công thức với PriceCalculator: giảm giá quy về basis point, làm tròn HALF_UP theo đơn vị 1/100
+     */
+    @Modifying
+    @Query(value = "UPDATE products SET effective_price = " +
+            "ROUND(price * (10000 - LEAST(GREATEST(ROUND(COALESCE(discount, 0) * 100), 0), 10000)) / 100) " +
+            "WHERE effective_price IS NULL", nativeQuery = true)
+    int backfillEffectivePrices();
 }
\ No newline at end of file
@@ -0,0 +1,15 @@
+package com.example.backend.repository;
+
+/**
+ * Projection chỉ gồm các trường văn bản (tên, mô tả, tên thương hiệu) cần cho chỉ mục tìm kiếm toàn văn
+ */
+public interface ProductSearchRow {
+
+    Long getId();
+
+    String getName();
+
+    String getDescription();
+
+    String getBrandName();
+}
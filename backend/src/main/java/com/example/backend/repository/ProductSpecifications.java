@@ -0,0 +1,208 @@
+package com.example.backend.repository;
+
+import com.example.backend.config.JsonFunctionContributor;
+import com.example.backend.model.Product;
+import com.example.backend.util.PriceCalculator;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Các điều kiện lọc sản phẩm dạng JPA Specification.
+ * Mọi bộ lọc, sắp xếp và phân trang đều được đẩy xuống PostgreSQL thay vì lọc bằng Java stream.
+ * Mỗi phương thức trả về null khi tham số rỗng để có thể ghép nối trực tiếp bằng Specification.and()
+ */
+public final class ProductSpecifications {
+
+    private static final Pattern NUMERIC = Pattern.compile("-?\\d+(\\.\\d+)?");
+
+    private ProductSpecifications() {
+    }
+
+    public static Specification<Product> isActive(Boolean isActive) {
+        if (isActive == null) {
+            return null;
+        }
+        return (root, query, cb) -> cb.equal(root.get("isActive"), isActive);
+    }
+
+    public static Specification<Product> isFeatured(Boolean isFeatured) {
+        if (isFeatured == null) {
+            return null;
+        }
+        return (root, query, cb) -> cb.equal(root.get("isFeatured"), isFeatured);
+    }
+
+    public static Specification<Product> inCategory(Long categoryId) {
+        if (categoryId == null) {
+            return null;
+        }
+        return (root, query, cb) -> cb.equal(root.get("category").get("id"), categoryId);
+    }
+
+    public static Specification<Product> inCategories(Collection<Long> categoryIds) {
+        if (categoryIds == null || categoryIds.isEmpty()) {
+            return null;
+        }
+        return (root, query, cb) -> root.get("category").get("id").in(categoryIds);
+    }
+
+    public static Specification<Product> hasBrandIn(List<Long> brandIds) {
+        if (brandIds == null || brandIds.isEmpty()) {
+            return null;
+        }
+        return (root, query, cb) -> root.get("brand").get("id").in(brandIds);
+    }
+
+    /**
+     * Lọc theo giá sau giảm giá trên cột effective_price (đơn vị nhỏ nhất, có index)
+     */
+    public static Specification<Product> priceBetween(Double minPrice, Double maxPrice) {
+        if (minPrice == null && maxPrice == null) {
+            return null;
+        }
+        Long min = minPrice != null ? PriceCalculator.toMinorUnits(minPrice, RoundingMode.CEILING) : null;
+        Long max = maxPrice != null ? PriceCalculator.toMinorUnits(maxPrice, RoundingMode.FLOOR) : null;
+        return (root, query, cb) -> {
+            Path<Long> effectivePrice = root.get("effectivePrice");
+            if (min != null && max != null) {
+                return cb.between(effectivePrice, min, max);
+            }
+            return min != null ? cb.ge(effectivePrice, min) : cb.le(effectivePrice, max);
+        };
+    }
+
+    public static Specification<Product> matchesKeyword(String keyword) {
+        if (keyword == null || keyword.isBlank()) {
+            return null;
+        }
+        String pattern = "%" + keyword.toLowerCase() + "%";
+        return (root, query, cb) -> cb.or(
+                cb.like(cb.lower(root.get("name")), pattern),
+                cb.like(cb.lower(root.get("description")), pattern));
+    }
+
+    /**
+     * Lọc theo thông số kỹ thuật: OR giữa các giá trị của cùng một key, AND giữa các key.
+     * Hỗ trợ cả 3 dạng giá trị trong cột JSON: giá trị đơn, danh sách và map (so khớp trên các value của map)
+     */
+    public static Specification<Product> matchesSpecifications(Map<String, List<String>> specifications) {
+        if (specifications == null || specifications.isEmpty()) {
+            return null;
+        }
+        return (root, query, cb) -> {
+            List<Predicate> predicates = new ArrayList<>();
+            for (Map.Entry<String, List<String>> entry : specifications.entrySet()) {
+                List<String> allowedValues = entry.getValue();
+                if (allowedValues == null || allowedValues.isEmpty()) {
+                    continue;
+                }
+
+                String condition = buildJsonPathCondition(allowedValues);
+                if (condition == null) {
+                    continue;
+                }
+                String key = "$.\"" + escapeJsonPath(entry.getKey()) + "\"";
+
+                // Ở chế độ lax, jsonpath tự động duyệt phần tử nếu giá trị là mảng;
+                // nhánh thứ hai ".*" xử lý trường hợp giá trị là map
+                predicates.add(cb.or(
+                        jsonPathExists(root, cb, key + " ? (" + condition + ")"),
+                        jsonPathExists(root, cb, key + ".* ? (" + condition + ")")));
+            }
+            return predicates.isEmpty() ? null : cb.and(predicates.toArray(new Predicate[0]));
+        };
+    }
+
+    /**
+     * Sắp xếp theo tùy chọn của storefront. Câu COUNT của Spring Data tự bỏ ORDER BY;
+     * các truy vấn chỉ chọn id (ProductPageRepository.findPageIds) vẫn được sắp xếp.
+     * Luôn thêm id làm khóa phụ để thứ tự ổn định giữa các trang.
+     */
+    public static Specification<Product> orderBy(String sortBy) {
+        return (root, query, cb) -> {
+            switch (sortBy != null ? sortBy : "newest") {
+                case "price_asc":
+                    query.orderBy(cb.asc(root.get("effectivePrice")), cb.asc(root.get("id")));
+                    break;
+                case "price_desc":
+                    query.orderBy(cb.desc(root.get("effectivePrice")), cb.desc(root.get("id")));
+                    break;
+                case "best_selling":
+                    query.orderBy(cb.desc(root.get("quantitySold")), cb.desc(root.get("id")));
+                    break;
+                case "newest":
+                default:
+                    query.orderBy(cb.desc(root.get("createdAt")), cb.desc(root.get("id")));
+                    break;
+            }
+            return null;
+        };
+    }
+
+    /**
+     * Điều kiện seek cho phân trang keyset: chỉ lấy các sản phẩm nằm sau con trỏ theo thứ tự của orderBy
+     */
+    public static Specification<Product> after(ProductCursor cursor) {
+        if (cursor == null) {
+            return null;
+        }
+        return (root, query, cb) -> {
+            Path<Long> id = root.get("id");
+            switch (cursor.getSortBy()) {
+                case ProductCursor.PRICE_ASC:
+                case ProductCursor.PRICE_DESC:
+                    return seek(cb, root.get("effectivePrice"), cursor.getSortKey(), id, cursor);
+                case ProductCursor.BEST_SELLING:
+                    return seek(cb, root.get("quantitySold"), (int) cursor.getSortKey(), id, cursor);
+                case ProductCursor.NEWEST:
+                default:
+                    return seek(cb, root.get("createdAt"), ProductCursor.fromEpochMicros(cursor.getSortKey()), id, cursor);
+            }
+        };
+    }
+
+    private static <T extends Comparable<? super T>> Predicate seek(CriteriaBuilder cb, Path<T> key, T value,
+                                                                    Path<Long> id, ProductCursor cursor) {
+        if (cursor.isAscending()) {
+            return cb.or(cb.greaterThan(key, value),
+                    cb.and(cb.equal(key, value), cb.greaterThan(id, cursor.getId())));
+        }
+        return cb.or(cb.lessThan(key, value),
+                cb.and(cb.equal(key, value), cb.lessThan(id, cursor.getId())));
+    }
+
+    private static Predicate jsonPathExists(Root<Product> root, CriteriaBuilder cb, String path) {
+        return cb.isTrue(cb.function(JsonFunctionContributor.JSON_PATH_EXISTS, Boolean.class,
+                root.get("specifications"), cb.literal(path)));
+    }
+
+    private static String buildJsonPathCondition(List<String> allowedValues) {
+        List<String> conditions = new ArrayList<>();
+        for (String value : allowedValues) {
+            if (value == null) {
+                continue;
+            }
+            conditions.add("@ == \"" + escapeJsonPath(value) + "\"");
+
+            // Giá trị số/boolean trong JSON được so sánh như String.valueOf(...) ở phía Java
+            if (NUMERIC.matcher(value).matches() || "true".equals(value) || "false".equals(value)) {
+                conditions.add("@ == " + value);
+            }
+        }
+        return conditions.isEmpty() ? null : String.join(" || ", conditions);
+    }
+
+    private static String escapeJsonPath(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+}
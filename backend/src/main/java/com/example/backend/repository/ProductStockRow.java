@@ -0,0 +1,17 @@
+package com.example.backend.repository;
+
+/**
+ * Tồn kho hiện tại của sản phẩm, đọc trực tiếp từ bảng (không qua entity trong persistence context)
+ */
+public interface ProductStockRow {
+
+    Long getId();
+
+    String getSku();
+
+    String getName();
+
+    Integer getQuantityInStock();
+
+    Integer getQuantitySold();
+}
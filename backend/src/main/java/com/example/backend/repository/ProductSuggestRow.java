@@ -0,0 +1,29 @@
+package com.example.backend.repository;
+
+/**
+ * Projection cho chỉ mục gợi ý tự động hoàn thành: tên/slug sản phẩm, thương hiệu, danh mục và số lượng đã bán
+ */
+public interface ProductSuggestRow {
+
+    Long getId();
+
+    String getName();
+
+    String getSlug();
+
+    Boolean getIsActive();
+
+    Integer getQuantitySold();
+
+    Long getBrandId();
+
+    String getBrandName();
+
+    String getBrandSlug();
+
+    Long getCategoryId();
+
+    String getCategoryName();
+
+    String getCategorySlug();
+}
@@ -1,5 +1,6 @@
 package com.example.backend.service;
 
+import com.example.backend.dto.BrandCountDTO;
 import com.example.backend.model.Brand;
 
 import java.util.List;
@@ -16,5 +17,8 @@ public interface BrandService {
     
     void deleteBrand(Long id);
     
-    List<Brand> getBrandsByCategoryId(Long categoryId);
+    /**
+     * Các thương hiệu có sản phẩm đang bán trong danh mục và mọi danh mục con, kèm số sản phẩm
+     */
+    List<BrandCountDTO> getBrandsByCategoryId(Long categoryId);
 }
\ No newline at end of file
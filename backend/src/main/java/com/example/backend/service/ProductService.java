@@ -2,8 +2,11 @@ package com.example.backend.service;
 
 import com.example.backend.model.Product;
 import com.example.backend.dto.ProductCreateDTO;
+import com.example.backend.exception.BadRequestException;
 import com.example.backend.exception.ResourceNotFoundException;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -11,12 +14,38 @@ import java.util.Optional;
 public interface ProductService {
     List<Product> getAllProducts();
     
+    /**
+     * Ghi toàn bộ catalog ra output theo dạng luồng: đọc bằng con trỏ database và ghi dần từng dòng,
+     * bộ nhớ không tăng theo số sản phẩm. Không đóng output
+     * @param output Nơi ghi (ví dụ response body, có thể đã bọc gzip)
+     * @param ndjson true: mỗi dòng một JSON object (NDJSON), false: một mảng JSON
+     */
+    void exportProducts(OutputStream output, boolean ndjson) throws IOException;
+    
     Product saveProduct(Product product);
     
     Optional<Product> getProductById(Long id);
     
     Optional<Product> getProductBySlug(String slug);
     
+    /**
+     * Lấy nhiều sản phẩm (kèm brand, category, images) trong một lần, dùng cho giỏ hàng, yêu thích, so sánh
+     * @param ids Danh sách id, hoặc null khi tra theo slug
+     * @param slugs Danh sách slug, hoặc null khi tra theo id
+     * @return Map gồm items theo đúng thứ tự yêu cầu (bỏ trùng), total và missing (các id/slug không tìm thấy)
+     */
+    Map<String, Object> getProductsByIdsOrSlugs(List<Long> ids, List<String> slugs);
+    
+    /**
+     * Bảng so sánh thông số kỹ thuật của 2-6 sản phẩm
+     * @param ids Id các sản phẩm, theo thứ tự cột
+     * @throws BadRequestException nếu số sản phẩm ngoài 2-6 hoặc các sản phẩm thuộc danh mục gốc khác nhau
+     * @return Map gồm products (bản rút gọn, theo thứ tự ids), rootCategoryId và rows: mỗi dòng một thông số
+     *         {key, labelVi, labelEn, type, values (theo thứ tự products), differs}, xếp theo sortOrder
+     *         của specificationFields ở danh mục gốc; các thông số ngoài danh sách này đứng sau, theo key
+     */
+    Map<String, Object> compareProducts(List<Long> ids);
+    
     void deleteProduct(Long id);
     
     List<Product> getProductsByCategoryId(Long categoryId);
@@ -30,8 +59,11 @@ public interface ProductService {
         String sortBy,
         Integer skip,
         Integer limit,
+        String cursor,
         Boolean isFeatured,
-        Boolean isActive
+        Boolean isActive,
+        boolean includeFacets,
+        boolean summary
     );
     
     Map<String, List<String>> getSpecificationsByCategorySlug(String categorySlug);
@@ -45,8 +77,11 @@ public interface ProductService {
         String sortBy,
         Integer skip,
         Integer limit,
+        String cursor,
         Boolean isFeatured,
-        Boolean isActive
+        Boolean isActive,
+        boolean includeFacets,
+        boolean summary
     );
     
     /**
@@ -60,7 +95,10 @@ public interface ProductService {
      * @param sortBy Sắp xếp theo
      * @param skip Bỏ qua số lượng sản phẩm
      * @param limit Giới hạn số lượng sản phẩm
+     * @param cursor Con trỏ keyset "nextCursor" của trang trước; khi có thì bỏ qua skip
      * @param isActive Chỉ lấy sản phẩm đang hoạt động
+     * @param includeFacets Trả thêm số lượng theo thương hiệu/thông số/khoảng giá ("facets")
+     * @param summary Trả về ProductSummaryDTO rút gọn thay cho entity Product đầy đủ
      * @return Danh sách sản phẩm và tổng số kết quả
      */
     Map<String, Object> searchProducts(
@@ -73,9 +111,20 @@ public interface ProductService {
         String sortBy,
         Integer skip,
         Integer limit,
-        Boolean isActive
+        String cursor,
+        Boolean isActive,
+        boolean includeFacets,
+        boolean summary
     );
     
+    /**
+     * Gợi ý tự động hoàn thành cho ô tìm kiếm theo tiền tố đang gõ
+     * @param prefix Tiền tố người dùng đã nhập
+     * @param limit Số kết quả tối đa cho mỗi loại (sản phẩm, thương hiệu, danh mục)
+     * @return Map gồm products, brands, categories, xếp theo số lượng đã bán giảm dần
+     */
+    Map<String, Object> suggestProducts(String prefix, Integer limit);
+    
     /**
      * Tạo mới sản phẩm từ ProductCreateDTO
      * @param productDTO Thông tin sản phẩm mới
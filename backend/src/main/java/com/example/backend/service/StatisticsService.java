@@ -43,6 +43,14 @@ public interface StatisticsService {
      */
     Map<String, Object> getUserStatistics(LocalDate startDate, LocalDate endDate);
     
+    /**
+     * Lấy số liệu của cache chi tiết sản phẩm
+     * Bao gồm: số phần tử, hit, miss, tỉ lệ hit, số lần loại bỏ/xóa
+     * 
+     * @return Map chứa các số liệu cache
+     */
+    Map<String, Object> getProductCacheStatistics();
+    
     /**
      * Lấy thống kê đơn hàng
      * Bao gồm: số đơn hàng theo trạng thái, đơn hàng theo phương thức thanh toán, v.v
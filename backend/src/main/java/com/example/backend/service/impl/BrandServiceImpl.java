@@ -1,30 +1,49 @@
 package com.example.backend.service.impl;
 
+import com.example.backend.dto.BrandCountDTO;
+import com.example.backend.event.CategoryChangedEvent;
+import com.example.backend.event.ProductChangedEvent;
 import com.example.backend.model.Brand;
-import com.example.backend.model.Product;
 import com.example.backend.repository.BrandRepository;
 import com.example.backend.repository.ProductRepository;
 import com.example.backend.service.BrandService;
+import com.example.backend.util.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
 
-import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Optional;
-import java.util.Set;
 
 @Service
 public class BrandServiceImpl implements BrandService {
 
     private final BrandRepository brandRepository;
     private final ProductRepository productRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final CategoryTree categoryTree;
+    
+    private final int cacheMaxSize;
+    
+    // categoryId -> thương hiệu kèm số sản phẩm của cả cây danh mục con; chỉ chứa danh mục có trong CategoryTree.
+    // Thứ tự truy cập để khi đầy thì loại bỏ danh mục lâu không dùng nhất (LRU), như ProductDetailCache
+    private final LinkedHashMap<Long, List<BrandCountDTO>> brandsByCategory = new LinkedHashMap<>(16, 0.75f, true);
+    // Tăng mỗi lần xóa cache; kết quả đọc từ database trước một lần xóa sẽ không được đưa vào cache
+    private long generation;
     
     @Autowired
-    public BrandServiceImpl(BrandRepository brandRepository, ProductRepository productRepository) {
+    public BrandServiceImpl(BrandRepository brandRepository, ProductRepository productRepository,
+                            ApplicationEventPublisher eventPublisher, CategoryTree categoryTree,
+                            @Value("${app.brand.category-cache.max-size:1000}") int cacheMaxSize) {
         this.brandRepository = brandRepository;
         this.productRepository = productRepository;
+        this.eventPublisher = eventPublisher;
+        this.categoryTree = categoryTree;
+        this.cacheMaxSize = cacheMaxSize;
     }
     
     @Override
@@ -33,8 +52,18 @@ public class BrandServiceImpl implements BrandService {
     }
     
     @Override
+    @Transactional
     public Brand saveBrand(Brand brand) {
-        return brandRepository.save(brand);
+        boolean existing = brand.getId() != null;
+        Brand savedBrand = brandRepository.save(brand);
+        if (existing) {
+            // Tên thương hiệu nằm trong chỉ mục tìm kiếm/gợi ý của từng sản phẩm
+            List<Long> productIds = productRepository.findIdsByBrandId(savedBrand.getId());
+            if (!productIds.isEmpty()) {
+                eventPublisher.publishEvent(new ProductChangedEvent(ProductChangedEvent.Type.SAVED, productIds));
+            }
+        }
+        return savedBrand;
     }
     
     @Override
@@ -50,31 +79,73 @@ public class BrandServiceImpl implements BrandService {
     @Override
     public void deleteBrand(Long id) {
         brandRepository.deleteById(id);
+        invalidateBrandsByCategory();
     }
     
     @Override
     @Transactional(readOnly = true)
-    public List<Brand> getBrandsByCategoryId(Long categoryId) {
-        // Get all products in the category
-        List<Product> productsInCategory = productRepository.findByCategoryId(categoryId);
-        
-        // Extract unique brand IDs
-        Set<Long> brandIdsSet = new HashSet<>();
-        for (Product product : productsInCategory) {
-            if (product.getBrand() != null) {
-                brandIdsSet.add(product.getBrand().getId());
+    public List<BrandCountDTO> getBrandsByCategoryId(Long categoryId) {
+        long loadGeneration;
+        synchronized (this) {
+            List<BrandCountDTO> cached = brandsByCategory.get(categoryId);
+            if (cached != null) {
+                return cached;
             }
+            loadGeneration = generation;
         }
         
-        // If no brands found, return empty list
-        if (brandIdsSet.isEmpty()) {
-            return new ArrayList<>();
-        }
-        
-        // Convert set to list for the query
-        List<Long> brandIds = new ArrayList<>(brandIdsSet);
+        // Một truy vấn GROUP BY trên toàn bộ cây danh mục con thay vì nạp từng sản phẩm
+        List<BrandCountDTO> brands = brandRepository.findWithProductCountByCategoryIdIn(categoryTree.getSubtreeIds(categoryId))
+                .stream()
+                .map(row -> new BrandCountDTO(ModelMapper.mapToBrandDTO(row.getBrand()), row.getProductCount()))
+                .toList();
         
-        // Get brands by IDs
-        return brandRepository.findAllById(brandIds);
+        // Id không có trong cây (bị dò thử, đã xóa) không được cache
+        if (categoryTree.contains(categoryId)) {
+            synchronized (this) {
+                if (generation == loadGeneration) {
+                    brandsByCategory.put(categoryId, brands);
+                    while (brandsByCategory.size() > cacheMaxSize) {
+                        brandsByCategory.remove(brandsByCategory.keySet().iterator().next());
+                    }
+                }
+            }
+        }
+        return brands;
+    }
+    
+    /**
+     * Số sản phẩm theo thương hiệu của một danh mục được cộng dồn lên mọi tổ tiên, nên chỉ danh mục cũ/mới
+     * của sản phẩm và tổ tiên của chúng bị xóa; không biết danh mục thì xóa toàn bộ
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        // Tồn kho/số lượng bán không đổi thương hiệu, danh mục hay trạng thái của sản phẩm
+        if (event.getType() == ProductChangedEvent.Type.STOCK_CHANGED) {
+            return;
+        }
+        if (event.getCategoryIds().isEmpty()) {
+            invalidateBrandsByCategory();
+            return;
+        }
+        synchronized (this) {
+            generation++;
+            for (Long categoryId : event.getCategoryIds()) {
+                brandsByCategory.remove(categoryId);
+                for (Long ancestorId : categoryTree.getAncestorIds(categoryId)) {
+                    brandsByCategory.remove(ancestorId);
+                }
+            }
+        }
+    }
+    
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCategoryChanged(CategoryChangedEvent event) {
+        invalidateBrandsByCategory();
+    }
+    
+    private synchronized void invalidateBrandsByCategory() {
+        generation++;
+        brandsByCategory.clear();
     }
-}
\ No newline at end of file
+}
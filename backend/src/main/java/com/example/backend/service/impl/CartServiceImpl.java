@@ -11,11 +11,11 @@ import com.example.backend.repository.CartItemRepository;
 import com.example.backend.repository.ProductRepository;
 import com.example.backend.repository.UserRepository;
 import com.example.backend.service.CartService;
+import com.example.backend.util.PriceCalculator;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.math.BigDecimal;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -153,11 +153,11 @@ public class CartServiceImpl implements CartService {
         cartDTO.setTotalItems(cartItems.stream().mapToInt(CartItem::getQuantity).sum());
         
         // Tính tổng tiền
-        BigDecimal totalPrice = cartItems.stream()
-                .map(CartItem::getSubtotal)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        long totalPrice = cartItems.stream()
+                .mapToLong(CartItem::getSubtotalMinorUnits)
+                .sum();
         
-        cartDTO.setTotalPrice(totalPrice);
+        cartDTO.setTotalPrice(PriceCalculator.toAmount(totalPrice));
         
         return cartDTO;
     }
@@ -0,0 +1,841 @@
+package com.example.backend.service.impl;
+
+import com.example.backend.event.ProductChangedEvent;
+import com.example.backend.repository.ProductCursor;
+import com.example.backend.repository.ProductIndexRow;
+import com.example.backend.repository.ProductRepository;
+import com.example.backend.util.PostingList;
+import com.example.backend.util.PriceCalculator;
+import com.example.backend.util.SortedOrdinals;
+import com.example.backend.util.SpecificationValues;
+import com.example.backend.util.TopK;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.RoundingMode;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Chỉ mục catalog trong bộ nhớ, tối ưu cho đọc.
+ * Sản phẩm được lưu dạng cột nguyên thủy (giá sau giảm theo đơn vị nhỏ nhất, brandId, categoryId, số lượng bán,
+ * thời điểm tạo) và mỗi chiều lọc có một BitSet riêng. Việc lọc là phép giao/hợp BitSet, chỉ các sản phẩm
+ * thuộc trang được yêu cầu mới được nạp entity từ database.
+ * Thông số kỹ thuật dùng chỉ mục ngược (specKey, giá trị chuẩn hóa) -> PostingList ordinal đã nén.
+ * Khi được yêu cầu, số lượng theo thương hiệu/thông số/khoảng giá (facet) được đếm trên cùng các BitSet đó.
+ * Mỗi danh mục giữ sẵn thứ tự sản phẩm theo ngày tạo, giá và số lượng bán; trang của một danh mục (hoặc cây danh mục,
+ * bằng cách trộn các thứ tự con) được lấy bằng cách đi dọc thứ tự đó, không cần sắp xếp.
+ * Chỉ mục được dựng lại khi ứng dụng khởi động và cập nhật dần qua ProductChangedEvent
+ */
+@Service
+@Slf4j
+public class CatalogIndex {
+
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final BitSet EMPTY = new BitSet();
+
+    // Các thứ tự được giữ sẵn cho từng danh mục; price_asc và price_desc dùng chung một thứ tự, đi theo hai chiều
+    private static final int ORDER_NEWEST = 0;
+    private static final int ORDER_PRICE = 1;
+    private static final int ORDER_BEST_SELLING = 2;
+    private static final int ORDER_COUNT = 3;
+
+    private final ProductRepository productRepository;
+    private final boolean enabled;
+    // Các mốc khoảng giá cho facet, theo đơn vị nhỏ nhất (1/100)
+    private final long[] priceBucketBounds;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    // Tuần tự hóa cả bước đọc database lẫn bước áp dụng của refresh: hai listener sau commit cho cùng sản phẩm
+    // có thể chạy đồng thời, nếu chỉ khóa bước áp dụng thì dòng đọc trước có thể ghi đè dòng đọc sau
+    private final Object refreshMutex = new Object();
+
+    // Các id thay đổi trong lúc đang dựng lại chỉ mục, sẽ được áp dụng lại sau khi dựng xong
+    private final Set<Long> pendingIds = ConcurrentHashMap.newKeySet();
+
+    private Columns columns = new Columns();
+    private volatile boolean ready;
+    private volatile boolean rebuilding;
+
+    public CatalogIndex(ProductRepository productRepository,
+                        @Value("${app.catalog.index.enabled:true}") boolean enabled,
+                        @Value("${app.catalog.facets.price-buckets:1000000,5000000,10000000,20000000,30000000,50000000}")
+                        long[] priceBuckets) {
+        this.productRepository = productRepository;
+        this.enabled = enabled;
+        this.priceBucketBounds = Arrays.stream(priceBuckets).sorted().map(bound -> bound * 100).toArray();
+    }
+
+    /**
+     * Chỉ mục đã sẵn sàng phục vụ truy vấn hay chưa. Khi chưa sẵn sàng, service dùng truy vấn database
+     */
+    public boolean isReady() {
+        return enabled && ready;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        if (!enabled) {
+            return;
+        }
+
+        rebuilding = true;
+        try {
+            long start = System.currentTimeMillis();
+            Columns fresh = new Columns();
+            for (ProductIndexRow row : productRepository.findAllIndexRows()) {
+                fresh.upsert(row);
+            }
+
+            lock.writeLock().lock();
+            try {
+                columns = fresh;
+                ready = true;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            log.info("Catalog index built with {} products in {} ms", fresh.ordinalById.size(),
+                    System.currentTimeMillis() - start);
+        } finally {
+            rebuilding = false;
+        }
+
+        if (!pendingIds.isEmpty()) {
+            Set<Long> ids = new HashSet<>(pendingIds);
+            pendingIds.removeAll(ids);
+            refresh(ids);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        if (!enabled || event.getProductIds().isEmpty()) {
+            return;
+        }
+        if (rebuilding) {
+            pendingIds.addAll(event.getProductIds());
+            return;
+        }
+        refresh(event.getProductIds());
+    }
+
+    /**
+     * Nạp lại các dòng theo id từ database: dòng còn tồn tại được cập nhật, dòng không còn thì bị xóa khỏi chỉ mục
+     */
+    private void refresh(Collection<Long> productIds) {
+        synchronized (refreshMutex) {
+            List<ProductIndexRow> rows = productRepository.findIndexRowsByIdIn(productIds);
+
+            lock.writeLock().lock();
+            try {
+                Set<Long> missing = new HashSet<>(productIds);
+                for (ProductIndexRow row : rows) {
+                    columns.upsert(row);
+                    missing.remove(row.getId());
+                }
+                for (Long id : missing) {
+                    columns.remove(id);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Lọc, sắp xếp và phân trang hoàn toàn trong bộ nhớ
+     * @return id sản phẩm của trang và tổng số kết quả, hoặc empty nếu chỉ mục chưa sẵn sàng
+     */
+    public Optional<CatalogPage> query(CatalogQuery query) {
+        if (!isReady()) {
+            return Optional.empty();
+        }
+
+        lock.readLock().lock();
+        try {
+            Selection selection = columns.select(query);
+            BitSet matches = selection.combine(Selection.NONE, null);
+            int total = matches.cardinality();
+            Facets facets = query.isIncludeFacets() ? columns.facets(selection, matches, priceBucketBounds) : null;
+            return Optional.of(new CatalogPage(columns.page(matches, query), total, facets));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Getter
+    @Builder
+    public static class CatalogQuery {
+        private final Collection<Long> categoryIds;
+        private final Collection<Long> brandIds;
+        private final Double minPrice;
+        private final Double maxPrice;
+        private final Boolean isActive;
+        private final Boolean isFeatured;
+        // Tập id ứng viên (ví dụ kết quả tìm kiếm từ khóa), null nghĩa là không giới hạn.
+        // Khi sortBy = relevance, thứ tự của danh sách chính là thứ tự kết quả
+        private final List<Long> candidateIds;
+        // specKey -> các giá trị được chấp nhận: OR trong cùng một key, AND giữa các key
+        private final Map<String, List<String>> specifications;
+        private final String sortBy;
+        private final Integer skip;
+        private final Integer limit;
+        // Con trỏ keyset; khi có thì bỏ qua skip và chỉ lấy các sản phẩm nằm sau con trỏ
+        private final ProductCursor cursor;
+        // Có đếm facet cho bộ lọc hiện tại hay không
+        private final boolean includeFacets;
+    }
+
+    @Getter
+    public static class CatalogPage {
+        private final List<Long> productIds;
+        private final int total;
+        // null nếu không yêu cầu facet
+        private final Facets facets;
+
+        public CatalogPage(List<Long> productIds, int total, Facets facets) {
+            this.productIds = productIds;
+            this.total = total;
+            this.facets = facets;
+        }
+    }
+
+    /**
+     * Số lượng sản phẩm theo từng giá trị lọc. Mỗi nhóm được đếm với mọi bộ lọc khác ngoại trừ chính nhóm đó,
+     * để giao diện biết lựa chọn thêm một giá trị sẽ cho bao nhiêu kết quả (và vô hiệu hóa giá trị bằng 0)
+     */
+    @Getter
+    public static class Facets {
+        private final Map<Long, Integer> brandCounts = new HashMap<>();
+        private final Map<String, Map<String, Integer>> specificationCounts = new HashMap<>();
+        private final List<PriceBucket> priceBuckets = new ArrayList<>();
+    }
+
+    @Getter
+    public static class PriceBucket {
+        // Giá theo đơn vị tiền tệ; null nghĩa là không giới hạn
+        private final Long min;
+        private final Long max;
+        private final int count;
+
+        public PriceBucket(Long min, Long max, int count) {
+            this.min = min;
+            this.max = max;
+            this.count = count;
+        }
+    }
+
+    /**
+     * Kết quả lọc tách theo từng nhóm điều kiện, để có thể ghép lại khi bỏ qua một nhóm (phục vụ đếm facet)
+     */
+    private static class Selection {
+        static final String NONE = "";
+        static final String BRAND = "brand";
+        static final String PRICE = "price";
+        static final String SPECIFICATION = "specification";
+
+        // Trạng thái, nổi bật, danh mục và tập ứng viên: không bao giờ bị bỏ qua khi đếm facet
+        private final BitSet base;
+        private BitSet brands;
+        private BitSet prices;
+        private final Map<String, BitSet> specifications = new HashMap<>();
+
+        Selection(BitSet base) {
+            this.base = base;
+        }
+
+        /**
+         * Giao các nhóm điều kiện, bỏ qua nhóm excluded (với SPECIFICATION là key excludedKey)
+         */
+        BitSet combine(String excluded, String excludedKey) {
+            BitSet result = (BitSet) base.clone();
+            if (brands != null && !BRAND.equals(excluded)) {
+                result.and(brands);
+            }
+            if (prices != null && !PRICE.equals(excluded)) {
+                result.and(prices);
+            }
+            for (Map.Entry<String, BitSet> entry : specifications.entrySet()) {
+                if (!(SPECIFICATION.equals(excluded) && entry.getKey().equals(excludedKey))) {
+                    result.and(entry.getValue());
+                }
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Dữ liệu dạng cột, truy cập theo ordinal. Ordinal của sản phẩm bị xóa được tái sử dụng
+     */
+    private static class Columns {
+        private long[] ids = new long[INITIAL_CAPACITY];
+        private long[] prices = new long[INITIAL_CAPACITY];
+        private long[] brandIds = new long[INITIAL_CAPACITY];
+        private long[] categoryIds = new long[INITIAL_CAPACITY];
+        private int[] quantitySold = new int[INITIAL_CAPACITY];
+        private long[] createdAt = new long[INITIAL_CAPACITY];
+        private int size;
+
+        private final Map<Long, Integer> ordinalById = new HashMap<>();
+        private final ArrayDeque<Integer> freeOrdinals = new ArrayDeque<>();
+
+        private final BitSet live = new BitSet();
+        private final BitSet active = new BitSet();
+        private final BitSet featured = new BitSet();
+        private final Map<Long, BitSet> brandBits = new HashMap<>();
+        private final Map<Long, BitSet> categoryBits = new HashMap<>();
+        private final Map<String, Map<String, PostingList>> specPostings = new HashMap<>();
+        // Các cặp (key, value) đã đánh chỉ mục của từng ordinal, để gỡ khỏi posting list khi cập nhật/xóa
+        private final Map<Integer, List<SpecTerm>> specTermsByOrdinal = new HashMap<>();
+        // categoryId -> các thứ tự theo (khóa sắp xếp, id) tăng dần, đánh số theo ORDER_*
+        private final Map<Long, SortedOrdinals[]> orderingsByCategory = new HashMap<>();
+
+        void upsert(ProductIndexRow row) {
+            Integer existing = ordinalById.get(row.getId());
+            int ordinal;
+            long previousCategoryId = 0L;
+            long[] previousKeys = null;
+            if (existing != null) {
+                ordinal = existing;
+                previousCategoryId = categoryIds[ordinal];
+                previousKeys = orderingKeys(ordinal);
+                bits(brandBits, brandIds[ordinal]).clear(ordinal);
+                bits(categoryBits, categoryIds[ordinal]).clear(ordinal);
+                unindexSpecifications(ordinal);
+            } else {
+                ordinal = allocate();
+                ordinalById.put(row.getId(), ordinal);
+            }
+
+            ids[ordinal] = row.getId();
+            prices[ordinal] = row.getEffectivePrice() != null
+                    ? row.getEffectivePrice()
+                    : PriceCalculator.effectivePrice(row.getPrice(), row.getDiscount());
+            brandIds[ordinal] = row.getBrandId() != null ? row.getBrandId() : 0L;
+            categoryIds[ordinal] = row.getCategoryId() != null ? row.getCategoryId() : 0L;
+            quantitySold[ordinal] = row.getQuantitySold() != null ? row.getQuantitySold() : 0;
+            createdAt[ordinal] = ProductCursor.toEpochMicros(row.getCreatedAt());
+
+            live.set(ordinal);
+            active.set(ordinal, Boolean.TRUE.equals(row.getIsActive()));
+            featured.set(ordinal, Boolean.TRUE.equals(row.getIsFeatured()));
+            brandBits.computeIfAbsent(brandIds[ordinal], k -> new BitSet()).set(ordinal);
+            categoryBits.computeIfAbsent(categoryIds[ordinal], k -> new BitSet()).set(ordinal);
+            indexSpecifications(ordinal, row.getSpecifications());
+
+            if (previousKeys == null) {
+                addToOrderings(ordinal);
+            } else if (previousCategoryId != categoryIds[ordinal]) {
+                removeFromOrderings(previousCategoryId, previousKeys, ids[ordinal]);
+                addToOrderings(ordinal);
+            } else {
+                // Cùng danh mục: chỉ dời vị trí trong các thứ tự có khóa thay đổi (thường là số lượng bán)
+                SortedOrdinals[] orderings = orderingsByCategory.get(categoryIds[ordinal]);
+                long[] keys = orderingKeys(ordinal);
+                for (int order = 0; order < ORDER_COUNT; order++) {
+                    if (keys[order] != previousKeys[order]) {
+                        orderings[order].move(previousKeys[order], keys[order], ids[ordinal]);
+                    }
+                }
+            }
+        }
+
+        void remove(Long productId) {
+            Integer ordinal = ordinalById.remove(productId);
+            if (ordinal == null) {
+                return;
+            }
+            live.clear(ordinal);
+            active.clear(ordinal);
+            featured.clear(ordinal);
+            bits(brandBits, brandIds[ordinal]).clear(ordinal);
+            bits(categoryBits, categoryIds[ordinal]).clear(ordinal);
+            unindexSpecifications(ordinal);
+            removeFromOrderings(categoryIds[ordinal], orderingKeys(ordinal), productId);
+            freeOrdinals.push(ordinal);
+        }
+
+        Selection select(CatalogQuery query) {
+            BitSet base = (BitSet) live.clone();
+
+            if (query.getIsActive() != null) {
+                if (query.getIsActive()) {
+                    base.and(active);
+                } else {
+                    base.andNot(active);
+                }
+            }
+            if (query.getIsFeatured() != null) {
+                if (query.getIsFeatured()) {
+                    base.and(featured);
+                } else {
+                    base.andNot(featured);
+                }
+            }
+            if (query.getCategoryIds() != null) {
+                base.and(union(categoryBits, query.getCategoryIds()));
+            }
+            if (query.getCandidateIds() != null) {
+                BitSet candidates = new BitSet();
+                for (Long id : query.getCandidateIds()) {
+                    Integer ordinal = ordinalById.get(id);
+                    if (ordinal != null) {
+                        candidates.set(ordinal);
+                    }
+                }
+                base.and(candidates);
+            }
+
+            Selection selection = new Selection(base);
+            if (query.getBrandIds() != null && !query.getBrandIds().isEmpty()) {
+                selection.brands = union(brandBits, query.getBrandIds());
+            }
+            if (query.getMinPrice() != null || query.getMaxPrice() != null) {
+                long min = query.getMinPrice() != null
+                        ? PriceCalculator.toMinorUnits(query.getMinPrice(), RoundingMode.CEILING)
+                        : Long.MIN_VALUE;
+                long max = query.getMaxPrice() != null
+                        ? PriceCalculator.toMinorUnits(query.getMaxPrice(), RoundingMode.FLOOR)
+                        : Long.MAX_VALUE;
+                // Chỉ quét giá trên các sản phẩm đã qua bộ lọc cơ bản
+                BitSet inRange = new BitSet();
+                for (int i = base.nextSetBit(0); i >= 0; i = base.nextSetBit(i + 1)) {
+                    if (prices[i] >= min && prices[i] <= max) {
+                        inRange.set(i);
+                    }
+                }
+                selection.prices = inRange;
+            }
+            if (query.getSpecifications() != null) {
+                for (Map.Entry<String, List<String>> entry : query.getSpecifications().entrySet()) {
+                    if (entry.getValue() != null && !entry.getValue().isEmpty()) {
+                        selection.specifications.put(entry.getKey(), specUnion(entry.getKey(), entry.getValue()));
+                    }
+                }
+            }
+            return selection;
+        }
+
+        Facets facets(Selection selection, BitSet matches, long[] priceBucketBounds) {
+            Facets facets = new Facets();
+
+            BitSet brandScope = selection.brands != null ? selection.combine(Selection.BRAND, null) : matches;
+            for (int i = brandScope.nextSetBit(0); i >= 0; i = brandScope.nextSetBit(i + 1)) {
+                if (brandIds[i] != 0L) {
+                    facets.getBrandCounts().merge(brandIds[i], 1, Integer::sum);
+                }
+            }
+
+            BitSet priceScope = selection.prices != null ? selection.combine(Selection.PRICE, null) : matches;
+            int[] bucketCounts = new int[priceBucketBounds.length + 1];
+            for (int i = priceScope.nextSetBit(0); i >= 0; i = priceScope.nextSetBit(i + 1)) {
+                int bucket = Arrays.binarySearch(priceBucketBounds, prices[i]);
+                bucketCounts[bucket >= 0 ? bucket + 1 : -bucket - 1]++;
+            }
+            for (int b = 0; b < bucketCounts.length; b++) {
+                Long min = b > 0 ? priceBucketBounds[b - 1] / 100 : null;
+                Long max = b < priceBucketBounds.length ? priceBucketBounds[b] / 100 : null;
+                facets.getPriceBuckets().add(new PriceBucket(min, max, bucketCounts[b]));
+            }
+
+            // Các key không bị lọc: đếm trong một lượt trên tập kết quả
+            Map<String, Map<String, Integer>> specCounts = facets.getSpecificationCounts();
+            for (int i = matches.nextSetBit(0); i >= 0; i = matches.nextSetBit(i + 1)) {
+                for (SpecTerm term : specTermsByOrdinal.getOrDefault(i, List.of())) {
+                    if (!selection.specifications.containsKey(term.key())) {
+                        specCounts.computeIfAbsent(term.key(), k -> new HashMap<>()).merge(term.value(), 1, Integer::sum);
+                    }
+                }
+            }
+            // Các key đang được lọc: đếm với mọi bộ lọc khác ngoại trừ chính key đó
+            for (String key : selection.specifications.keySet()) {
+                BitSet keyScope = selection.combine(Selection.SPECIFICATION, key);
+                Map<String, Integer> counts = specCounts.computeIfAbsent(key, k -> new HashMap<>());
+                for (int i = keyScope.nextSetBit(0); i >= 0; i = keyScope.nextSetBit(i + 1)) {
+                    for (SpecTerm term : specTermsByOrdinal.getOrDefault(i, List.of())) {
+                        if (term.key().equals(key)) {
+                            counts.merge(term.value(), 1, Integer::sum);
+                        }
+                    }
+                }
+            }
+            return facets;
+        }
+
+        List<Long> page(BitSet matches, CatalogQuery query) {
+            Integer skip = query.getSkip();
+            Integer limit = query.getLimit();
+            if (limit != null && limit <= 0 && (skip != null || query.getCursor() != null)) {
+                return new ArrayList<>();
+            }
+
+            String sortBy = ProductCursor.normalizeSort(query.getSortBy());
+            ProductCursor cursor = query.getCursor();
+            boolean byRank = ProductSearchIndex.RELEVANCE.equals(query.getSortBy()) && query.getCandidateIds() != null;
+            int matchCount = matches.cardinality();
+            // Không có kết quả hoặc skip vượt quá số kết quả: trang rỗng, không đi dọc hay sắp xếp gì
+            if (matchCount == 0 || (cursor == null && skip != null && limit != null && skip >= matchCount)) {
+                return new ArrayList<>();
+            }
+
+            if (!byRank) {
+                // Đi dọc các thứ tự giữ sẵn của danh mục khi phần lớn sản phẩm trong phạm vi khớp bộ lọc:
+                // chi phí tỉ lệ với số phần tử cần đi qua thay vì số sản phẩm khớp
+                List<SortedOrdinals> orderings = orderings(query.getCategoryIds(), orderOf(sortBy));
+                long scope = 0;
+                for (SortedOrdinals ordering : orderings) {
+                    scope += ordering.size();
+                }
+                int from = 0;
+                int count = Integer.MAX_VALUE;
+                if (cursor != null && limit != null) {
+                    count = limit;
+                } else if (skip != null && limit != null) {
+                    from = Math.max(0, skip);
+                    count = limit;
+                }
+                long wanted = Math.min((long) from + count, matchCount);
+                if (wanted * scope <= (long) matchCount * matchCount) {
+                    // Ước lượng có thể sai khi các sản phẩm khớp dồn về cuối thứ tự: đi quá 2 * matchCount phần tử
+                    // thì dừng và chuyển sang sắp xếp tập khớp
+                    List<Long> walked = walk(orderings, matches, ProductCursor.PRICE_ASC.equals(sortBy), cursor,
+                            from, count, 2L * matchCount);
+                    if (walked != null) {
+                        return walked;
+                    }
+                }
+            }
+
+            Map<Integer, Integer> rankByOrdinal = byRank ? rankByOrdinal(query.getCandidateIds()) : null;
+
+            // Tính khóa sắp xếp một lần cho mỗi sản phẩm khớp, sau đó chỉ so sánh số nguyên
+            int[] ordinals = new int[matches.cardinality()];
+            long[] keys = new long[ordinals.length];
+            long[] tieBreaks = new long[ordinals.length];
+            int count = 0;
+            for (int i = matches.nextSetBit(0); i >= 0; i = matches.nextSetBit(i + 1)) {
+                // Seek: bỏ các sản phẩm không nằm sau con trỏ trước khi sắp xếp
+                if (cursor == null || isAfter(i, sortBy, cursor)) {
+                    ordinals[count] = i;
+                    keys[count] = byRank ? rankByOrdinal.getOrDefault(i, Integer.MAX_VALUE) : sortKey(i, sortBy);
+                    tieBreaks[count] = ids[i];
+                    count++;
+                }
+            }
+
+            int from = 0;
+            int to = count;
+            if (cursor != null && limit != null) {
+                to = Math.min(limit, to);
+            } else if (skip != null && limit != null) {
+                from = Math.min(Math.max(0, skip), to);
+                to = (int) Math.min((long) from + limit, to);
+            }
+
+            // Chỉ cần thứ tự của skip + limit phần tử đầu tiên: chọn top-K bằng heap thay vì sắp xếp toàn bộ.
+            // Cùng thứ tự với ProductSpecifications.orderBy: khóa sắp xếp chính, sau đó id cùng chiều
+            boolean ascending = byRank || ProductCursor.PRICE_ASC.equals(sortBy);
+            int[] order = TopK.select(keys, tieBreaks, count, to, ascending);
+
+            List<Long> pageIds = new ArrayList<>(to - from);
+            for (int i = from; i < to; i++) {
+                pageIds.add(ids[ordinals[order[i]]]);
+            }
+            return pageIds;
+        }
+
+        /**
+         * Trộn các thứ tự (mỗi thứ tự đã sắp xếp sẵn) bằng heap theo phần tử đầu của từng thứ tự,
+         * chỉ lấy các ordinal nằm trong matches: bỏ qua from phần tử khớp đầu tiên, lấy tối đa count phần tử
+         * @return null nếu phải đi qua hơn maxSteps phần tử mà chưa đủ trang
+         */
+        private List<Long> walk(List<SortedOrdinals> orderings, BitSet matches, boolean ascending,
+                                ProductCursor cursor, int from, int count, long maxSteps) {
+            PriorityQueue<OrderingWalker> walkers = new PriorityQueue<>(Math.max(1, orderings.size()));
+            for (SortedOrdinals ordering : orderings) {
+                int position;
+                if (cursor == null) {
+                    position = ascending ? 0 : ordering.size() - 1;
+                } else if (ascending) {
+                    position = ordering.upperBound(cursor.getSortKey(), cursor.getId());
+                } else {
+                    position = ordering.lowerBound(cursor.getSortKey(), cursor.getId()) - 1;
+                }
+                OrderingWalker walker = new OrderingWalker(ordering, position, ascending);
+                if (walker.hasCurrent()) {
+                    walkers.add(walker);
+                }
+            }
+
+            List<Long> pageIds = new ArrayList<>();
+            int skipped = 0;
+            long steps = 0;
+            while (!walkers.isEmpty() && pageIds.size() < count) {
+                if (++steps > maxSteps) {
+                    return null;
+                }
+                OrderingWalker walker = walkers.poll();
+                int ordinal = walker.ordinal();
+                if (matches.get(ordinal)) {
+                    if (skipped < from) {
+                        skipped++;
+                    } else {
+                        pageIds.add(ids[ordinal]);
+                    }
+                }
+                if (walker.advance()) {
+                    walkers.add(walker);
+                }
+            }
+            return pageIds;
+        }
+
+        /**
+         * Thứ tự loại order của các danh mục, null nghĩa là mọi danh mục
+         */
+        private List<SortedOrdinals> orderings(Collection<Long> categories, int order) {
+            Collection<Long> keys = categories != null ? new LinkedHashSet<>(categories) : orderingsByCategory.keySet();
+            List<SortedOrdinals> result = new ArrayList<>();
+            for (Long categoryId : keys) {
+                SortedOrdinals[] orderings = categoryId != null ? orderingsByCategory.get(categoryId) : null;
+                if (orderings != null) {
+                    result.add(orderings[order]);
+                }
+            }
+            return result;
+        }
+
+        private static int orderOf(String sortBy) {
+            switch (sortBy) {
+                case ProductCursor.PRICE_ASC:
+                case ProductCursor.PRICE_DESC:
+                    return ORDER_PRICE;
+                case ProductCursor.BEST_SELLING:
+                    return ORDER_BEST_SELLING;
+                case ProductCursor.NEWEST:
+                default:
+                    return ORDER_NEWEST;
+            }
+        }
+
+        /**
+         * Khóa của ordinal trong từng thứ tự, đánh số theo ORDER_*
+         */
+        private long[] orderingKeys(int ordinal) {
+            long[] keys = new long[ORDER_COUNT];
+            keys[ORDER_NEWEST] = createdAt[ordinal];
+            keys[ORDER_PRICE] = prices[ordinal];
+            keys[ORDER_BEST_SELLING] = quantitySold[ordinal];
+            return keys;
+        }
+
+        private void addToOrderings(int ordinal) {
+            SortedOrdinals[] orderings = orderingsByCategory.computeIfAbsent(categoryIds[ordinal], k -> {
+                SortedOrdinals[] created = new SortedOrdinals[ORDER_COUNT];
+                for (int order = 0; order < ORDER_COUNT; order++) {
+                    created[order] = new SortedOrdinals();
+                }
+                return created;
+            });
+            long[] keys = orderingKeys(ordinal);
+            for (int order = 0; order < ORDER_COUNT; order++) {
+                orderings[order].add(ordinal, keys[order], ids[ordinal]);
+            }
+        }
+
+        private void removeFromOrderings(long categoryId, long[] keys, long productId) {
+            SortedOrdinals[] orderings = orderingsByCategory.get(categoryId);
+            if (orderings == null) {
+                return;
+            }
+            for (int order = 0; order < ORDER_COUNT; order++) {
+                orderings[order].remove(keys[order], productId);
+            }
+            if (orderings[ORDER_NEWEST].isEmpty()) {
+                orderingsByCategory.remove(categoryId);
+            }
+        }
+
+        /**
+         * Vị trí của từng ordinal trong danh sách ứng viên (đã xếp hạng sẵn, ví dụ theo độ liên quan)
+         */
+        private Map<Integer, Integer> rankByOrdinal(List<Long> rankedIds) {
+            Map<Integer, Integer> rankByOrdinal = new HashMap<>();
+            for (int rank = 0; rank < rankedIds.size(); rank++) {
+                Integer ordinal = ordinalById.get(rankedIds.get(rank));
+                if (ordinal != null) {
+                    rankByOrdinal.putIfAbsent(ordinal, rank);
+                }
+            }
+            return rankByOrdinal;
+        }
+
+        private boolean isAfter(int ordinal, String sortBy, ProductCursor cursor) {
+            int result = compare(sortKey(ordinal, sortBy), cursor.getSortKey(), ids[ordinal], cursor.getId());
+            return cursor.isAscending() ? result > 0 : result < 0;
+        }
+
+        /**
+         * Khóa sắp xếp dạng long, cùng định nghĩa với ProductCursor.sortKeyOf
+         */
+        private long sortKey(int ordinal, String sortBy) {
+            switch (sortBy) {
+                case ProductCursor.PRICE_ASC:
+                case ProductCursor.PRICE_DESC:
+                    return prices[ordinal];
+                case ProductCursor.BEST_SELLING:
+                    return quantitySold[ordinal];
+                case ProductCursor.NEWEST:
+                default:
+                    return createdAt[ordinal];
+            }
+        }
+
+        private static int compare(long key1, long key2, long id1, long id2) {
+            int result = Long.compare(key1, key2);
+            return result != 0 ? result : Long.compare(id1, id2);
+        }
+
+        private void indexSpecifications(int ordinal, Map<String, Object> specifications) {
+            if (specifications == null || specifications.isEmpty()) {
+                return;
+            }
+            List<SpecTerm> terms = new ArrayList<>();
+            for (Map.Entry<String, Object> entry : specifications.entrySet()) {
+                Map<String, PostingList> postings = specPostings.computeIfAbsent(entry.getKey(), k -> new HashMap<>());
+                for (String value : SpecificationValues.valuesOf(entry.getValue())) {
+                    if (postings.computeIfAbsent(value, v -> new PostingList()).add(ordinal)) {
+                        terms.add(new SpecTerm(entry.getKey(), value));
+                    }
+                }
+            }
+            if (!terms.isEmpty()) {
+                specTermsByOrdinal.put(ordinal, terms);
+            }
+        }
+
+        private void unindexSpecifications(int ordinal) {
+            List<SpecTerm> terms = specTermsByOrdinal.remove(ordinal);
+            if (terms == null) {
+                return;
+            }
+            for (SpecTerm term : terms) {
+                Map<String, PostingList> postings = specPostings.get(term.key());
+                PostingList posting = postings.get(term.value());
+                posting.remove(ordinal);
+                if (posting.isEmpty()) {
+                    postings.remove(term.value());
+                    if (postings.isEmpty()) {
+                        specPostings.remove(term.key());
+                    }
+                }
+            }
+        }
+
+        /**
+         * Hợp các posting list của một key theo danh sách giá trị được chấp nhận
+         */
+        private BitSet specUnion(String key, List<String> values) {
+            BitSet result = new BitSet();
+            Map<String, PostingList> postings = specPostings.get(key);
+            if (postings == null) {
+                return result;
+            }
+            for (String value : values) {
+                PostingList posting = value != null ? postings.get(SpecificationValues.normalize(value)) : null;
+                if (posting != null) {
+                    posting.orInto(result);
+                }
+            }
+            return result;
+        }
+
+        private int allocate() {
+            if (!freeOrdinals.isEmpty()) {
+                return freeOrdinals.pop();
+            }
+            if (size == ids.length) {
+                int capacity = ids.length * 2;
+                ids = Arrays.copyOf(ids, capacity);
+                prices = Arrays.copyOf(prices, capacity);
+                brandIds = Arrays.copyOf(brandIds, capacity);
+                categoryIds = Arrays.copyOf(categoryIds, capacity);
+                quantitySold = Arrays.copyOf(quantitySold, capacity);
+                createdAt = Arrays.copyOf(createdAt, capacity);
+            }
+            return size++;
+        }
+
+        private static BitSet bits(Map<Long, BitSet> index, long key) {
+            return index.getOrDefault(key, EMPTY);
+        }
+
+        private static BitSet union(Map<Long, BitSet> index, Collection<Long> keys) {
+            BitSet result = new BitSet();
+            for (Long key : keys) {
+                if (key != null) {
+                    result.or(bits(index, key));
+                }
+            }
+            return result;
+        }
+    }
+
+    private record SpecTerm(String key, String value) {
+    }
+
+    /**
+     * Vị trí hiện tại khi đi dọc một thứ tự; so sánh theo phần tử hiện tại để trộn nhiều thứ tự bằng heap
+     */
+    private static final class OrderingWalker implements Comparable<OrderingWalker> {
+        private final SortedOrdinals ordering;
+        private final boolean ascending;
+        private int position;
+
+        OrderingWalker(SortedOrdinals ordering, int position, boolean ascending) {
+            this.ordering = ordering;
+            this.position = position;
+            this.ascending = ascending;
+        }
+
+        boolean hasCurrent() {
+            return position >= 0 && position < ordering.size();
+        }
+
+        int ordinal() {
+            return ordering.ordinalAt(position);
+        }
+
+        boolean advance() {
+            position += ascending ? 1 : -1;
+            return hasCurrent();
+        }
+
+        @Override
+        public int compareTo(OrderingWalker other) {
+            int result = Long.compare(ordering.keyAt(position), other.ordering.keyAt(other.position));
+            if (result == 0) {
+                result = Long.compare(ordering.tieBreakAt(position), other.ordering.tieBreakAt(other.position));
+            }
+            return ascending ? result : -result;
+        }
+    }
+}
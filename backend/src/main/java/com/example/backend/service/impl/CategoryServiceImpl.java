@@ -1,11 +1,15 @@
 package com.example.backend.service.impl;
 
+import com.example.backend.event.CategoryChangedEvent;
+import com.example.backend.event.ProductChangedEvent;
 import com.example.backend.model.Category;
 import com.example.backend.model.Product;
 import com.example.backend.repository.CategoryRepository;
 import com.example.backend.repository.ProductRepository;
+import com.example.backend.repository.ProductSpecifications;
 import com.example.backend.service.CategoryService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -14,8 +18,10 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -23,11 +29,16 @@ public class CategoryServiceImpl implements CategoryService {
 
     private final CategoryRepository categoryRepository;
     private final ProductRepository productRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final CategoryTree categoryTree;
     
     @Autowired
-    public CategoryServiceImpl(CategoryRepository categoryRepository, ProductRepository productRepository) {
+    public CategoryServiceImpl(CategoryRepository categoryRepository, ProductRepository productRepository,
+                               ApplicationEventPublisher eventPublisher, CategoryTree categoryTree) {
         this.categoryRepository = categoryRepository;
         this.productRepository = productRepository;
+        this.eventPublisher = eventPublisher;
+        this.categoryTree = categoryTree;
     }
     
     @Override
@@ -37,7 +48,9 @@ public class CategoryServiceImpl implements CategoryService {
     
     @Override
     public Category saveCategory(Category category) {
-        return categoryRepository.save(category);
+        Category savedCategory = categoryRepository.save(category);
+        eventPublisher.publishEvent(new CategoryChangedEvent(savedCategory.getId()));
+        return savedCategory;
     }
     
     @Override
@@ -53,6 +66,7 @@ public class CategoryServiceImpl implements CategoryService {
     @Override
     public void deleteCategory(Long id) {
         categoryRepository.deleteById(id);
+        eventPublisher.publishEvent(new CategoryChangedEvent(id));
     }
     
     @Override
@@ -65,15 +79,9 @@ public class CategoryServiceImpl implements CategoryService {
         }
         
         Category category = categoryOpt.get();
-        List<Category> ancestors = new ArrayList<>();
         
-        // Find all ancestors by traversing up the tree
-        Category current = category;
-        while (current.getParent() != null) {
-            Category parent = current.getParent();
-            ancestors.add(0, parent); // Add at the beginning to maintain order
-            current = parent;
-        }
+        // Lấy tổ tiên từ cây danh mục trong bộ nhớ (thứ tự từ gốc xuống), nạp entity bằng một truy vấn
+        List<Category> ancestors = findAllByIdInOrder(categoryTree.getAncestorIds(categoryId));
         
         // Find all descendants (children categories)
         List<Category> children = categoryRepository.findByParent(category);
@@ -93,12 +101,19 @@ public class CategoryServiceImpl implements CategoryService {
             return null;
         }
         
-        Category current = category;
-        while (current.getParent() != null) {
-            current = current.getParent();
+        Long rootId = category.getId() != null ? categoryTree.getRootId(category.getId()) : null;
+        if (rootId == null) {
+            // Danh mục chưa có trong cây (chưa lưu): duyệt theo quan hệ cha
+            Category current = category;
+            while (current.getParent() != null) {
+                current = current.getParent();
+            }
+            return current;
         }
-        
-        return current;
+        if (rootId.equals(category.getId())) {
+            return category;
+        }
+        return categoryRepository.findById(rootId).orElse(category);
     }
     
     @Override
@@ -169,25 +184,20 @@ public class CategoryServiceImpl implements CategoryService {
         }
         
         // Lưu category với thông số kỹ thuật mới
-        return categoryRepository.save(updatedCategory);
+        Category savedCategory = categoryRepository.save(updatedCategory);
+        eventPublisher.publishEvent(new CategoryChangedEvent(savedCategory.getId()));
+        return savedCategory;
     }
     
     @Override
     @Transactional(readOnly = true)
     public boolean isSpecificationKeyUsedInProducts(Long categoryId, String key) {
-        // Lấy tất cả category liên quan (category hiện tại và tất cả category con)
-        List<Category> relatedCategories = getAllSubcategories(categoryId);
-        relatedCategories.add(categoryRepository.findById(categoryId).orElse(null));
-        
-        // Kiểm tra tất cả products thuộc các category này
-        for (Category category : relatedCategories) {
-            if (category == null) continue;
-            
-            List<Product> products = productRepository.findByCategory(category);
-            for (Product product : products) {
-                if (product.getSpecifications() != null && product.getSpecifications().containsKey(key)) {
-                    return true;
-                }
+        // Lấy tất cả products thuộc category hiện tại và các category con bằng một truy vấn
+        List<Product> products = productRepository.findAll(
+                ProductSpecifications.inCategories(categoryTree.getSubtreeIds(categoryId)));
+        for (Product product : products) {
+            if (product.getSpecifications() != null && product.getSpecifications().containsKey(key)) {
+                return true;
             }
         }
         
@@ -197,62 +207,56 @@ public class CategoryServiceImpl implements CategoryService {
     @Override
     @Transactional
     public void updateSpecificationKeyInProducts(Long categoryId, String oldKey, String newKey) {
-        // Lấy tất cả category liên quan (category hiện tại và tất cả category con)
-        List<Category> relatedCategories = getAllSubcategories(categoryId);
-        relatedCategories.add(categoryRepository.findById(categoryId).orElse(null));
+        // Lấy tất cả products thuộc category hiện tại và các category con bằng một truy vấn
+        List<Product> products = productRepository.findAll(
+                ProductSpecifications.inCategories(categoryTree.getSubtreeIds(categoryId)));
         
         // Cập nhật key trong tất cả products thuộc các category này
-        for (Category category : relatedCategories) {
-            if (category == null) continue;
-            
-            List<Product> products = productRepository.findByCategory(category);
-            for (Product product : products) {
-                if (product.getSpecifications() != null && product.getSpecifications().containsKey(oldKey)) {
-                    // Lấy giá trị của key cũ
-                    Object value = product.getSpecifications().get(oldKey);
-                    
-                    // Tạo map mới để tránh ConcurrentModificationException
-                    Map<String, Object> updatedSpecs = new HashMap<>(product.getSpecifications());
-                    
-                    // Xóa key cũ và thêm key mới với cùng giá trị
-                    updatedSpecs.remove(oldKey);
-                    updatedSpecs.put(newKey, value);
-                    
-                    // Cập nhật specifications của product
-                    product.setSpecifications(updatedSpecs);
-                    productRepository.save(product);
-                }
+        List<Long> updatedProductIds = new ArrayList<>();
+        Set<Long> updatedCategoryIds = new HashSet<>();
+        for (Product product : products) {
+            if (product.getSpecifications() != null && product.getSpecifications().containsKey(oldKey)) {
+                // Lấy giá trị của key cũ
+                Object value = product.getSpecifications().get(oldKey);
+                
+                // Tạo map mới để tránh ConcurrentModificationException
+                Map<String, Object> updatedSpecs = new HashMap<>(product.getSpecifications());
+                
+                // Xóa key cũ và thêm key mới với cùng giá trị
+                updatedSpecs.remove(oldKey);
+                updatedSpecs.put(newKey, value);
+                
+                // Cập nhật specifications của product
+                product.setSpecifications(updatedSpecs);
+                productRepository.save(product);
+                updatedProductIds.add(product.getId());
+                updatedCategoryIds.add(product.getCategory() != null ? product.getCategory().getId() : null);
             }
         }
+        
+        // Cập nhật chỉ mục thông số kỹ thuật của các sản phẩm bị đổi key
+        if (!updatedProductIds.isEmpty()) {
+            eventPublisher.publishEvent(new ProductChangedEvent(ProductChangedEvent.Type.SAVED, updatedProductIds,
+                    updatedCategoryIds));
+        }
     }
     
     @Override
     @Transactional(readOnly = true)
     public List<Category> getAllSubcategories(Long categoryId) {
-        List<Category> allSubcategories = new ArrayList<>();
-        Optional<Category> categoryOpt = categoryRepository.findById(categoryId);
-        
-        if (categoryOpt.isPresent()) {
-            collectSubcategories(categoryOpt.get(), allSubcategories, new HashSet<>());
-        }
-        
-        return allSubcategories;
+        // Danh sách con cháu lấy từ cây danh mục trong bộ nhớ, nạp entity bằng một truy vấn
+        return findAllByIdInOrder(categoryTree.getDescendantIds(categoryId));
     }
     
-    // Helper method để thu thập tất cả category con (đệ quy)
-    private void collectSubcategories(Category category, List<Category> result, Set<Long> visited) {
-        // Tránh vòng lặp vô hạn trong trường hợp có lỗi dữ liệu
-        if (visited.contains(category.getId())) {
-            return;
-        }
-        
-        visited.add(category.getId());
-        List<Category> directSubcategories = categoryRepository.findByParent(category);
-        
-        result.addAll(directSubcategories);
-        
-        for (Category subCategory : directSubcategories) {
-            collectSubcategories(subCategory, result, visited);
+    private List<Category> findAllByIdInOrder(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
         }
+        Map<Long, Category> categoriesById = categoryRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(Category::getId, Function.identity()));
+        return ids.stream()
+                .map(categoriesById::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toCollection(ArrayList::new));
     }
-}
\ No newline at end of file
+}
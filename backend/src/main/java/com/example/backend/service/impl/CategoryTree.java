@@ -0,0 +1,172 @@
+package com.example.backend.service.impl;
+
+import com.example.backend.event.CategoryChangedEvent;
+import com.example.backend.repository.CategoryRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Ảnh chụp bất biến của cây danh mục trong bộ nhớ.
+ * Dựng bằng một truy vấn (id, parentId, slug) và tính sẵn danh sách tổ tiên, con cháu, gốc cho mọi danh mục,
+ * nên các câu hỏi "cây con", "tổ tiên", "gốc" không cần truy vấn database hay duyệt proxy lazy.
+ * Ảnh chụp được thay mới toàn bộ khi có CategoryChangedEvent; người đọc luôn thấy một phiên bản nhất quán
+ */
+@Service
+@Slf4j
+public class CategoryTree {
+
+    private final CategoryRepository categoryRepository;
+
+    private volatile Snapshot snapshot;
+
+    public CategoryTree(CategoryRepository categoryRepository) {
+        this.categoryRepository = categoryRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        List<Object[]> links = categoryRepository.findAllParentLinks();
+        snapshot = new Snapshot(links);
+        log.debug("Category tree rebuilt with {} categories", links.size());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCategoryChanged(CategoryChangedEvent event) {
+        rebuild();
+    }
+
+    /**
+     * Danh mục có trong ảnh chụp hiện tại của cây hay không
+     */
+    public boolean contains(Long categoryId) {
+        return current().subtrees.containsKey(categoryId);
+    }
+
+    /**
+     * Danh mục và toàn bộ con cháu (duyệt theo chiều sâu, danh mục hiện tại đứng đầu).
+     * Với id chưa có trong cây, trả về chính id đó
+     */
+    public List<Long> getSubtreeIds(Long categoryId) {
+        List<Long> subtree = current().subtrees.get(categoryId);
+        return subtree != null ? subtree : List.of(categoryId);
+    }
+
+    /**
+     * Toàn bộ con cháu, không gồm chính danh mục
+     */
+    public List<Long> getDescendantIds(Long categoryId) {
+        List<Long> subtree = current().subtrees.get(categoryId);
+        return subtree != null ? subtree.subList(1, subtree.size()) : List.of();
+    }
+
+    /**
+     * Các danh mục tổ tiên theo thứ tự từ gốc xuống cha trực tiếp
+     */
+    public List<Long> getAncestorIds(Long categoryId) {
+        return current().ancestors.getOrDefault(categoryId, List.of());
+    }
+
+    /**
+     * Id danh mục theo slug, hoặc null nếu không tồn tại
+     */
+    public Long getIdBySlug(String slug) {
+        return current().idBySlug.get(slug);
+    }
+
+    public List<Long> getChildIds(Long categoryId) {
+        return current().children.getOrDefault(categoryId, List.of());
+    }
+
+    /**
+     * Id danh mục gốc, hoặc null nếu danh mục chưa có trong cây
+     */
+    public Long getRootId(Long categoryId) {
+        if (!contains(categoryId)) {
+            return null;
+        }
+        List<Long> ancestors = getAncestorIds(categoryId);
+        return ancestors.isEmpty() ? categoryId : ancestors.get(0);
+    }
+
+    private Snapshot current() {
+        Snapshot current = snapshot;
+        if (current == null) {
+            synchronized (this) {
+                if (snapshot == null) {
+                    rebuild();
+                }
+                current = snapshot;
+            }
+        }
+        return current;
+    }
+
+    private static class Snapshot {
+        private final Map<Long, List<Long>> children = new HashMap<>();
+        private final Map<Long, List<Long>> ancestors = new HashMap<>();
+        private final Map<Long, List<Long>> subtrees = new HashMap<>();
+        private final Map<String, Long> idBySlug = new HashMap<>();
+
+        Snapshot(List<Object[]> links) {
+            Map<Long, Long> parentById = new HashMap<>();
+            for (Object[] link : links) {
+                Long id = (Long) link[0];
+                Long parentId = (Long) link[1];
+                parentById.put(id, parentId);
+                if (link[2] != null) {
+                    idBySlug.put((String) link[2], id);
+                }
+                if (parentId != null) {
+                    children.computeIfAbsent(parentId, k -> new ArrayList<>()).add(id);
+                }
+            }
+            children.replaceAll((id, childIds) -> {
+                Collections.sort(childIds);
+                return List.copyOf(childIds);
+            });
+
+            for (Long id : parentById.keySet()) {
+                ancestors.put(id, collectAncestors(id, parentById));
+
+                List<Long> subtree = new ArrayList<>();
+                collectSubtree(id, subtree, new HashSet<>());
+                subtrees.put(id, List.copyOf(subtree));
+            }
+        }
+
+        private static List<Long> collectAncestors(Long id, Map<Long, Long> parentById) {
+            List<Long> result = new ArrayList<>();
+            Set<Long> visited = new HashSet<>();
+            visited.add(id);
+            Long parentId = parentById.get(id);
+            // Dừng nếu gặp vòng lặp do lỗi dữ liệu
+            while (parentId != null && visited.add(parentId)) {
+                result.add(parentId);
+                parentId = parentById.get(parentId);
+            }
+            Collections.reverse(result);
+            return List.copyOf(result);
+        }
+
+        private void collectSubtree(Long id, List<Long> result, Set<Long> visited) {
+            if (!visited.add(id)) {
+                return;
+            }
+            result.add(id);
+            for (Long childId : children.getOrDefault(id, List.of())) {
+                collectSubtree(childId, result, visited);
+            }
+        }
+    }
+}
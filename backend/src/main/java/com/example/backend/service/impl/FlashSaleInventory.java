@@ -0,0 +1,296 @@
+package com.example.backend.service.impl;
+
+import com.example.backend.dto.FlashSaleStatusDTO;
+import com.example.backend.event.ProductChangedEvent;
+import com.example.backend.exception.BadRequestException;
+import com.example.backend.exception.InsufficientStockException;
+import com.example.backend.exception.InsufficientStockException.StockShortage;
+import com.example.backend.exception.ResourceNotFoundException;
+import com.example.backend.repository.ProductRepository;
+import com.example.backend.repository.ProductStockRow;
+import com.example.backend.util.StripedTokens;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Chế độ flash sale: tồn kho của một vài sản phẩm được nạp vào bộ đếm phân ô trong bộ nhớ (StripedTokens).
+ * Đơn hàng lấy suất bằng CAS thay vì khóa dòng sản phẩm trên database và bị từ chối ngay khi hết suất;
+ * số lượng đã bán của các đơn đã commit được cộng dồn rồi ghi xuống products theo lô mỗi flush-interval-ms.
+ *
+ * Lưu ý:
+ * - Bộ đếm nằm trong một tiến trình nên chỉ dùng khi backend chạy một instance
+ * - Trong thời gian sale, bộ đếm là nguồn đúng cho việc đặt hàng: muốn sửa tồn kho phải dừng sale rồi bật lại.
+ *   Nên bật trước giờ mở bán để không có đơn nào đang trừ kho trên database lúc nạp
+ * - Số lượng chưa kịp ghi (tối đa một chu kỳ) được ghi khi ứng dụng tắt bình thường, nhưng mất nếu tiến trình bị kill
+ * - Đơn đã lấy suất giữ khóa đọc của sale cho tới khi transaction kết thúc; dừng sale lấy khóa ghi nên chờ các đơn đó
+ *   commit/rollback rồi mới ghi xuống database, tránh để đơn đi đường database đọc tồn kho chưa trừ
+ */
+@Slf4j
+@Service
+public class FlashSaleInventory {
+
+    private final ProductRepository productRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final boolean enabled;
+    private final int stripes;
+    private final long stopTimeoutMs;
+
+    // productId -> sale đang chạy
+    private final Map<Long, Sale> sales = new ConcurrentHashMap<>();
+    // productId -> số lượng đã bán (đơn đã commit) chưa ghi xuống database
+    private final Map<Long, LongAdder> pending = new ConcurrentHashMap<>();
+
+    public FlashSaleInventory(ProductRepository productRepository,
+                              TransactionTemplate transactionTemplate,
+                              ApplicationEventPublisher eventPublisher,
+                              @Value("${app.flash-sale.enabled:false}") boolean enabled,
+                              @Value("${app.flash-sale.stripes:16}") int stripes,
+                              @Value("${app.flash-sale.stop-timeout-ms:10000}") long stopTimeoutMs) {
+        this.productRepository = productRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.eventPublisher = eventPublisher;
+        this.enabled = enabled;
+        this.stripes = Math.max(1, stripes);
+        this.stopTimeoutMs = stopTimeoutMs;
+    }
+
+    /**
+     * Bắt đầu flash sale cho sản phẩm: nạp tồn kho hiện tại vào bộ đếm
+     */
+    public synchronized FlashSaleStatusDTO start(Long productId) {
+        if (!enabled) {
+            throw new BadRequestException("Chế độ flash sale đang tắt (app.flash-sale.enabled)");
+        }
+        if (sales.containsKey(productId)) {
+            throw new BadRequestException("Sản phẩm đang trong flash sale: " + productId);
+        }
+        // Ghi nốt số lượng của lần sale trước để tồn kho đọc được là số mới nhất
+        flush();
+        ProductStockRow row = productRepository.findStockRowsByIdIn(List.of(productId)).stream()
+                .findFirst()
+                .orElseThrow(() -> new ResourceNotFoundException("Sản phẩm", "id", productId));
+        long stock = row.getQuantityInStock() != null ? row.getQuantityInStock() : 0;
+        Sale sale = new Sale(productId, row.getSku(), row.getName(), stock, LocalDateTime.now(),
+                new StripedTokens(stock, stripes), new ReentrantReadWriteLock());
+        sales.put(productId, sale);
+        log.info("Bắt đầu flash sale sản phẩm {} với {} suất", productId, stock);
+        return toStatus(sale);
+    }
+
+    /**
+     * Dừng flash sale và ghi ngay số lượng đã bán xuống database. Đơn của sản phẩm quay về trừ kho trên database.
+     * Chờ (tối đa stop-timeout-ms) các đơn đã lấy suất nhưng chưa commit/rollback; trong lúc chờ, đơn mới của sản phẩm
+     * cũng chờ và sau khi dừng xong sẽ trừ kho trên database với tồn kho đã được ghi đủ
+     * @throws BadRequestException nếu hết thời gian chờ; sale vẫn tiếp tục chạy
+     */
+    public synchronized FlashSaleStatusDTO stop(Long productId) {
+        Sale sale = sales.get(productId);
+        if (sale == null) {
+            throw new BadRequestException("Sản phẩm không trong flash sale: " + productId);
+        }
+        ReentrantReadWriteLock.WriteLock gate = sale.gate().writeLock();
+        try {
+            if (!gate.tryLock(stopTimeoutMs, TimeUnit.MILLISECONDS)) {
+                throw new BadRequestException("Còn đơn hàng đang giữ suất flash sale của sản phẩm " + productId
+                        + ", hãy thử dừng lại sau");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BadRequestException("Bị ngắt khi chờ dừng flash sale sản phẩm " + productId);
+        }
+        try {
+            sales.remove(productId);
+            flush();
+        } finally {
+            gate.unlock();
+        }
+        log.info("Dừng flash sale sản phẩm {}, còn {} suất", productId, sale.tokens().available());
+        return toStatus(sale);
+    }
+
+    public List<FlashSaleStatusDTO> getActiveSales() {
+        return sales.values().stream()
+                .sorted(Comparator.comparing(Sale::productId))
+                .map(this::toStatus)
+                .toList();
+    }
+
+    /**
+     * Lấy suất cho các sản phẩm đang sale trong quantities (tất cả hoặc không).
+     * Phải gọi trong transaction của đơn hàng: commit thì số lượng được đưa vào hàng đợi ghi xuống database,
+     * rollback thì suất được trả lại
+     * @return id các sản phẩm đã lấy suất (không cần trừ kho trên database nữa)
+     * @throws InsufficientStockException nếu có sản phẩm đang sale không đủ suất
+     */
+    public Set<Long> claim(Map<Long, Integer> quantities) {
+        if (sales.isEmpty()) {
+            return Set.of();
+        }
+        Map<Sale, Integer> taken = new LinkedHashMap<>();
+        List<StockShortage> shortages = new ArrayList<>();
+        for (Map.Entry<Long, Integer> entry : quantities.entrySet()) {
+            Sale sale = sales.get(entry.getKey());
+            if (sale == null) {
+                continue;
+            }
+            // Chờ nếu sale đang dừng; dừng xong thì sản phẩm trừ kho trên database như bình thường
+            sale.gate().readLock().lock();
+            if (sales.get(entry.getKey()) != sale) {
+                sale.gate().readLock().unlock();
+                continue;
+            }
+            if (sale.tokens().tryTake(entry.getValue())) {
+                taken.put(sale, entry.getValue());
+            } else {
+                sale.gate().readLock().unlock();
+                shortages.add(new StockShortage(sale.productId(), sale.sku(), sale.name(), entry.getValue(),
+                        (int) Math.min(Integer.MAX_VALUE, sale.tokens().available())));
+            }
+        }
+        if (!shortages.isEmpty()) {
+            settle(taken, false);
+            throw new InsufficientStockException(shortages);
+        }
+        if (taken.isEmpty()) {
+            return Set.of();
+        }
+
+        try {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    settle(taken, status == STATUS_COMMITTED);
+                }
+            });
+        } catch (RuntimeException e) {
+            settle(taken, false);
+            throw e;
+        }
+        Set<Long> claimed = new HashSet<>();
+        taken.keySet().forEach(sale -> claimed.add(sale.productId()));
+        return claimed;
+    }
+
+    /**
+     * Trả suất cho các sản phẩm đang sale sau khi transaction hoàn kho (hủy/trả hàng) commit.
+     * Tồn kho trên database vẫn được cộng lại như bình thường
+     */
+    public void returnAfterCommit(Map<Long, Integer> quantities) {
+        if (sales.isEmpty()) {
+            return;
+        }
+        Map<Sale, Integer> returned = new LinkedHashMap<>();
+        quantities.forEach((productId, quantity) -> {
+            Sale sale = sales.get(productId);
+            if (sale != null) {
+                returned.put(sale, quantity);
+            }
+        });
+        if (returned.isEmpty()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                returned.forEach((sale, quantity) -> sale.tokens().put(quantity));
+            }
+        });
+    }
+
+    /**
+     * Ghi số lượng đã bán xuống database trong một câu lệnh cho mọi sản phẩm. Lỗi thì cộng lại để ghi ở lần sau.
+     * Cùng monitor với start/stop nên lịch chạy định kỳ, stop và lúc tắt ứng dụng không ghi chồng lên nhau
+     */
+    @Scheduled(fixedDelayString = "${app.flash-sale.flush-interval-ms:200}")
+    public synchronized void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        TreeMap<Long, Integer> batch = new TreeMap<>();
+        pending.forEach((productId, adder) -> {
+            long quantity = adder.sumThenReset();
+            if (quantity > 0) {
+                batch.put(productId, (int) quantity);
+            }
+        });
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                productRepository.deductStock(batch.keySet().toArray(new Long[0]), batch.values().toArray(new Integer[0]));
+                eventPublisher.publishEvent(ProductChangedEvent.stockChanged(batch.keySet()));
+            });
+        } catch (RuntimeException e) {
+            batch.forEach((productId, quantity) -> pendingOf(productId).add(quantity));
+            log.error("Không ghi được số lượng flash sale xuống database, sẽ thử lại: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Kết thúc các suất đã lấy: commit thì đưa vào hàng đợi ghi xuống database, ngược lại trả suất.
+     * Nhả khóa đọc sau cùng để stop() chỉ ghi xuống database khi số lượng đã nằm trong pending
+     */
+    private void settle(Map<Sale, Integer> taken, boolean committed) {
+        taken.forEach((sale, quantity) -> {
+            try {
+                if (committed) {
+                    pendingOf(sale.productId()).add(quantity);
+                } else {
+                    sale.tokens().put(quantity);
+                }
+            } finally {
+                sale.gate().readLock().unlock();
+            }
+        });
+    }
+
+    @EventListener(ContextClosedEvent.class)
+    public void onShutdown() {
+        flush();
+    }
+
+    private LongAdder pendingOf(Long productId) {
+        return pending.computeIfAbsent(productId, id -> new LongAdder());
+    }
+
+    private FlashSaleStatusDTO toStatus(Sale sale) {
+        LongAdder adder = pending.get(sale.productId());
+        return FlashSaleStatusDTO.builder()
+                .productId(sale.productId())
+                .sku(sale.sku())
+                .name(sale.name())
+                .initialStock(sale.initialStock())
+                .remaining(sale.tokens().available())
+                .pendingWriteBack(adder != null ? adder.sum() : 0L)
+                .startedAt(sale.startedAt())
+                .build();
+    }
+
+    private record Sale(Long productId, String sku, String name, long initialStock, LocalDateTime startedAt,
+                        StripedTokens tokens, ReentrantReadWriteLock gate) {
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.backend.service.impl;
+
+import com.example.backend.exception.InsufficientStockException;
+import com.example.backend.exception.InsufficientStockException.StockShortage;
+import com.example.backend.model.Product;
+import com.example.backend.repository.ProductRepository;
+import com.example.backend.repository.ProductStockRow;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.Hibernate;
+import org.hibernate.Session;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Giữ (trừ) và hoàn tồn kho bằng câu UPDATE có điều kiện trên database thay vì đọc - kiểm tra - ghi entity:
+ * kiểm tra và trừ kho là một thao tác nguyên tử nên hai đơn hàng đồng thời không thể bán quá số lượng còn lại.
+ * Mọi dòng của một đơn hàng đi chung một câu lệnh. Phải chạy trong transaction của đơn hàng:
+ * khi thiếu hàng, ngoại lệ làm rollback cả các dòng đã trừ (tất cả hoặc không).
+ * Sản phẩm đang flash sale lấy suất từ bộ đếm trong bộ nhớ (FlashSaleInventory) thay vì trừ trên database
+ */
+@Service
+@RequiredArgsConstructor
+public class InventoryReservationService {
+
+    private final ProductRepository productRepository;
+    private final FlashSaleInventory flashSaleInventory;
+    private final EntityManager entityManager;
+
+    /**
+     * Trừ tồn kho và cộng số lượng bán cho mọi sản phẩm
+     * @param quantities productId -> số lượng (đã cộng dồn nếu một sản phẩm xuất hiện nhiều lần)
+     * @throws InsufficientStockException nếu có sản phẩm không đủ hàng, kèm số lượng còn lại của từng SKU
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void reserve(Map<Long, Integer> quantities) {
+        if (quantities.isEmpty()) {
+            return;
+        }
+        // Sắp xếp theo id: cùng thứ tự khóa dòng ở mọi giao dịch
+        TreeMap<Long, Integer> sorted = new TreeMap<>(quantities);
+        // Sản phẩm flash sale lấy suất trước, không chạm database; nếu phần còn lại thiếu hàng thì rollback trả suất
+        sorted.keySet().removeAll(flashSaleInventory.claim(sorted));
+        if (sorted.isEmpty()) {
+            return;
+        }
+        List<ProductStockRow> reserved = productRepository.reserveStock(
+                sorted.keySet().toArray(new Long[0]), sorted.values().toArray(new Integer[0]));
+        if (reserved.size() == sorted.size()) {
+            syncManagedProducts(reserved);
+            return;
+        }
+
+        Set<Long> failedIds = new HashSet<>(sorted.keySet());
+        reserved.forEach(row -> failedIds.remove(row.getId()));
+        // Các dòng thiếu hàng vẫn đang bị khóa bởi giao dịch này nên số lượng đọc được là số hiện tại
+        Map<Long, ProductStockRow> rows = productRepository.findStockRowsByIdIn(failedIds).stream()
+                .collect(Collectors.toMap(ProductStockRow::getId, Function.identity()));
+        List<StockShortage> shortages = new ArrayList<>();
+        for (Long productId : failedIds) {
+            ProductStockRow row = rows.get(productId);
+            shortages.add(new StockShortage(productId,
+                    row != null ? row.getSku() : null,
+                    row != null ? row.getName() : null,
+                    sorted.get(productId),
+                    row != null && row.getQuantityInStock() != null ? row.getQuantityInStock() : 0));
+        }
+        shortages.sort((a, b) -> Long.compare(a.productId(), b.productId()));
+        throw new InsufficientStockException(shortages);
+    }
+
+    /**
+     * Hoàn lại tồn kho và trừ số lượng bán (hủy hoặc trả hàng)
+     * @param quantities productId -> số lượng hoàn lại
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void release(Map<Long, Integer> quantities) {
+        if (quantities.isEmpty()) {
+            return;
+        }
+        TreeMap<Long, Integer> sorted = new TreeMap<>(quantities);
+        flashSaleInventory.returnAfterCommit(sorted);
+        syncManagedProducts(productRepository.releaseStock(
+                sorted.keySet().toArray(new Long[0]), sorted.values().toArray(new Integer[0])));
+    }
+
+    /**
+     * Câu UPDATE native không đi qua persistence context: entity Product đã nạp trong giao dịch (ví dụ qua JOIN FETCH
+     * của giỏ hàng) vẫn giữ tồn kho cũ, và một lần flush sau đó vì thay đổi khác sẽ ghi đè tồn kho cũ xuống database.
+     * Gán giá trị mới rồi lấy làm ảnh chụp gốc của Hibernate (bật rồi tắt read-only), nên entity không bị coi là
+     * thay đổi. Native query đã tự flush trước khi chạy nên không có thay đổi nào đang chờ bị gộp mất.
+     * Sản phẩm chưa nạp trong giao dịch thì bỏ qua (getReference không truy vấn database)
+     */
+    private void syncManagedProducts(List<ProductStockRow> rows) {
+        Session session = entityManager.unwrap(Session.class);
+        for (ProductStockRow row : rows) {
+            Product product = entityManager.getReference(Product.class, row.getId());
+            if (Hibernate.isInitialized(product)) {
+                session.setReadOnly(product, true);
+                product.setQuantityInStock(row.getQuantityInStock());
+                product.setQuantitySold(row.getQuantitySold());
+                session.setReadOnly(product, false);
+            }
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.example.backend.service.impl;
+
+import com.example.backend.dto.CreateOrderDTO;
+import com.example.backend.dto.OrderResponseDTO;
+import com.example.backend.exception.BadRequestException;
+import com.example.backend.exception.ConflictException;
+import com.example.backend.service.OrderService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Đặt hàng idempotent theo header Idempotency-Key của client: lần gửi lại (retry sau timeout) cùng khóa và cùng nội dung
+ * trả về đơn hàng đã tạo thay vì chạy lại createOrder (trừ kho, tạo đơn, xóa giỏ hàng lần nữa).
+ * Mỗi khóa chỉ lưu băm SHA-256 của request và id/mã đơn hàng (response của POST /api/orders chỉ gồm mã đơn hàng,
+ * không cần giữ cả OrderResponseDTO cho hàng trăm nghìn khóa), trong bộ nhớ, hết hạn sau ttl-hours
+ * (giữ theo thứ tự tạo nên phần tử hết hạn luôn nằm đầu danh sách). Lần gửi lại chỉ là một lần tra map, không mở transaction.
+ * Request trùng khóa đến khi lần đầu còn đang chạy sẽ chờ kết quả của lần đầu tối đa wait-ms, quá thời gian thì nhận 409
+ * "vẫn đang xử lý"; lần đầu lỗi thì khóa được giải phóng để client thử lại. Khóa chỉ có hiệu lực trong một instance và mất khi khởi động lại
+ */
+@Service
+public class OrderIdempotencyService {
+
+    public static final int MAX_KEY_LENGTH = 255;
+
+    private final OrderService orderService;
+    private final ObjectMapper objectMapper;
+    private final long ttlNanos;
+    private final long waitMs;
+
+    // userId:khóa -> phần tử, theo thứ tự tạo
+    private final LinkedHashMap<String, Entry> entries;
+
+    public OrderIdempotencyService(OrderService orderService,
+                                   ObjectMapper objectMapper,
+                                   @Value("${app.order.idempotency.max-size:100000}") int maxSize,
+                                   @Value("${app.order.idempotency.ttl-hours:24}") long ttlHours,
+                                   @Value("${app.order.idempotency.wait-ms:5000}") long waitMs) {
+        this.orderService = orderService;
+        this.objectMapper = objectMapper;
+        this.ttlNanos = TimeUnit.HOURS.toNanos(ttlHours);
+        this.waitMs = waitMs;
+        this.entries = new LinkedHashMap<>(16, 0.75f, false) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                // Quá giới hạn thì bỏ khóa cũ nhất, trừ khi nó còn đang xử lý
+                return size() > maxSize && eldest.getValue().result().isDone();
+            }
+        };
+    }
+
+    /**
+     * Tạo đơn hàng, hoặc trả về đơn đã tạo trước đó với cùng khóa
+     * @throws BadRequestException nếu khóa không hợp lệ hoặc đã dùng cho một request có nội dung khác
+     * @throws ConflictException nếu request đầu tiên với cùng khóa vẫn chưa xong sau wait-ms
+     */
+    public Outcome createOrder(Long userId, String idempotencyKey, CreateOrderDTO createOrderDTO) {
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_KEY_LENGTH) {
+            throw new BadRequestException("Idempotency-Key phải có từ 1 đến " + MAX_KEY_LENGTH + " ký tự");
+        }
+        String key = userId + ":" + idempotencyKey;
+        byte[] requestHash = hash(createOrderDTO);
+        Entry entry = new Entry(requestHash, new CompletableFuture<>(), System.nanoTime() + ttlNanos);
+        Entry existing;
+        synchronized (this) {
+            purgeExpired();
+            existing = entries.putIfAbsent(key, entry);
+        }
+
+        if (existing != null) {
+            if (!MessageDigest.isEqual(existing.requestHash(), requestHash)) {
+                throw new BadRequestException("Idempotency-Key đã được dùng cho một yêu cầu đặt hàng khác");
+            }
+            OrderRef order = await(existing.result());
+            return new Outcome(order.id(), order.orderNumber(), true);
+        }
+
+        try {
+            OrderResponseDTO order = orderService.createOrder(userId, createOrderDTO);
+            entry.result().complete(new OrderRef(order.getId(), order.getOrderNumber()));
+            return new Outcome(order.getId(), order.getOrderNumber(), false);
+        } catch (Throwable e) {
+            // Mọi lỗi (kể cả Error) đều phải hoàn tất future, nếu không request trùng sẽ chờ mãi
+            synchronized (this) {
+                entries.remove(key, entry);
+            }
+            entry.result().completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    @Scheduled(fixedRate = 600000) // Mỗi 10 phút
+    public synchronized void purgeExpired() {
+        long now = System.nanoTime();
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            Entry entry = iterator.next();
+            if (entry.expiresAt() - now > 0) {
+                break;
+            }
+            iterator.remove();
+        }
+    }
+
+    private byte[] hash(CreateOrderDTO createOrderDTO) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(objectMapper.writeValueAsBytes(createOrderDTO));
+        } catch (NoSuchAlgorithmException | JsonProcessingException e) {
+            throw new IllegalStateException("Không tính được mã băm của yêu cầu đặt hàng", e);
+        }
+    }
+
+    private OrderRef await(CompletableFuture<OrderRef> result) {
+        try {
+            return result.get(waitMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new ConflictException("Yêu cầu đặt hàng với Idempotency-Key này vẫn đang được xử lý, hãy thử lại sau");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ConflictException("Yêu cầu đặt hàng với Idempotency-Key này vẫn đang được xử lý, hãy thử lại sau");
+        } catch (ExecutionException e) {
+            // Lần đầu lỗi: trả cùng lỗi cho request trùng đang chờ
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * @param replayed true nếu đơn hàng đã được tạo bởi một request trước đó với cùng khóa
+     */
+    public record Outcome(Long orderId, String orderNumber, boolean replayed) {
+    }
+
+    private record OrderRef(Long id, String orderNumber) {
+    }
+
+    private record Entry(byte[] requestHash, CompletableFuture<OrderRef> result, long expiresAt) {
+    }
+}
@@ -1,17 +1,25 @@
 package com.example.backend.service.impl;
 
 import com.example.backend.dto.*;
+import com.example.backend.event.ProductChangedEvent;
 import com.example.backend.exception.ResourceNotFoundException;
 import com.example.backend.model.*;
 import com.example.backend.repository.*;
 import com.example.backend.service.OrderService;
+import com.example.backend.util.OrderNumberGenerator;
+import com.example.backend.util.PriceCalculator;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
@@ -22,7 +30,9 @@ public class OrderServiceImpl implements OrderService {
     private final CartItemRepository cartItemRepository;
     private final UserRepository userRepository;
     private final UserAddressRepository addressRepository;
-    private final ProductRepository productRepository;
+    private final InventoryReservationService inventoryReservationService;
+    private final OrderNumberGenerator orderNumberGenerator;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Override
     @Transactional
@@ -44,6 +54,7 @@ public class OrderServiceImpl implements OrderService {
 
         // Tạo đơn hàng
         Order order = new Order();
+        order.setOrderNumber(orderNumberGenerator.next());
         order.setUser(user);
         order.setShippingAddress(shippingAddress);
         order.setStatus(OrderStatus.PENDING);
@@ -57,18 +68,20 @@ public class OrderServiceImpl implements OrderService {
             order.setPaymentStatus(PaymentStatus.PENDING);
         }
 
+        // Giữ hàng cho mọi dòng bằng một câu UPDATE có điều kiện: dòng nào thiếu hàng thì không dòng nào bị trừ
+        Map<Long, Integer> quantities = new HashMap<>();
+        for (CartItem cartItem : cartItems) {
+            quantities.merge(cartItem.getProduct().getId(), cartItem.getQuantity(), Integer::sum);
+        }
+        inventoryReservationService.reserve(quantities);
+
         List<OrderItem> orderItems = new ArrayList<>();
-        BigDecimal totalAmount = BigDecimal.ZERO;
+        long totalAmount = 0L;
 
         // Tạo các mục đơn hàng từ giỏ hàng
         for (CartItem cartItem : cartItems) {
             Product product = cartItem.getProduct();
             
-            // Kiểm tra số lượng tồn kho
-            if (product.getQuantityInStock() < cartItem.getQuantity()) {
-                throw new IllegalArgumentException("Sản phẩm " + product.getName() + " không đủ số lượng trong kho");
-            }
-            
             OrderItem orderItem = new OrderItem();
             orderItem.setOrder(order);
             orderItem.setProduct(product);
@@ -79,37 +92,32 @@ public class OrderServiceImpl implements OrderService {
             orderItem.setStatus(OrderItemStatus.PENDING);
             
             // Tính thành tiền cho mỗi sản phẩm (đã áp dụng giảm giá)
-            BigDecimal discountMultiplier = BigDecimal.ONE.subtract(
-                    new BigDecimal(product.getDiscount().toString()).divide(new BigDecimal("100"))
-            );
-            BigDecimal subtotal = product.getPrice().multiply(discountMultiplier).multiply(new BigDecimal(cartItem.getQuantity()));
-            orderItem.setSubtotal(subtotal);
+            long subtotal = PriceCalculator.subtotal(PriceCalculator.effectivePrice(product), cartItem.getQuantity());
+            orderItem.setSubtotal(PriceCalculator.toAmount(subtotal));
             
             orderItems.add(orderItem);
-            totalAmount = totalAmount.add(subtotal);
-            
-            // Cập nhật số lượng tồn kho và số lượng đã bán
-            product.setQuantityInStock(product.getQuantityInStock() - cartItem.getQuantity());
-            product.setQuantitySold(product.getQuantitySold() + cartItem.getQuantity());
-            productRepository.save(product);
+            totalAmount += subtotal;
         }
 
-        order.setTotalAmount(totalAmount);
+        order.setTotalAmount(PriceCalculator.toAmount(totalAmount));
         order.setItems(orderItems);
         
-        // Lưu đơn hàng vào cơ sở dữ liệu
-        Order savedOrder = orderRepository.save(order);
-        
-        // Xóa các sản phẩm đã đặt hàng khỏi giỏ hàng
-        cartItemRepository.deleteAll(cartItems);
-        
-        // Xử lý thanh toán online nếu cần
+        // Xử lý thanh toán online nếu cần. Trạng thái cuối được đặt trước khi lưu để đơn hàng chỉ được ghi một lần
         if (createOrderDTO.getPaymentMethod() != PaymentMethod.COD) {
+            order.addInitialStatus();
             // Với mọi phương thức thanh toán, luôn cập nhật trạng thái thành công
-            savedOrder.updatePaymentStatus(PaymentStatus.PAID, "PAYMENT_SUCCESS_" + System.currentTimeMillis());
-            savedOrder.updateStatus(OrderStatus.CONFIRMED, "Đơn hàng đã được xác nhận sau khi thanh toán thành công");
-            savedOrder = orderRepository.save(savedOrder);
+            order.updatePaymentStatus(PaymentStatus.PAID, "PAYMENT_SUCCESS_" + System.currentTimeMillis());
+            order.updateStatus(OrderStatus.CONFIRMED, "Đơn hàng đã được xác nhận sau khi thanh toán thành công");
         }
+        
+        // Lưu đơn hàng vào cơ sở dữ liệu. Id lấy từ sequence nên đơn hàng, các mục và lịch sử trạng thái
+        // được insert theo lô khi flush
+        Order savedOrder = orderRepository.save(order);
+        
+        // Xóa các sản phẩm đã đặt hàng khỏi giỏ hàng bằng một câu DELETE
+        cartItemRepository.deleteAllByIdInBatch(cartItems.stream().map(CartItem::getId).toList());
+        
+        publishStockChanged(orderItems);
 
         // Chuyển đổi đơn hàng thành DTO và trả về
         OrderResponseDTO response = convertToOrderResponseDTO(savedOrder);
@@ -165,12 +173,8 @@ public class OrderServiceImpl implements OrderService {
         }
         
         // Hoàn trả số lượng sản phẩm vào kho
-        for (OrderItem item : order.getItems()) {
-            Product product = item.getProduct();
-            product.setQuantityInStock(product.getQuantityInStock() + item.getQuantity());
-            product.setQuantitySold(product.getQuantitySold() - item.getQuantity());
-            productRepository.save(product);
-        }
+        inventoryReservationService.release(quantitiesByProduct(order.getItems()));
+        publishStockChanged(order.getItems());
         
         // Nếu đã thanh toán, cập nhật thành trạng thái hoàn tiền
         if (order.getPaymentStatus() == PaymentStatus.PAID) {
@@ -205,12 +209,8 @@ public class OrderServiceImpl implements OrderService {
         }
         
         // Hoàn trả số lượng sản phẩm vào kho
-        for (OrderItem item : order.getItems()) {
-            Product product = item.getProduct();
-            product.setQuantityInStock(product.getQuantityInStock() + item.getQuantity());
-            product.setQuantitySold(product.getQuantitySold() - item.getQuantity());
-            productRepository.save(product);
-        }
+        inventoryReservationService.release(quantitiesByProduct(order.getItems()));
+        publishStockChanged(order.getItems());
         
         // Nếu đã thanh toán, cập nhật thành trạng thái hoàn tiền
         if (order.getPaymentStatus() == PaymentStatus.PAID) {
@@ -269,17 +269,16 @@ public class OrderServiceImpl implements OrderService {
             }
         } else if (status == OrderStatus.FULLY_RETURNED) {
             // Khi chuyển sang trạng thái trả hàng toàn bộ, cập nhật tất cả các mục đơn hàng không bị hủy sang trạng thái RETURNED
+            List<OrderItem> returnedItems = new ArrayList<>();
             for (OrderItem item : order.getItems()) {
                 if (item.getStatus() != OrderItemStatus.CANCELED && item.getStatus() == OrderItemStatus.DELIVERED) {
                     item.updateStatus(OrderItemStatus.RETURNED);
-                    
-                    // Hoàn trả số lượng sản phẩm vào kho
-                    Product product = item.getProduct();
-                    product.setQuantityInStock(product.getQuantityInStock() + item.getQuantity());
-                    product.setQuantitySold(product.getQuantitySold() - item.getQuantity());
-                    productRepository.save(product);
+                    returnedItems.add(item);
                 }
             }
+            // Hoàn trả số lượng sản phẩm vào kho
+            inventoryReservationService.release(quantitiesByProduct(returnedItems));
+            publishStockChanged(order.getItems());
             
             // Nếu đã thanh toán, cập nhật thành trạng thái hoàn tiền
             if (order.getPaymentStatus() == PaymentStatus.PAID) {
@@ -287,17 +286,16 @@ public class OrderServiceImpl implements OrderService {
             }
         } else if (status == OrderStatus.CANCELED) {
             // Hủy tất cả các mục đơn hàng chưa bị hủy
+            List<OrderItem> canceledItems = new ArrayList<>();
             for (OrderItem item : order.getItems()) {
                 if (item.getStatus() != OrderItemStatus.CANCELED) {
                     item.updateStatus(OrderItemStatus.CANCELED);
-                    
-                    // Hoàn trả số lượng sản phẩm vào kho
-                    Product product = item.getProduct();
-                    product.setQuantityInStock(product.getQuantityInStock() + item.getQuantity());
-                    product.setQuantitySold(product.getQuantitySold() - item.getQuantity());
-                    productRepository.save(product);
+                    canceledItems.add(item);
                 }
             }
+            // Hoàn trả số lượng sản phẩm vào kho
+            inventoryReservationService.release(quantitiesByProduct(canceledItems));
+            publishStockChanged(order.getItems());
             
             // Nếu đã thanh toán, cập nhật thành trạng thái hoàn tiền
             if (order.getPaymentStatus() == PaymentStatus.PAID) {
@@ -391,9 +389,8 @@ public class OrderServiceImpl implements OrderService {
         if (status == OrderItemStatus.RETURNED) {
             // Hoàn trả số lượng sản phẩm vào kho
             Product product = orderItem.getProduct();
-            product.setQuantityInStock(product.getQuantityInStock() + orderItem.getQuantity());
-            product.setQuantitySold(product.getQuantitySold() - orderItem.getQuantity());
-            productRepository.save(product);
+            inventoryReservationService.release(quantitiesByProduct(List.of(orderItem)));
+            eventPublisher.publishEvent(ProductChangedEvent.stockChanged(Set.of(product.getId())));
             
             // Kiểm tra xem tất cả các mục không bị hủy đã được trả hàng chưa
             boolean allNonCanceledItemsReturned = order.getItems().stream()
@@ -413,9 +410,8 @@ public class OrderServiceImpl implements OrderService {
         } else if (status == OrderItemStatus.CANCELED) {
             // Hoàn trả số lượng sản phẩm vào kho cho mục đã hủy
             Product product = orderItem.getProduct();
-            product.setQuantityInStock(product.getQuantityInStock() + orderItem.getQuantity());
-            product.setQuantitySold(product.getQuantitySold() - orderItem.getQuantity());
-            productRepository.save(product);
+            inventoryReservationService.release(quantitiesByProduct(List.of(orderItem)));
+            eventPublisher.publishEvent(ProductChangedEvent.stockChanged(Set.of(product.getId())));
             
             // Kiểm tra xem tất cả các mục đã bị hủy chưa
             boolean allCanceled = order.getItems().stream()
@@ -538,6 +534,30 @@ public class OrderServiceImpl implements OrderService {
         }
     }
     
+    /**
+     * Thông báo tồn kho/số lượng bán của các sản phẩm trong đơn đã thay đổi
+     */
+    private void publishStockChanged(List<OrderItem> items) {
+        Set<Long> productIds = new HashSet<>();
+        for (OrderItem item : items) {
+            productIds.add(item.getProduct().getId());
+        }
+        if (!productIds.isEmpty()) {
+            eventPublisher.publishEvent(ProductChangedEvent.stockChanged(productIds));
+        }
+    }
+    
+    /**
+     * Số lượng cộng dồn theo sản phẩm của các mục đơn hàng, dùng để hoàn kho trong một câu lệnh
+     */
+    private static Map<Long, Integer> quantitiesByProduct(Collection<OrderItem> items) {
+        Map<Long, Integer> quantities = new HashMap<>();
+        for (OrderItem item : items) {
+            quantities.merge(item.getProduct().getId(), item.getQuantity(), Integer::sum);
+        }
+        return quantities;
+    }
+    
     /**
      * Chuyển đổi từ entity Order sang DTO
      */
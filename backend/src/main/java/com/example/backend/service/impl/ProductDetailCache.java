@@ -0,0 +1,250 @@
+package com.example.backend.service.impl;
+
+import com.example.backend.event.CategoryChangedEvent;
+import com.example.backend.event.ProductChangedEvent;
+import com.example.backend.model.Product;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Cache đọc-xuyên (read-through) cho trang chi tiết sản phẩm, tra theo id và theo slug, từng sản phẩm hoặc theo lô
+ * (các khóa chưa có trong cache được nạp bằng một truy vấn).
+ * Giá trị là entity Product đã nạp sẵn brand, category, images (không còn quan hệ lazy), nên có thể trả thẳng cho Jackson.
+ * Giới hạn số phần tử (loại bỏ phần tử lâu không dùng nhất - LRU) và thời gian sống (TTL).
+ * Bị xóa chính xác theo id khi có ProductChangedEvent (tạo/sửa/xóa, tồn kho, số lượng bán),
+ * xóa toàn bộ khi danh mục thay đổi. Giá trị trong cache chỉ được đọc, không được sửa
+ */
+@Service
+public class ProductDetailCache {
+
+    private final int maxSize;
+    private final long ttlNanos;
+
+    // id -> phần tử, thứ tự truy cập để loại bỏ LRU
+    private final LinkedHashMap<Long, Entry> entries;
+    private final Map<String, Long> idsBySlug = new HashMap<>();
+    // Tăng mỗi lần xóa; giá trị đọc từ database trước một lần xóa sẽ không được đưa vào cache
+    private long generation;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    public ProductDetailCache(@Value("${app.product.detail-cache.max-size:1000}") int maxSize,
+                              @Value("${app.product.detail-cache.ttl-seconds:300}") long ttlSeconds) {
+        this.maxSize = maxSize;
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    public Optional<Product> getById(Long id, Supplier<Optional<Product>> loader) {
+        if (id == null) {
+            return Optional.empty();
+        }
+        long loadGeneration;
+        synchronized (this) {
+            Product cached = lookup(id);
+            if (cached != null) {
+                hits.increment();
+                return Optional.of(cached);
+            }
+            loadGeneration = generation;
+        }
+        misses.increment();
+        return load(loader, loadGeneration);
+    }
+
+    public Optional<Product> getBySlug(String slug, Supplier<Optional<Product>> loader) {
+        if (slug == null) {
+            return Optional.empty();
+        }
+        long loadGeneration;
+        synchronized (this) {
+            Long id = idsBySlug.get(slug);
+            Product cached = id != null ? lookup(id) : null;
+            if (cached != null) {
+                hits.increment();
+                return Optional.of(cached);
+            }
+            loadGeneration = generation;
+        }
+        misses.increment();
+        return load(loader, loadGeneration);
+    }
+
+    /**
+     * Các sản phẩm có trong cache lấy từ cache, các id còn lại nạp một lần bằng loader
+     * @return các sản phẩm tìm thấy, không theo thứ tự
+     */
+    public List<Product> getAllById(Collection<Long> ids, Function<List<Long>, List<Product>> loader) {
+        List<Product> found = new ArrayList<>();
+        List<Long> missing = new ArrayList<>();
+        long loadGeneration;
+        synchronized (this) {
+            for (Long id : ids) {
+                Product cached = lookup(id);
+                if (cached != null) {
+                    found.add(cached);
+                } else {
+                    missing.add(id);
+                }
+            }
+            loadGeneration = generation;
+        }
+        return loadAll(found, missing, loader, loadGeneration);
+    }
+
+    /**
+     * Như getAllById nhưng tra theo slug
+     */
+    public List<Product> getAllBySlug(Collection<String> slugs, Function<List<String>, List<Product>> loader) {
+        List<Product> found = new ArrayList<>();
+        List<String> missing = new ArrayList<>();
+        long loadGeneration;
+        synchronized (this) {
+            for (String slug : slugs) {
+                Long id = idsBySlug.get(slug);
+                Product cached = id != null ? lookup(id) : null;
+                if (cached != null) {
+                    found.add(cached);
+                } else {
+                    missing.add(slug);
+                }
+            }
+            loadGeneration = generation;
+        }
+        return loadAll(found, missing, loader, loadGeneration);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        synchronized (this) {
+            generation++;
+            for (Long id : event.getProductIds()) {
+                if (remove(id)) {
+                    invalidations.increment();
+                }
+            }
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCategoryChanged(CategoryChangedEvent event) {
+        // Entity trong cache chứa cả danh mục của sản phẩm
+        synchronized (this) {
+            generation++;
+            invalidations.add(entries.size());
+            entries.clear();
+            idsBySlug.clear();
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        long requests = hitCount + missCount;
+        Map<String, Object> stats = new LinkedHashMap<>();
+        synchronized (this) {
+            stats.put("size", entries.size());
+        }
+        stats.put("maxSize", maxSize);
+        stats.put("ttlSeconds", TimeUnit.NANOSECONDS.toSeconds(ttlNanos));
+        stats.put("hits", hitCount);
+        stats.put("misses", missCount);
+        stats.put("hitRate", requests > 0 ? (double) hitCount / requests : 0.0);
+        stats.put("evictions", evictions.sum());
+        stats.put("invalidations", invalidations.sum());
+        return stats;
+    }
+
+    private Optional<Product> load(Supplier<Optional<Product>> loader, long loadGeneration) {
+        Optional<Product> loaded = loader.get();
+        loaded.ifPresent(product -> {
+            synchronized (this) {
+                if (generation == loadGeneration && product.getId() != null) {
+                    put(product);
+                }
+            }
+        });
+        return loaded;
+    }
+
+    private <K> List<Product> loadAll(List<Product> found, List<K> missing, Function<List<K>, List<Product>> loader,
+                                      long loadGeneration) {
+        hits.add(found.size());
+        misses.add(missing.size());
+        if (missing.isEmpty()) {
+            return found;
+        }
+        List<Product> loaded = loader.apply(missing);
+        synchronized (this) {
+            if (generation == loadGeneration) {
+                for (Product product : loaded) {
+                    if (product.getId() != null) {
+                        put(product);
+                    }
+                }
+            }
+        }
+        found.addAll(loaded);
+        return found;
+    }
+
+    /**
+     * Phần tử còn hạn, hoặc null (phần tử hết hạn bị xóa luôn)
+     */
+    private Product lookup(Long id) {
+        Entry entry = entries.get(id);
+        if (entry == null) {
+            return null;
+        }
+        if (System.nanoTime() - entry.loadedAt() > ttlNanos) {
+            remove(id);
+            evictions.increment();
+            return null;
+        }
+        return entry.product();
+    }
+
+    private void put(Product product) {
+        remove(product.getId());
+        entries.put(product.getId(), new Entry(product, System.nanoTime()));
+        if (product.getSlug() != null) {
+            idsBySlug.put(product.getSlug(), product.getId());
+        }
+        while (entries.size() > maxSize) {
+            Long eldest = entries.keySet().iterator().next();
+            remove(eldest);
+            evictions.increment();
+        }
+    }
+
+    private boolean remove(Long id) {
+        Entry entry = entries.remove(id);
+        if (entry == null) {
+            return false;
+        }
+        String slug = entry.product().getSlug();
+        if (slug != null && id.equals(idsBySlug.get(slug))) {
+            idsBySlug.remove(slug);
+        }
+        return true;
+    }
+
+    private record Entry(Product product, long loadedAt) {
+    }
+}
@@ -0,0 +1,319 @@
+package com.example.backend.service.impl;
+
+import com.example.backend.event.ProductChangedEvent;
+import com.example.backend.repository.ProductRepository;
+import com.example.backend.repository.ProductSearchRow;
+import com.example.backend.util.SearchTextAnalyzer;
+import com.example.backend.util.TrigramIndex;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Chỉ mục ngược toàn văn trong bộ nhớ cho tên và mô tả sản phẩm, thay cho LIKE '%từ khóa%'.
+ * Văn bản được chuẩn hóa bởi SearchTextAnalyzer (bỏ dấu tiếng Việt, tách mã model), kết quả xếp hạng bằng BM25
+ * với tên sản phẩm và thương hiệu có trọng số cao hơn mô tả. Từ vựng của tên sản phẩm/thương hiệu được giữ thêm
+ * trong TrigramIndex để gợi ý sửa lỗi chính tả ("lenvo" -> "lenovo").
+ * Chỉ mục được dựng khi khởi động và cập nhật dần qua ProductChangedEvent
+ */
+@Service
+@Slf4j
+public class ProductSearchIndex {
+
+    public static final String RELEVANCE = "relevance";
+
+    private static final int NAME_WEIGHT = 3;
+    private static final int BRAND_WEIGHT = 2;
+    private static final int DESCRIPTION_WEIGHT = 1;
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    // Số term tối đa khi mở rộng theo tiền tố (ví dụ "lap" -> "laptop")
+    private static final int MAX_PREFIX_EXPANSIONS = 50;
+    private static final int MIN_PREFIX_LENGTH = 2;
+    // Từ ngắn hơn không được sửa chính tả; từ từ 8 ký tự trở lên cho phép sai 2 ký tự
+    private static final int MIN_CORRECTION_LENGTH = 3;
+    private static final int LONG_WORD_LENGTH = 8;
+
+    private final ProductRepository productRepository;
+    private final boolean enabled;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    // Đọc và áp dụng của refresh chạy tuần tự để dòng cũ không ghi đè dòng mới (như CatalogIndex)
+    private final Object refreshMutex = new Object();
+    private final Set<Long> pendingIds = ConcurrentHashMap.newKeySet();
+
+    // term -> productId -> tần suất có trọng số
+    private final TreeMap<String, Map<Long, Integer>> postings = new TreeMap<>();
+    private final Map<Long, Document> documents = new HashMap<>();
+    private final TrigramIndex vocabulary = new TrigramIndex();
+    private long totalLength;
+
+    private volatile boolean ready;
+    private volatile boolean rebuilding;
+
+    public ProductSearchIndex(ProductRepository productRepository,
+                              @Value("${app.search.index.enabled:true}") boolean enabled) {
+        this.productRepository = productRepository;
+        this.enabled = enabled;
+    }
+
+    public boolean isReady() {
+        return enabled && ready;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        if (!enabled) {
+            return;
+        }
+
+        rebuilding = true;
+        try {
+            long start = System.currentTimeMillis();
+            List<ProductSearchRow> rows = productRepository.findAllSearchRows();
+
+            lock.writeLock().lock();
+            try {
+                postings.clear();
+                documents.clear();
+                vocabulary.clear();
+                totalLength = 0;
+                for (ProductSearchRow row : rows) {
+                    add(row);
+                }
+                ready = true;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            log.info("Search index built with {} products and {} terms in {} ms", documents.size(), postings.size(),
+                    System.currentTimeMillis() - start);
+        } finally {
+            rebuilding = false;
+        }
+
+        if (!pendingIds.isEmpty()) {
+            Set<Long> ids = new HashSet<>(pendingIds);
+            pendingIds.removeAll(ids);
+            refresh(ids);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        // Tồn kho/số lượng bán không làm thay đổi văn bản
+        if (!enabled || event.getType() == ProductChangedEvent.Type.STOCK_CHANGED || event.getProductIds().isEmpty()) {
+            return;
+        }
+        if (rebuilding) {
+            pendingIds.addAll(event.getProductIds());
+            return;
+        }
+        refresh(event.getProductIds());
+    }
+
+    /**
+     * Tìm sản phẩm khớp mọi từ trong truy vấn
+     * @return id sản phẩm theo độ liên quan giảm dần, hoặc empty nếu chỉ mục chưa sẵn sàng
+     */
+    public Optional<List<Long>> search(String query) {
+        if (!isReady()) {
+            return Optional.empty();
+        }
+        List<Set<String>> clauses = SearchTextAnalyzer.queryClauses(query);
+        if (clauses.isEmpty()) {
+            return Optional.of(new ArrayList<>());
+        }
+
+        lock.readLock().lock();
+        try {
+            Set<String> queryTerms = new HashSet<>();
+            Set<Long> matches = null;
+            for (Set<String> clause : clauses) {
+                Set<String> terms = resolve(clause);
+                queryTerms.addAll(terms);
+
+                Set<Long> clauseMatches = new HashSet<>();
+                for (String term : terms) {
+                    clauseMatches.addAll(postings.get(term).keySet());
+                }
+                if (matches == null) {
+                    matches = clauseMatches;
+                } else {
+                    matches.retainAll(clauseMatches);
+                }
+                if (matches.isEmpty()) {
+                    return Optional.of(new ArrayList<>());
+                }
+            }
+
+            Map<Long, Double> scores = score(matches, queryTerms);
+            List<Long> ranked = new ArrayList<>(matches);
+            ranked.sort((a, b) -> {
+                int result = Double.compare(scores.get(b), scores.get(a));
+                return result != 0 ? result : Long.compare(b, a);
+            });
+            return Optional.of(ranked);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Gợi ý "có phải bạn muốn tìm": thay các từ không có trong chỉ mục bằng từ gần nhất trong tên sản phẩm/thương hiệu
+     * @return câu truy vấn đã sửa, hoặc empty nếu không có từ nào cần/được sửa
+     */
+    public Optional<String> suggest(String query) {
+        if (!isReady()) {
+            return Optional.empty();
+        }
+        List<String> parts = SearchTextAnalyzer.parts(query);
+        List<String> corrected = new ArrayList<>(parts.size());
+        boolean changed = false;
+
+        lock.readLock().lock();
+        try {
+            for (String part : parts) {
+                String replacement = null;
+                if (part.length() >= MIN_CORRECTION_LENGTH && !postings.containsKey(part)
+                        && part.chars().anyMatch(Character::isLetter)) {
+                    replacement = vocabulary.closest(part, part.length() >= LONG_WORD_LENGTH ? 2 : 1);
+                }
+                if (replacement != null) {
+                    corrected.add(replacement);
+                    changed = true;
+                } else {
+                    corrected.add(part);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return changed ? Optional.of(String.join(" ", corrected)) : Optional.empty();
+    }
+
+    /**
+     * Các term có trong chỉ mục thỏa mệnh đề; nếu không có term nào khớp chính xác thì mở rộng theo tiền tố
+     */
+    private Set<String> resolve(Set<String> clause) {
+        Set<String> terms = new HashSet<>();
+        for (String term : clause) {
+            if (postings.containsKey(term)) {
+                terms.add(term);
+            }
+        }
+        if (terms.isEmpty()) {
+            String prefix = clause.iterator().next();
+            if (prefix.length() >= MIN_PREFIX_LENGTH) {
+                for (String term : postings.subMap(prefix, true, prefix + Character.MAX_VALUE, false).keySet()) {
+                    terms.add(term);
+                    if (terms.size() >= MAX_PREFIX_EXPANSIONS) {
+                        break;
+                    }
+                }
+            }
+        }
+        return terms;
+    }
+
+    private Map<Long, Double> score(Set<Long> matches, Set<String> queryTerms) {
+        int documentCount = documents.size();
+        double averageLength = documentCount > 0 ? (double) totalLength / documentCount : 1.0;
+        Map<Long, Double> scores = new HashMap<>();
+        for (String term : queryTerms) {
+            Map<Long, Integer> termPostings = postings.get(term);
+            int documentFrequency = termPostings.size();
+            double idf = Math.log(1 + (documentCount - documentFrequency + 0.5) / (documentFrequency + 0.5));
+            for (Long id : matches) {
+                Integer frequency = termPostings.get(id);
+                if (frequency == null) {
+                    continue;
+                }
+                double lengthNorm = 1 - B + B * documents.get(id).length() / averageLength;
+                double termScore = idf * frequency * (K1 + 1) / (frequency + K1 * lengthNorm);
+                scores.merge(id, termScore, Double::sum);
+            }
+        }
+        return scores;
+    }
+
+    private void refresh(Collection<Long> productIds) {
+        synchronized (refreshMutex) {
+            List<ProductSearchRow> rows = productRepository.findSearchRowsByIdIn(productIds);
+
+            lock.writeLock().lock();
+            try {
+                Set<Long> missing = new HashSet<>(productIds);
+                for (ProductSearchRow row : rows) {
+                    missing.remove(row.getId());
+                    remove(row.getId());
+                    add(row);
+                }
+                for (Long id : missing) {
+                    remove(id);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    private void add(ProductSearchRow row) {
+        Map<String, Integer> frequencies = new HashMap<>();
+        for (String term : SearchTextAnalyzer.indexTerms(row.getName())) {
+            frequencies.merge(term, NAME_WEIGHT, Integer::sum);
+        }
+        for (String term : SearchTextAnalyzer.indexTerms(row.getBrandName())) {
+            frequencies.merge(term, BRAND_WEIGHT, Integer::sum);
+        }
+        for (String term : SearchTextAnalyzer.indexTerms(row.getDescription())) {
+            frequencies.merge(term, DESCRIPTION_WEIGHT, Integer::sum);
+        }
+
+        // Từ vựng sửa lỗi chính tả chỉ lấy từ tên sản phẩm và thương hiệu
+        Set<String> vocabularyTerms = new HashSet<>(SearchTextAnalyzer.parts(row.getName()));
+        vocabularyTerms.addAll(SearchTextAnalyzer.parts(row.getBrandName()));
+        vocabularyTerms.removeIf(term -> term.length() < MIN_CORRECTION_LENGTH || term.chars().noneMatch(Character::isLetter));
+        vocabularyTerms.forEach(vocabulary::add);
+
+        int length = 0;
+        for (Map.Entry<String, Integer> entry : frequencies.entrySet()) {
+            postings.computeIfAbsent(entry.getKey(), k -> new HashMap<>()).put(row.getId(), entry.getValue());
+            length += entry.getValue();
+        }
+        documents.put(row.getId(), new Document(length, List.copyOf(frequencies.keySet()), List.copyOf(vocabularyTerms)));
+        totalLength += length;
+    }
+
+    private void remove(Long productId) {
+        Document document = documents.remove(productId);
+        if (document == null) {
+            return;
+        }
+        for (String term : document.terms()) {
+            Map<Long, Integer> termPostings = postings.get(term);
+            termPostings.remove(productId);
+            if (termPostings.isEmpty()) {
+                postings.remove(term);
+            }
+        }
+        document.vocabularyTerms().forEach(vocabulary::remove);
+        totalLength -= document.length();
+    }
+
+    private record Document(int length, List<String> terms, List<String> vocabularyTerms) {
+    }
+}
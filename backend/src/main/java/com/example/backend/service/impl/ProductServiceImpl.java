@@ -3,39 +3,78 @@ import com.example.backend.model.Category;
 import com.example.backend.model.Product;
 import com.example.backend.model.Brand;
 import com.example.backend.model.ProductImage;
+import com.example.backend.aop.Coalesced;
+import com.example.backend.aop.FilterSet;
 import com.example.backend.dto.ProductCreateDTO;
+import com.example.backend.dto.ProductFeedDTO;
+import com.example.backend.dto.ProductSummaryDTO;
+import com.example.backend.event.ProductChangedEvent;
+import com.example.backend.exception.BadRequestException;
 import com.example.backend.exception.ResourceNotFoundException;
 import com.example.backend.repository.CategoryRepository;
+import com.example.backend.repository.ProductCursor;
 import com.example.backend.repository.ProductRepository;
+import com.example.backend.repository.ProductSpecifications;
 import com.example.backend.repository.BrandRepository;
 import com.example.backend.repository.ProductImageRepository;
 import com.example.backend.service.ProductService;
 import com.example.backend.service.FileStorageService;
+import com.example.backend.util.SpecificationValues;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Iterator;
 import java.util.Optional;
-import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 public class ProductServiceImpl implements ProductService {
 
+    private static final int DEFAULT_SUGGEST_LIMIT = 5;
+    private static final int MAX_SUGGEST_LIMIT = ProductSuggestIndex.MAX_LIMIT;
+    // Số sản phẩm tối đa cho một yêu cầu lấy theo lô
+    private static final int MAX_BATCH_SIZE = 200;
+    // Số sản phẩm được so sánh cùng lúc
+    private static final int MIN_COMPARE_SIZE = 2;
+    private static final int MAX_COMPARE_SIZE = 6;
+    // Số dòng giữa hai lần đẩy dữ liệu xuất catalog xuống client
+    private static final int EXPORT_FLUSH_INTERVAL = 500;
+    
     private final ProductRepository productRepository;
     private final CategoryRepository categoryRepository;
     private final BrandRepository brandRepository;
     private final ProductImageRepository productImageRepository;
     private final FileStorageService fileStorageService;
+    private final CatalogIndex catalogIndex;
+    private final CategoryTree categoryTree;
+    private final SpecificationFacetCache specificationFacetCache;
+    private final ProductSearchIndex productSearchIndex;
+    private final ProductSuggestIndex productSuggestIndex;
+    private final ProductDetailCache productDetailCache;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ObjectMapper objectMapper;
     
     @Autowired
     public ProductServiceImpl(
@@ -43,12 +82,28 @@ public class ProductServiceImpl implements ProductService {
             CategoryRepository categoryRepository,
             BrandRepository brandRepository,
             ProductImageRepository productImageRepository,
-            FileStorageService fileStorageService) {
+            FileStorageService fileStorageService,
+            CatalogIndex catalogIndex,
+            CategoryTree categoryTree,
+            SpecificationFacetCache specificationFacetCache,
+            ProductSearchIndex productSearchIndex,
+            ProductSuggestIndex productSuggestIndex,
+            ProductDetailCache productDetailCache,
+            ApplicationEventPublisher eventPublisher,
+            ObjectMapper objectMapper) {
         this.productRepository = productRepository;
         this.categoryRepository = categoryRepository;
         this.brandRepository = brandRepository;
         this.productImageRepository = productImageRepository;
         this.fileStorageService = fileStorageService;
+        this.catalogIndex = catalogIndex;
+        this.categoryTree = categoryTree;
+        this.specificationFacetCache = specificationFacetCache;
+        this.productSearchIndex = productSearchIndex;
+        this.productSuggestIndex = productSuggestIndex;
+        this.productDetailCache = productDetailCache;
+        this.eventPublisher = eventPublisher;
+        this.objectMapper = objectMapper;
     }
     
     @Override
@@ -56,24 +111,224 @@ public class ProductServiceImpl implements ProductService {
         return productRepository.findAll();
     }
     
+    @Override
+    @Transactional(readOnly = true)
+    public void exportProducts(OutputStream output, boolean ndjson) throws IOException {
+        // Không flush sau mỗi object: dữ liệu được đẩy xuống theo lô EXPORT_FLUSH_INTERVAL dòng
+        ObjectWriter writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        try (Stream<ProductFeedDTO> rows = productRepository.streamFeedRows();
+             JsonGenerator generator = objectMapper.getFactory().createGenerator(output)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            if (ndjson) {
+                generator.setRootValueSeparator(null);
+            } else {
+                generator.writeStartArray();
+            }
+            
+            int count = 0;
+            for (Iterator<ProductFeedDTO> iterator = rows.iterator(); iterator.hasNext(); ) {
+                writer.writeValue(generator, iterator.next());
+                if (ndjson) {
+                    generator.writeRaw('\n');
+                }
+                if (++count % EXPORT_FLUSH_INTERVAL == 0) {
+                    generator.flush();
+                }
+            }
+            
+            if (!ndjson) {
+                generator.writeEndArray();
+            }
+        }
+    }
+    
     @Override
     public Product saveProduct(Product product) {
-        return productRepository.save(product);
+        Product savedProduct = productRepository.save(product);
+        eventPublisher.publishEvent(ProductChangedEvent.saved(savedProduct.getId()));
+        return savedProduct;
     }
     
     @Override
     public Optional<Product> getProductById(Long id) {
-        return productRepository.findById(id);
+        return productDetailCache.getById(id, () -> productRepository.findDetailById(id));
     }
     
     @Override
     public Optional<Product> getProductBySlug(String slug) {
-        return productRepository.findBySlug(slug);
+        return productDetailCache.getBySlug(slug, () -> productRepository.findDetailBySlug(slug));
+    }
+    
+    @Override
+    @Transactional(readOnly = true)
+    public Map<String, Object> getProductsByIdsOrSlugs(List<Long> ids, List<String> slugs) {
+        boolean byId = ids != null && !ids.isEmpty();
+        boolean bySlug = slugs != null && !slugs.isEmpty();
+        if (byId == bySlug) {
+            throw new BadRequestException("Cần truyền ids hoặc slugs, không truyền cả hai");
+        }
+        
+        List<?> keys = (byId ? ids : slugs).stream().filter(Objects::nonNull).distinct().collect(Collectors.toList());
+        if (keys.size() > MAX_BATCH_SIZE) {
+            throw new BadRequestException("Chỉ lấy được tối đa " + MAX_BATCH_SIZE + " sản phẩm mỗi lần");
+        }
+        
+        // Sản phẩm chưa có trong cache chi tiết được nạp bằng một truy vấn IN (fetch join brand, category, images)
+        Map<Object, Product> productsByKey = new HashMap<>();
+        if (byId) {
+            List<Long> idKeys = keys.stream().map(Long.class::cast).collect(Collectors.toList());
+            productDetailCache.getAllById(idKeys, productRepository::findDetailsByIdIn)
+                    .forEach(product -> productsByKey.put(product.getId(), product));
+        } else {
+            List<String> slugKeys = keys.stream().map(String.class::cast).collect(Collectors.toList());
+            productDetailCache.getAllBySlug(slugKeys, productRepository::findDetailsBySlugIn)
+                    .forEach(product -> productsByKey.put(product.getSlug(), product));
+        }
+        
+        List<Product> items = new ArrayList<>();
+        List<Object> missing = new ArrayList<>();
+        for (Object key : keys) {
+            Product product = productsByKey.get(key);
+            if (product != null) {
+                items.add(product);
+            } else {
+                missing.add(key);
+            }
+        }
+        
+        Map<String, Object> result = new HashMap<>();
+        result.put("items", items);
+        result.put("total", items.size());
+        result.put("missing", missing);
+        return result;
+    }
+    
+    @Override
+    @Transactional(readOnly = true)
+    public Map<String, Object> compareProducts(List<Long> ids) {
+        List<Long> productIds = ids == null ? List.of()
+                : ids.stream().filter(Objects::nonNull).distinct().collect(Collectors.toList());
+        if (productIds.size() < MIN_COMPARE_SIZE || productIds.size() > MAX_COMPARE_SIZE) {
+            throw new BadRequestException("Cần từ " + MIN_COMPARE_SIZE + " đến " + MAX_COMPARE_SIZE + " sản phẩm để so sánh");
+        }
+        
+        // Sản phẩm lấy từ cache chi tiết, các sản phẩm chưa có được nạp bằng một truy vấn
+        Map<Long, Product> productsById = productDetailCache.getAllById(productIds, productRepository::findDetailsByIdIn)
+                .stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity(), (first, second) -> first));
+        List<Product> products = new ArrayList<>();
+        for (Long id : productIds) {
+            Product product = productsById.get(id);
+            if (product == null) {
+                throw new ResourceNotFoundException("Không tìm thấy sản phẩm với ID: " + id);
+            }
+            products.add(product);
+        }
+        
+        // Khung thông số lấy từ danh mục gốc chung; sản phẩm thuộc các danh mục gốc khác nhau không so sánh được
+        // (sản phẩm chưa có danh mục không ràng buộc khung thông số)
+        Long rootId = null;
+        Product rootProduct = null;
+        for (Product product : products) {
+            Long productRootId = findRootCategoryIdOf(product);
+            if (productRootId == null) {
+                continue;
+            }
+            if (rootId == null) {
+                rootId = productRootId;
+                rootProduct = product;
+            } else if (!rootId.equals(productRootId)) {
+                throw new BadRequestException("Chỉ so sánh được các sản phẩm cùng danh mục gốc");
+            }
+        }
+        Category root = rootProduct != null ? findRootCategoryOf(rootProduct) : null;
+        List<Category.SpecificationField> fields = root != null && root.getSpecificationFields() != null
+                ? root.getSpecificationFields() : List.of();
+        Map<String, Category.SpecificationField> fieldsByKey = new HashMap<>();
+        for (Category.SpecificationField field : fields) {
+            if (field.getKey() != null) {
+                fieldsByKey.putIfAbsent(field.getKey(), field);
+            }
+        }
+        
+        // Một lượt qua thông số của các sản phẩm: key -> giá trị theo từng cột
+        Map<String, Object[]> valuesByKey = new HashMap<>();
+        for (int column = 0; column < products.size(); column++) {
+            Map<String, Object> specifications = products.get(column).getSpecifications();
+            if (specifications == null) {
+                continue;
+            }
+            for (Map.Entry<String, Object> entry : specifications.entrySet()) {
+                valuesByKey.computeIfAbsent(entry.getKey(), k -> new Object[products.size()])[column] = entry.getValue();
+            }
+        }
+        
+        List<String> keys = new ArrayList<>(valuesByKey.keySet());
+        keys.sort(Comparator.<String, Boolean>comparing(key -> !fieldsByKey.containsKey(key))
+                .thenComparing(key -> fieldsByKey.containsKey(key) && fieldsByKey.get(key).getSortOrder() != null
+                        ? fieldsByKey.get(key).getSortOrder() : Integer.MAX_VALUE)
+                .thenComparing(Comparator.naturalOrder()));
+        
+        List<Map<String, Object>> rows = new ArrayList<>();
+        for (String key : keys) {
+            Category.SpecificationField field = fieldsByKey.get(key);
+            Object[] values = valuesByKey.get(key);
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("key", key);
+            row.put("labelVi", field != null && field.getLabelVi() != null ? field.getLabelVi() : key);
+            row.put("labelEn", field != null && field.getLabelEn() != null ? field.getLabelEn() : key);
+            row.put("type", field != null ? field.getType() : null);
+            row.put("values", Arrays.asList(values));
+            row.put("differs", differs(values));
+            rows.add(row);
+        }
+        
+        Map<String, Object> result = new HashMap<>();
+        result.put("products", products.stream().map(ProductSummaryDTO::from).collect(Collectors.toList()));
+        result.put("rootCategoryId", root != null ? root.getId() : null);
+        result.put("rows", rows);
+        return result;
+    }
+    
+    private Long findRootCategoryIdOf(Product product) {
+        Category category = product.getCategory();
+        if (category == null) {
+            return null;
+        }
+        Long rootId = categoryTree.getRootId(category.getId());
+        return rootId != null ? rootId : category.getId();
+    }
+    
+    private Category findRootCategoryOf(Product product) {
+        Category category = product.getCategory();
+        if (category == null) {
+            return null;
+        }
+        Long rootId = categoryTree.getRootId(category.getId());
+        if (rootId == null || rootId.equals(category.getId())) {
+            return category;
+        }
+        return categoryRepository.findById(rootId).orElse(category);
+    }
+    
+    /**
+     * Các cột có giá trị khác nhau hay không, so sánh sau khi chuẩn hóa (thiếu giá trị cũng tính là khác)
+     */
+    private static boolean differs(Object[] values) {
+        List<String> first = SpecificationValues.valuesOf(values[0]);
+        for (int i = 1; i < values.length; i++) {
+            if (!first.equals(SpecificationValues.valuesOf(values[i]))) {
+                return true;
+            }
+        }
+        return false;
     }
     
     @Override
     public void deleteProduct(Long id) {
+        Long categoryId = productRepository.findCategoryIdById(id).orElse(null);
         productRepository.deleteById(id);
+        eventPublisher.publishEvent(ProductChangedEvent.deleted(id, categoryId));
     }
     
     @Override
@@ -82,739 +337,367 @@ public class ProductServiceImpl implements ProductService {
     }
     
     @Override
+    @Coalesced
     @Transactional(readOnly = true)
     public Map<String, Object> getFilteredProducts(
             Long categoryId, 
-            List<Long> brandIds, 
+            @FilterSet List<Long> brandIds, 
             Double minPrice, 
             Double maxPrice,
-            Map<String, List<String>> specifications,
+            @FilterSet Map<String, List<String>> specifications,
             String sortBy,
             Integer skip,
             Integer limit,
+            String cursor,
             Boolean isFeatured,
-            Boolean isActive) {
-        
-        List<Product> filteredProducts;
-        
-        // Step 1: Get base product list based on primary filters
-        if (isFeatured != null && isActive != null) {
-            filteredProducts = productRepository.findByFeaturedAndActive(isFeatured, isActive);
-        } else if (categoryId != null) {
-            // Use different repository methods based on sort option
-            if (sortBy != null) {
-                switch (sortBy) {
-                    case "price_asc":
-                        filteredProducts = productRepository.findActiveByCategoryIdAndSortByPriceAsc(categoryId);
-                        break;
-                    case "price_desc":
-                        filteredProducts = productRepository.findActiveByCategoryIdAndSortByPriceDesc(categoryId);
-                        break;
-                    case "best_selling":
-                        filteredProducts = productRepository.findActiveByCategoryIdAndSortByBestSelling(categoryId);
-                        break;
-                    case "newest":
-                    default:
-                        filteredProducts = productRepository.findActiveByCategoryIdAndSortByNewest(categoryId);
-                        break;
-                }
-            } else {
-                filteredProducts = productRepository.findActiveByCategoryId(categoryId);
-            }
-        } else {
-            filteredProducts = productRepository.findAll();
-        }
-        
-        // Step 2: Apply secondary filters
-        
-        // Brand filter
-        if (brandIds != null && !brandIds.isEmpty()) {
-            filteredProducts = filteredProducts.stream()
-                .filter(product -> product.getBrand() != null && brandIds.contains(product.getBrand().getId()))
-                .collect(Collectors.toList());
-        }
-        
-        // Price range filter
-        if (minPrice != null && maxPrice != null) {
-            filteredProducts = filteredProducts.stream()
-                .filter(product -> {
-                    // Calculate discounted price using BigDecimal.multiply
-                    BigDecimal discountMultiplier = BigDecimal.ONE.subtract(
-                            BigDecimal.valueOf(product.getDiscount()).divide(BigDecimal.valueOf(100.0)));
-                    BigDecimal actualPrice = product.getPrice().multiply(discountMultiplier);
-                    
-                    return actualPrice.doubleValue() >= minPrice && actualPrice.doubleValue() <= maxPrice;
-                })
-                .collect(Collectors.toList());
-        } else if (minPrice != null) {
-            filteredProducts = filteredProducts.stream()
-                .filter(product -> {
-                    // Calculate discounted price using BigDecimal.multiply
-                    BigDecimal discountMultiplier = BigDecimal.ONE.subtract(
-                            BigDecimal.valueOf(product.getDiscount()).divide(BigDecimal.valueOf(100.0)));
-                    BigDecimal actualPrice = product.getPrice().multiply(discountMultiplier);
-                    
-                    return actualPrice.doubleValue() >= minPrice;
-                })
-                .collect(Collectors.toList());
-        } else if (maxPrice != null) {
-            filteredProducts = filteredProducts.stream()
-                .filter(product -> {
-                    // Calculate discounted price using BigDecimal.multiply
-                    BigDecimal discountMultiplier = BigDecimal.ONE.subtract(
-                            BigDecimal.valueOf(product.getDiscount()).divide(BigDecimal.valueOf(100.0)));
-                    BigDecimal actualPrice = product.getPrice().multiply(discountMultiplier);
-                    
-                    return actualPrice.doubleValue() <= maxPrice;
-                })
-                .collect(Collectors.toList());
-        }
-        
-        // Specifications filter
-        if (specifications != null && !specifications.isEmpty()) {
-            filteredProducts = filteredProducts.stream()
-                .filter(product -> {
-                    Map<String, Object> productSpecs = product.getSpecifications();
-                    
-                    // If product has no specifications, it doesn't match
-                    if (productSpecs == null || productSpecs.isEmpty()) {
-                        return false;
-                    }
-                    
-                    // Check if all specification filters match
-                    for (Map.Entry<String, List<String>> entry : specifications.entrySet()) {
-                        String specKey = entry.getKey();
-                        List<String> allowedValues = entry.getValue();
-                        
-                        // If no values specified for this spec key, skip this filter
-                        if (allowedValues == null || allowedValues.isEmpty()) {
-                            continue;
-                        }
-                        
-                        // Get the product's value for this specification
-                        Object productSpecValue = productSpecs.get(specKey);
-                        
-                        // If product doesn't have this specification, it doesn't match
-                        if (productSpecValue == null) {
-                            return false;
-                        }
-                        
-                        // Xử lý khác nhau tùy theo kiểu dữ liệu của specifications
-                        boolean matchesAny = false;
-                        
-                        if (productSpecValue instanceof String || productSpecValue instanceof Number || productSpecValue instanceof Boolean) {
-                            // Đối với giá trị đơn
-                            String valueStr = String.valueOf(productSpecValue);
-                            matchesAny = allowedValues.contains(valueStr);
-                        } else if (productSpecValue instanceof List || productSpecValue instanceof Object[]) {
-                            // Đối với danh sách giá trị
-                            List<?> valueList;
-                            if (productSpecValue instanceof Object[]) {
-                                valueList = Arrays.asList((Object[]) productSpecValue);
-                            } else {
-                                valueList = (List<?>) productSpecValue;
-                            }
-                            
-                            // Kiểm tra nếu bất kỳ giá trị nào trong danh sách của sản phẩm khớp với bất kỳ giá trị nào trong danh sách cho phép
-                            for (Object item : valueList) {
-                                String itemStr = String.valueOf(item);
-                                if (allowedValues.contains(itemStr)) {
-                                    matchesAny = true;
-                                    break;
-                                }
-                            }
-                        } else if (productSpecValue instanceof Map) {
-                            // Đối với Map - duyệt qua các giá trị
-                            Map<?, ?> valueMap = (Map<?, ?>) productSpecValue;
-                            for (Object mapValue : valueMap.values()) {
-                                String mapValueStr = String.valueOf(mapValue);
-                                if (allowedValues.contains(mapValueStr)) {
-                                    matchesAny = true;
-                                    break;
-                                }
-                            }
-                        }
-                        
-                        if (!matchesAny) {
-                            return false;
-                        }
-                    }
-                    
-                    return true;
-                })
-                .collect(Collectors.toList());
+            Boolean isActive,
+            boolean includeFacets,
+            boolean summary) {
+        
+        ProductCursor pageCursor = cursor != null ? ProductCursor.decode(cursor, sortBy) : null;
+        
+        // Ưu tiên chỉ mục trong bộ nhớ, database chỉ được dùng khi chỉ mục chưa sẵn sàng
+        Optional<Map<String, Object>> indexed = findIndexedPage(CatalogIndex.CatalogQuery.builder()
+                .categoryIds(categoryId != null ? List.of(categoryId) : null)
+                .brandIds(brandIds)
+                .minPrice(minPrice)
+                .maxPrice(maxPrice)
+                .specifications(specifications)
+                .isActive(isActive)
+                .isFeatured(isFeatured)
+                .sortBy(sortBy)
+                .skip(skip)
+                .limit(limit)
+                .cursor(pageCursor)
+                .includeFacets(includeFacets)
+                .build(), summary);
+        if (indexed.isPresent()) {
+            return indexed.get();
         }
         
-        // Calculate total before pagination
-        int total = filteredProducts.size();
-        
-        // Apply pagination
-        if (skip != null && limit != null) {
-            int startIndex = Math.min(skip, total);
-            int endIndex = Math.min(startIndex + limit, total);
-            
-            if (startIndex < endIndex) {
-                filteredProducts = filteredProducts.subList(startIndex, endIndex);
-            } else {
-                filteredProducts = new ArrayList<>();
-            }
-        }
+        Specification<Product> filter = Specification.where(ProductSpecifications.inCategory(categoryId))
+                .and(ProductSpecifications.isFeatured(isFeatured))
+                .and(ProductSpecifications.isActive(isActive))
+                .and(ProductSpecifications.hasBrandIn(brandIds))
+                .and(ProductSpecifications.priceBetween(minPrice, maxPrice))
+                .and(ProductSpecifications.matchesSpecifications(specifications));
         
-        // Prepare response
-        Map<String, Object> result = new HashMap<>();
-        result.put("items", filteredProducts);
-        result.put("total", total);
-        
-        return result;
+        return findProductPage(filter, sortBy, skip, limit, pageCursor, summary);
     }
     
     @Override
     @Transactional(readOnly = true)
     public Map<String, List<String>> getSpecificationsByCategorySlug(String categorySlug) {
-        // Tìm danh mục theo slug
-        Optional<Category> categoryOpt = categoryRepository.findBySlug(categorySlug);
+        // Tra cứu hoàn toàn trong bộ nhớ: slug -> id từ cây danh mục, giá trị từ cache đã cộng dồn danh mục con
+        Long categoryId = categoryTree.getIdBySlug(categorySlug);
         
         // Nếu không tồn tại danh mục, trả về kết quả rỗng
-        if (categoryOpt.isEmpty()) {
+        if (categoryId == null) {
             return new HashMap<>();
         }
         
-        // Lấy danh mục và ID
-        Category category = categoryOpt.get();
-        Long categoryId = category.getId();
-        
-        // Lấy danh sách tất cả ID danh mục (bao gồm danh mục con)
-        List<Long> allCategoryIds = getAllChildCategoryIds(categoryId);
-        System.out.println("Lấy thông số kỹ thuật cho danh mục slug: " + categorySlug + " và danh mục con: " + allCategoryIds);
-        
-        Map<String, List<String>> specs = new HashMap<>();
-        
-        // Duyệt qua từng ID danh mục
-        for (Long id : allCategoryIds) {
-            // Lấy tất cả sản phẩm trong danh mục này
-            List<Product> products = productRepository.findByCategoryId(id);
-            
-            // Duyệt qua từng sản phẩm để lấy thông số kỹ thuật
-            for (Product product : products) {
-                if (product.getSpecifications() != null) {
-                    for (Map.Entry<String, Object> entry : product.getSpecifications().entrySet()) {
-                        String key = entry.getKey();
-                        Object value = entry.getValue();
-                        
-                        // Khởi tạo danh sách giá trị nếu chưa tồn tại
-                        if (!specs.containsKey(key)) {
-                            specs.put(key, new ArrayList<>());
-                        }
-                        
-                        // Xử lý các kiểu dữ liệu khác nhau
-                        if (value instanceof String || value instanceof Number || value instanceof Boolean) {
-                            // Đối với kiểu đơn giản
-                            String strValue = String.valueOf(value);
-                            if (!specs.get(key).contains(strValue)) {
-                                specs.get(key).add(strValue);
-                            }
-                        } else if (value instanceof List || value instanceof Object[]) {
-                            // Xử lý mảng hoặc danh sách
-                            List<?> valueList;
-                            if (value instanceof Object[]) {
-                                valueList = Arrays.asList((Object[]) value);
-                            } else {
-                                valueList = (List<?>) value;
-                            }
-                            
-                            for (Object item : valueList) {
-                                String strItem = String.valueOf(item);
-                                if (!specs.get(key).contains(strItem)) {
-                                    specs.get(key).add(strItem);
-                                }
-                            }
-                        } else if (value instanceof Map) {
-                            // Xử lý Map nếu cần
-                            Map<?, ?> mapValue = (Map<?, ?>) value;
-                            for (Object mapItem : mapValue.values()) {
-                                String strItem = String.valueOf(mapItem);
-                                if (!specs.get(key).contains(strItem)) {
-                                    specs.get(key).add(strItem);
-                                }
-                            }
-                        }
-                    }
-                }
-            }
-        }
-        
-        // Sắp xếp các giá trị trong từng danh sách
-        for (List<String> values : specs.values()) {
-            Collections.sort(values);
-        }
-        
-        return specs;
+        return specificationFacetCache.getSpecifications(categoryId);
     }
     
     @Override
+    @Coalesced
     @Transactional(readOnly = true)
     public Map<String, Object> getProductsByCategorySlug(
             String categorySlug,
-            List<Long> brandIds, 
+            @FilterSet List<Long> brandIds, 
             Double minPrice, 
             Double maxPrice,
-            Map<String, List<String>> specifications,
+            @FilterSet Map<String, List<String>> specifications,
             String sortBy,
             Integer skip,
             Integer limit,
+            String cursor,
             Boolean isFeatured,
-            Boolean isActive) {
+            Boolean isActive,
+            boolean includeFacets,
+            boolean summary) {
         
-        // Tìm danh mục theo slug
-        Optional<Category> categoryOpt = categoryRepository.findBySlug(categorySlug);
+        // Tìm danh mục theo slug trong cây danh mục trong bộ nhớ, không truy vấn database
+        Long categoryId = categoryTree.getIdBySlug(categorySlug);
         
         // Nếu không tồn tại danh mục, trả về kết quả rỗng
-        if (categoryOpt.isEmpty()) {
+        if (categoryId == null) {
             Map<String, Object> emptyResult = new HashMap<>();
             emptyResult.put("items", new ArrayList<>());
             emptyResult.put("total", 0);
             return emptyResult;
         }
         
-        // Lấy danh mục và ID
-        Category category = categoryOpt.get();
-        Long categoryId = category.getId();
-        
         // Lấy tất cả các ID của danh mục con (bao gồm cả danh mục hiện tại)
-        List<Long> allCategoryIds = getAllChildCategoryIds(categoryId);
-        System.out.println("Danh sách tất cả ID danh mục (bao gồm con): " + allCategoryIds);
-        
-        // Không dùng getFilteredProducts mà thay thế bằng logic tương tự nhưng có chỉnh sửa
-        List<Product> filteredProducts = new ArrayList<>();
-        
-        // Duyệt qua từng ID danh mục và lấy sản phẩm
-        for (Long id : allCategoryIds) {
-            // Dùng repository method phù hợp dựa trên tùy chọn sắp xếp
-            List<Product> productsForCategory;
-            if (sortBy != null) {
-                switch (sortBy) {
-                    case "price_asc":
-                        productsForCategory = productRepository.findActiveByCategoryIdAndSortByPriceAsc(id);
-                        break;
-                    case "price_desc":
-                        productsForCategory = productRepository.findActiveByCategoryIdAndSortByPriceDesc(id);
-                        break;
-                    case "best_selling":
-                        productsForCategory = productRepository.findActiveByCategoryIdAndSortByBestSelling(id);
-                        break;
-                    case "newest":
-                    default:
-                        productsForCategory = productRepository.findActiveByCategoryIdAndSortByNewest(id);
-                        break;
-                }
-            } else {
-                productsForCategory = productRepository.findActiveByCategoryId(id);
-            }
-            
-            filteredProducts.addAll(productsForCategory);
+        List<Long> allCategoryIds = categoryTree.getSubtreeIds(categoryId);
+        ProductCursor pageCursor = cursor != null ? ProductCursor.decode(cursor, sortBy) : null;
+        
+        Optional<Map<String, Object>> indexed = findIndexedPage(CatalogIndex.CatalogQuery.builder()
+                .categoryIds(allCategoryIds)
+                .brandIds(brandIds)
+                .minPrice(minPrice)
+                .maxPrice(maxPrice)
+                .specifications(specifications)
+                .isActive(isActive)
+                .isFeatured(isFeatured)
+                .sortBy(sortBy)
+                .skip(skip)
+                .limit(limit)
+                .cursor(pageCursor)
+                .includeFacets(includeFacets)
+                .build(), summary);
+        if (indexed.isPresent()) {
+            return indexed.get();
         }
         
-        // Loại bỏ trùng lặp nếu có
-        filteredProducts = filteredProducts.stream().distinct().collect(Collectors.toList());
+        Specification<Product> filter = Specification.where(ProductSpecifications.inCategories(allCategoryIds))
+                .and(ProductSpecifications.isFeatured(isFeatured))
+                .and(ProductSpecifications.isActive(isActive))
+                .and(ProductSpecifications.hasBrandIn(brandIds))
+                .and(ProductSpecifications.priceBetween(minPrice, maxPrice))
+                .and(ProductSpecifications.matchesSpecifications(specifications));
         
-        // Áp dụng bộ lọc thứ cấp
-        
-        // Bộ lọc thương hiệu
-        if (brandIds != null && !brandIds.isEmpty()) {
-            filteredProducts = filteredProducts.stream()
-                .filter(product -> product.getBrand() != null && brandIds.contains(product.getBrand().getId()))
-                .collect(Collectors.toList());
+        return findProductPage(filter, sortBy, skip, limit, pageCursor, summary);
+    }
+    
+    /**
+     * Lọc và phân trang trên CatalogIndex, sau đó chỉ nạp entity (hoặc bản rút gọn khi summary) của các sản phẩm thuộc trang
+     * @return empty nếu chỉ mục chưa sẵn sàng
+     */
+    private Optional<Map<String, Object>> findIndexedPage(CatalogIndex.CatalogQuery query, boolean summary) {
+        return catalogIndex.query(query).map(page -> {
+            Map<String, Object> result = new HashMap<>();
+            List<?> items = summary ? findSummariesByIdInOrder(page.getProductIds())
+                    : findAllByIdInOrder(page.getProductIds());
+            result.put("items", items);
+            result.put("total", page.getTotal());
+            putNextCursor(result, items, query.getSortBy(), query.getLimit());
+            if (page.getFacets() != null) {
+                result.put("facets", toFacetResponse(page.getFacets()));
+            }
+            return result;
+        });
+    }
+    
+    /**
+     * Chuyển facet của chỉ mục sang dạng JSON trả về: brands [{id, name, count}],
+     * specifications {key: [{value, count}]}, priceRanges [{min, max, count}]
+     */
+    private Map<String, Object> toFacetResponse(CatalogIndex.Facets facets) {
+        Map<Long, String> brandNames = brandRepository.findAllById(facets.getBrandCounts().keySet()).stream()
+                .collect(Collectors.toMap(Brand::getId, Brand::getName));
+        
+        List<Map<String, Object>> brands = new ArrayList<>();
+        facets.getBrandCounts().forEach((brandId, count) -> {
+            Map<String, Object> brand = new HashMap<>();
+            brand.put("id", brandId);
+            brand.put("name", brandNames.get(brandId));
+            brand.put("count", count);
+            brands.add(brand);
+        });
+        brands.sort(Comparator.comparing((Map<String, Object> brand) -> (Integer) brand.get("count")).reversed()
+                .thenComparing(brand -> String.valueOf(brand.get("name"))));
+        
+        Map<String, List<Map<String, Object>>> specifications = new TreeMap<>();
+        facets.getSpecificationCounts().forEach((key, counts) -> {
+            List<Map<String, Object>> values = new ArrayList<>();
+            new TreeMap<>(counts).forEach((value, count) -> {
+                Map<String, Object> entry = new HashMap<>();
+                entry.put("value", value);
+                entry.put("count", count);
+                values.add(entry);
+            });
+            specifications.put(key, values);
+        });
+        
+        List<Map<String, Object>> priceRanges = new ArrayList<>();
+        for (CatalogIndex.PriceBucket bucket : facets.getPriceBuckets()) {
+            Map<String, Object> range = new HashMap<>();
+            range.put("min", bucket.getMin());
+            range.put("max", bucket.getMax());
+            range.put("count", bucket.getCount());
+            priceRanges.add(range);
         }
         
-        // Bộ lọc khoảng giá
-        if (minPrice != null && maxPrice != null) {
-            filteredProducts = filteredProducts.stream()
-                .filter(product -> {
-                    BigDecimal discountMultiplier = BigDecimal.ONE.subtract(
-                            BigDecimal.valueOf(product.getDiscount()).divide(BigDecimal.valueOf(100.0)));
-                    BigDecimal actualPrice = product.getPrice().multiply(discountMultiplier);
-                    
-                    return actualPrice.doubleValue() >= minPrice && actualPrice.doubleValue() <= maxPrice;
-                })
-                .collect(Collectors.toList());
-        } else if (minPrice != null) {
-            filteredProducts = filteredProducts.stream()
-                .filter(product -> {
-                    BigDecimal discountMultiplier = BigDecimal.ONE.subtract(
-                            BigDecimal.valueOf(product.getDiscount()).divide(BigDecimal.valueOf(100.0)));
-                    BigDecimal actualPrice = product.getPrice().multiply(discountMultiplier);
-                    
-                    return actualPrice.doubleValue() >= minPrice;
-                })
-                .collect(Collectors.toList());
-        } else if (maxPrice != null) {
-            filteredProducts = filteredProducts.stream()
-                .filter(product -> {
-                    BigDecimal discountMultiplier = BigDecimal.ONE.subtract(
-                            BigDecimal.valueOf(product.getDiscount()).divide(BigDecimal.valueOf(100.0)));
-                    BigDecimal actualPrice = product.getPrice().multiply(discountMultiplier);
-                    
-                    return actualPrice.doubleValue() <= maxPrice;
-                })
-                .collect(Collectors.toList());
+        Map<String, Object> response = new HashMap<>();
+        response.put("brands", brands);
+        response.put("specifications", specifications);
+        response.put("priceRanges", priceRanges);
+        return response;
+    }
+    
+    /**
+     * Bản rút gọn của sản phẩm theo đúng thứ tự ids, một truy vấn duy nhất
+     */
+    private List<ProductSummaryDTO> findSummariesByIdInOrder(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
         }
-        
-        // Bộ lọc thông số kỹ thuật
-        if (specifications != null && !specifications.isEmpty()) {
-            filteredProducts = filteredProducts.stream()
-                .filter(product -> {
-                    Map<String, Object> productSpecs = product.getSpecifications();
-                    
-                    // If product has no specifications, it doesn't match
-                    if (productSpecs == null || productSpecs.isEmpty()) {
-                        return false;
-                    }
-                    
-                    // Check if all specification filters match
-                    for (Map.Entry<String, List<String>> entry : specifications.entrySet()) {
-                        String specKey = entry.getKey();
-                        List<String> allowedValues = entry.getValue();
-                        
-                        // If no values specified for this spec key, skip this filter
-                        if (allowedValues == null || allowedValues.isEmpty()) {
-                            continue;
-                        }
-                        
-                        // Get the product's value for this specification
-                        Object productSpecValue = productSpecs.get(specKey);
-                        
-                        // If product doesn't have this specification, it doesn't match
-                        if (productSpecValue == null) {
-                            return false;
-                        }
-                        
-                        // Xử lý khác nhau tùy theo kiểu dữ liệu của specifications
-                        boolean matchesAny = false;
-                        
-                        if (productSpecValue instanceof String || productSpecValue instanceof Number || productSpecValue instanceof Boolean) {
-                            // Đối với giá trị đơn
-                            String valueStr = String.valueOf(productSpecValue);
-                            matchesAny = allowedValues.contains(valueStr);
-                        } else if (productSpecValue instanceof List || productSpecValue instanceof Object[]) {
-                            // Đối với danh sách giá trị
-                            List<?> valueList;
-                            if (productSpecValue instanceof Object[]) {
-                                valueList = Arrays.asList((Object[]) productSpecValue);
-                            } else {
-                                valueList = (List<?>) productSpecValue;
-                            }
-                            
-                            // Kiểm tra nếu bất kỳ giá trị nào trong danh sách của sản phẩm khớp với bất kỳ giá trị nào trong danh sách cho phép
-                            for (Object item : valueList) {
-                                String itemStr = String.valueOf(item);
-                                if (allowedValues.contains(itemStr)) {
-                                    matchesAny = true;
-                                    break;
-                                }
-                            }
-                        } else if (productSpecValue instanceof Map) {
-                            // Đối với Map - duyệt qua các giá trị
-                            Map<?, ?> valueMap = (Map<?, ?>) productSpecValue;
-                            for (Object mapValue : valueMap.values()) {
-                                String mapValueStr = String.valueOf(mapValue);
-                                if (allowedValues.contains(mapValueStr)) {
-                                    matchesAny = true;
-                                    break;
-                                }
-                            }
-                        }
-                        
-                        if (!matchesAny) {
-                            return false;
-                        }
-                    }
-                    
-                    return true;
-                })
+        Map<Long, ProductSummaryDTO> summariesById = productRepository.findSummariesByIdIn(ids).stream()
+                .collect(Collectors.toMap(ProductSummaryDTO::getId, Function.identity()));
+        return ids.stream()
+                .map(summariesById::get)
+                .filter(Objects::nonNull)
                 .collect(Collectors.toList());
+    }
+    
+    /**
+     * Sản phẩm theo đúng thứ tự ids, nạp kèm brand, category, images trong một truy vấn: không còn lazy load
+     * khi serialize, và kết quả dùng chung được giữa các yêu cầu được gộp (@Coalesced)
+     */
+    private List<Product> findAllByIdInOrder(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
         }
-        
-        // Tính tổng số sản phẩm trước khi phân trang
-        int total = filteredProducts.size();
-        
-        // Sắp xếp lại theo sortBy nếu cần (vì đã gộp sản phẩm từ nhiều danh mục)
-        if (sortBy != null) {
-            switch (sortBy) {
-                case "price_asc":
-                    filteredProducts.sort(Comparator.comparing(p -> p.getPrice().multiply(
-                            BigDecimal.ONE.subtract(BigDecimal.valueOf(p.getDiscount()).divide(BigDecimal.valueOf(100.0))))));
-                    break;
-                case "price_desc":
-                    filteredProducts.sort((p1, p2) -> {
-                        BigDecimal p1ActualPrice = p1.getPrice().multiply(
-                                BigDecimal.ONE.subtract(BigDecimal.valueOf(p1.getDiscount()).divide(BigDecimal.valueOf(100.0))));
-                        BigDecimal p2ActualPrice = p2.getPrice().multiply(
-                                BigDecimal.ONE.subtract(BigDecimal.valueOf(p2.getDiscount()).divide(BigDecimal.valueOf(100.0))));
-                        return p2ActualPrice.compareTo(p1ActualPrice);
-                    });
-                    break;
-                case "best_selling":
-                    filteredProducts.sort(Comparator.comparing(Product::getQuantitySold).reversed());
-                    break;
-                case "newest":
-                default:
-                    filteredProducts.sort(Comparator.comparing(Product::getCreatedAt).reversed());
-                    break;
-            }
+        Map<Long, Product> productsById = productRepository.findDetailsByIdIn(ids).stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+        return ids.stream()
+                .map(productsById::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+    
+    /**
+     * Chạy truy vấn đã ghép bộ lọc: PostgreSQL thực hiện lọc, ORDER BY và LIMIT/OFFSET.
+     * Bản rút gọn được chọn thẳng bằng một truy vấn projection; bản đầy đủ chọn id của trang rồi nạp chi tiết.
+     * Khi có con trỏ keyset, OFFSET được thay bằng điều kiện seek trên (khóa sắp xếp, id), kể cả khi không có limit.
+     * Tổng số kết quả lấy bằng một câu COUNT riêng, trừ khi suy ra được từ trang cuối
+     */
+    private Map<String, Object> findProductPage(Specification<Product> filter, String sortBy, Integer skip, Integer limit,
+                                                ProductCursor cursor, boolean summary) {
+        Specification<Product> sortedFilter = filter.and(ProductSpecifications.after(cursor))
+                .and(ProductSpecifications.orderBy(sortBy));
+        int offset = cursor == null && skip != null && limit != null ? Math.max(0, skip) : 0;
+        
+        List<?> items;
+        if (limit != null && limit <= 0) {
+            items = new ArrayList<>();
+        } else if (summary) {
+            items = productRepository.findPageSummaries(sortedFilter, offset, limit);
+        } else {
+            items = findAllByIdInOrder(productRepository.findPageIds(sortedFilter, offset, limit));
         }
         
-        // Áp dụng phân trang
-        if (skip != null && limit != null) {
-            int startIndex = Math.min(skip, total);
-            int endIndex = Math.min(startIndex + limit, total);
-            
-            if (startIndex < endIndex) {
-                filteredProducts = filteredProducts.subList(startIndex, endIndex);
-            } else {
-                filteredProducts = new ArrayList<>();
-            }
+        long total;
+        if (limit == null && cursor == null) {
+            total = items.size();
+        } else if (cursor == null && limit > 0 && items.size() < limit && (offset == 0 || !items.isEmpty())) {
+            // Trang cuối chưa đầy: tổng suy ra được mà không cần COUNT (như PageableExecutionUtils của Spring Data)
+            total = offset + items.size();
+        } else {
+            total = productRepository.count(filter);
         }
         
-        // Chuẩn bị kết quả
         Map<String, Object> result = new HashMap<>();
-        result.put("items", filteredProducts);
+        result.put("items", items);
         result.put("total", total);
+        putNextCursor(result, items, sortBy, limit);
         
         return result;
     }
-
-    // Phương thức đệ quy để lấy tất cả ID của danh mục con
-    private List<Long> getAllChildCategoryIds(Long parentCategoryId) {
-        List<Long> result = new ArrayList<>();
-        
-        // Thêm ID của danh mục hiện tại
-        result.add(parentCategoryId);
-        
-        // Lấy danh mục từ repository
-        Optional<Category> parentCategoryOpt = categoryRepository.findById(parentCategoryId);
-        if (parentCategoryOpt.isPresent()) {
-            Category parentCategory = parentCategoryOpt.get();
-            
-            // Lấy tất cả các danh mục con trực tiếp
-            Set<Category> directChildren = parentCategory.getSubcategories();
-            
-            // Nếu có danh mục con
-            if (directChildren != null && !directChildren.isEmpty()) {
-                // Duyệt qua từng danh mục con
-                for (Category child : directChildren) {
-                    // Thêm ID danh mục con
-                    result.add(child.getId());
-                    
-                    // Đệ quy để lấy các ID từ các danh mục con của danh mục con này
-                    result.addAll(getAllChildCategoryIds(child.getId()));
-                }
-            }
+    
+    /**
+     * Trang đầy thì trả thêm "nextCursor" trỏ tới sản phẩm cuối, client dùng để lấy trang tiếp theo bằng keyset
+     */
+    private void putNextCursor(Map<String, Object> result, List<?> items, String sortBy, Integer limit) {
+        if (!ProductSearchIndex.RELEVANCE.equals(sortBy) && limit != null && limit > 0 && items.size() >= limit) {
+            Object last = items.get(items.size() - 1);
+            ProductCursor next = last instanceof ProductSummaryDTO summary
+                    ? ProductCursor.after(sortBy, summary.getId(), summary.getEffectivePriceMinorUnits(),
+                            summary.getQuantitySold(), summary.getCreatedAt())
+                    : ProductCursor.after(sortBy, (Product) last);
+            result.put("nextCursor", next.encode());
         }
-        
-        return result.stream().distinct().collect(Collectors.toList());
     }
 
     /**
      * Triển khai phương thức tìm kiếm sản phẩm theo từ khóa với các bộ lọc
      */
     @Override
+    @Coalesced
     @Transactional(readOnly = true)
     public Map<String, Object> searchProducts(
             String keyword,
             Long categoryId,
-            List<Long> brandIds,
+            @FilterSet List<Long> brandIds,
             Double minPrice,
             Double maxPrice,
-            Map<String, List<String>> specifications,
+            @FilterSet Map<String, List<String>> specifications,
             String sortBy,
             Integer skip,
             Integer limit,
-            Boolean isActive) {
-        
-        // Bước 1: Tìm kiếm sản phẩm theo từ khóa
-        List<Product> searchResults = productRepository.findByKeyword(keyword);
-        
-        // Nếu có bộ lọc danh mục, lấy tất cả danh mục con và lọc sản phẩm
-        if (categoryId != null) {
-            List<Long> allCategoryIds = getAllChildCategoryIds(categoryId);
-            searchResults = searchResults.stream()
-                .filter(product -> product.getCategory() != null && 
-                        allCategoryIds.contains(product.getCategory().getId()))
-                .collect(Collectors.toList());
-        }
-        
-        // Lọc sản phẩm đang hoạt động nếu yêu cầu
-        if (isActive != null && isActive) {
-            searchResults = searchResults.stream()
-                .filter(product -> product.getIsActive())
-                .collect(Collectors.toList());
-        }
-        
-        // Bước 2: Áp dụng bộ lọc thương hiệu
-        if (brandIds != null && !brandIds.isEmpty()) {
-            searchResults = searchResults.stream()
-                .filter(product -> product.getBrand() != null && 
-                        brandIds.contains(product.getBrand().getId()))
-                .collect(Collectors.toList());
-        }
-        
-        // Bước 3: Áp dụng bộ lọc giá
-        if (minPrice != null && maxPrice != null) {
-            searchResults = searchResults.stream()
-                .filter(product -> {
-                    BigDecimal discountMultiplier = BigDecimal.ONE.subtract(
-                            BigDecimal.valueOf(product.getDiscount()).divide(BigDecimal.valueOf(100.0)));
-                    BigDecimal actualPrice = product.getPrice().multiply(discountMultiplier);
-                    
-                    return actualPrice.doubleValue() >= minPrice && actualPrice.doubleValue() <= maxPrice;
-                })
-                .collect(Collectors.toList());
-        } else if (minPrice != null) {
-            searchResults = searchResults.stream()
-                .filter(product -> {
-                    BigDecimal discountMultiplier = BigDecimal.ONE.subtract(
-                            BigDecimal.valueOf(product.getDiscount()).divide(BigDecimal.valueOf(100.0)));
-                    BigDecimal actualPrice = product.getPrice().multiply(discountMultiplier);
-                    
-                    return actualPrice.doubleValue() >= minPrice;
-                })
-                .collect(Collectors.toList());
-        } else if (maxPrice != null) {
-            searchResults = searchResults.stream()
-                .filter(product -> {
-                    BigDecimal discountMultiplier = BigDecimal.ONE.subtract(
-                            BigDecimal.valueOf(product.getDiscount()).divide(BigDecimal.valueOf(100.0)));
-                    BigDecimal actualPrice = product.getPrice().multiply(discountMultiplier);
-                    
-                    return actualPrice.doubleValue() <= maxPrice;
-                })
-                .collect(Collectors.toList());
-        }
-        
-        // Bước 4: Áp dụng bộ lọc thông số kỹ thuật
-        if (specifications != null && !specifications.isEmpty()) {
-            searchResults = searchResults.stream()
-                .filter(product -> {
-                    Map<String, Object> productSpecs = product.getSpecifications();
-                    
-                    // Nếu sản phẩm không có thông số kỹ thuật, không phù hợp
-                    if (productSpecs == null || productSpecs.isEmpty()) {
-                        return false;
-                    }
-                    
-                    // Kiểm tra tất cả bộ lọc thông số có khớp không
-                    for (Map.Entry<String, List<String>> entry : specifications.entrySet()) {
-                        String specKey = entry.getKey();
-                        List<String> allowedValues = entry.getValue();
-                        
-                        // Nếu không có giá trị cho thông số này, bỏ qua bộ lọc
-                        if (allowedValues == null || allowedValues.isEmpty()) {
-                            continue;
-                        }
-                        
-                        // Lấy giá trị của sản phẩm cho thông số này
-                        Object productSpecValue = productSpecs.get(specKey);
-                        
-                        // Nếu sản phẩm không có thông số này, không phù hợp
-                        if (productSpecValue == null) {
-                            return false;
-                        }
-                        
-                        // Xử lý khác nhau tùy theo kiểu dữ liệu
-                        boolean matchesAny = false;
-                        
-                        if (productSpecValue instanceof String || productSpecValue instanceof Number || productSpecValue instanceof Boolean) {
-                            // Đối với giá trị đơn
-                            String valueStr = String.valueOf(productSpecValue);
-                            matchesAny = allowedValues.contains(valueStr);
-                        } else if (productSpecValue instanceof List || productSpecValue instanceof Object[]) {
-                            // Đối với danh sách giá trị
-                            List<?> valueList;
-                            if (productSpecValue instanceof Object[]) {
-                                valueList = Arrays.asList((Object[]) productSpecValue);
-                            } else {
-                                valueList = (List<?>) productSpecValue;
-                            }
-                            
-                            // Kiểm tra nếu bất kỳ giá trị nào khớp
-                            for (Object item : valueList) {
-                                String itemStr = String.valueOf(item);
-                                if (allowedValues.contains(itemStr)) {
-                                    matchesAny = true;
-                                    break;
-                                }
-                            }
-                        } else if (productSpecValue instanceof Map) {
-                            // Đối với Map
-                            Map<?, ?> valueMap = (Map<?, ?>) productSpecValue;
-                            for (Object mapValue : valueMap.values()) {
-                                String mapValueStr = String.valueOf(mapValue);
-                                if (allowedValues.contains(mapValueStr)) {
-                                    matchesAny = true;
-                                    break;
-                                }
-                            }
-                        }
-                        
-                        if (!matchesAny) {
-                            return false;
+            String cursor,
+            Boolean isActive,
+            boolean includeFacets,
+            boolean summary) {
+        
+        boolean blankKeyword = keyword == null || keyword.isBlank();
+        // Xếp theo độ liên quan chỉ có nghĩa khi có từ khóa; không hỗ trợ con trỏ keyset
+        boolean byRelevance = ProductSearchIndex.RELEVANCE.equals(sortBy) && !blankKeyword;
+        String listingSort = ProductSearchIndex.RELEVANCE.equals(sortBy) ? ProductCursor.NEWEST : sortBy;
+        ProductCursor pageCursor = cursor != null && !byRelevance ? ProductCursor.decode(cursor, listingSort) : null;
+        
+        if (catalogIndex.isReady()) {
+            CatalogIndex.CatalogQuery.CatalogQueryBuilder query = CatalogIndex.CatalogQuery.builder()
+                    .categoryIds(categoryId != null ? categoryTree.getSubtreeIds(categoryId) : null)
+                    .brandIds(brandIds)
+                    .minPrice(minPrice)
+                    .maxPrice(maxPrice)
+                    .specifications(specifications)
+                    .isActive(Boolean.TRUE.equals(isActive) ? Boolean.TRUE : null)
+                    .sortBy(byRelevance ? ProductSearchIndex.RELEVANCE : listingSort)
+                    .skip(skip)
+                    .limit(limit)
+                    .cursor(pageCursor)
+                    .includeFacets(includeFacets);
+            Optional<Map<String, Object>> indexed = findIndexedSearchPage(blankKeyword ? null : keyword, query, summary);
+            if (indexed.isPresent()) {
+                Map<String, Object> result = indexed.get();
+                // Không có kết quả: thử sửa lỗi chính tả ("lenvo" -> "lenovo") và tìm lại với từ khóa đã sửa
+                if (!blankKeyword && ((Number) result.get("total")).longValue() == 0) {
+                    Optional<String> corrected = productSearchIndex.suggest(keyword);
+                    if (corrected.isPresent()) {
+                        Optional<Map<String, Object>> retried = findIndexedSearchPage(corrected.get(), query, summary);
+                        if (retried.isPresent()) {
+                            result = retried.get();
+                            result.put("didYouMean", corrected.get());
                         }
                     }
-                    
-                    return true;
-                })
-                .collect(Collectors.toList());
-        }
-        
-        // Tính tổng số sản phẩm trước khi áp dụng sắp xếp và phân trang
-        int total = searchResults.size();
-        
-        // Bước 5: Sắp xếp kết quả
-        if (sortBy != null) {
-            switch (sortBy) {
-                case "price_asc":
-                    searchResults.sort(Comparator.comparing(p -> p.getPrice().multiply(
-                            BigDecimal.ONE.subtract(BigDecimal.valueOf(p.getDiscount()).divide(BigDecimal.valueOf(100.0))))));
-                    break;
-                case "price_desc":
-                    searchResults.sort((p1, p2) -> {
-                        BigDecimal p1ActualPrice = p1.getPrice().multiply(
-                                BigDecimal.ONE.subtract(BigDecimal.valueOf(p1.getDiscount()).divide(BigDecimal.valueOf(100.0))));
-                        BigDecimal p2ActualPrice = p2.getPrice().multiply(
-                                BigDecimal.ONE.subtract(BigDecimal.valueOf(p2.getDiscount()).divide(BigDecimal.valueOf(100.0))));
-                        return p2ActualPrice.compareTo(p1ActualPrice);
-                    });
-                    break;
-                case "best_selling":
-                    searchResults.sort(Comparator.comparing(Product::getQuantitySold).reversed());
-                    break;
-                case "newest":
-                default:
-                    searchResults.sort(Comparator.comparing(Product::getCreatedAt).reversed());
-                    break;
-            }
-        } else {
-            // Mặc định sắp xếp theo độ phù hợp (giữ nguyên thứ tự từ repository)
-        }
-        
-        // Bước 6: Áp dụng phân trang
-        if (skip != null && limit != null) {
-            int startIndex = Math.min(skip, total);
-            int endIndex = Math.min(startIndex + limit, total);
-            
-            if (startIndex < endIndex) {
-                searchResults = searchResults.subList(startIndex, endIndex);
-            } else {
-                searchResults = new ArrayList<>();
+                }
+                return result;
             }
         }
         
-        // Chuẩn bị kết quả
-        Map<String, Object> result = new HashMap<>();
-        result.put("items", searchResults);
-        result.put("total", total);
+        // Chỉ mục chưa sẵn sàng (lúc khởi động): so khớp LIKE trên database
+        Specification<Product> filter = Specification.where(ProductSpecifications.matchesKeyword(keyword))
+                .and(categoryId != null ? ProductSpecifications.inCategories(categoryTree.getSubtreeIds(categoryId)) : null)
+                .and(ProductSpecifications.isActive(Boolean.TRUE.equals(isActive) ? Boolean.TRUE : null))
+                .and(ProductSpecifications.hasBrandIn(brandIds))
+                .and(ProductSpecifications.priceBetween(minPrice, maxPrice))
+                .and(ProductSpecifications.matchesSpecifications(specifications));
         
-        return result;
+        return findProductPage(filter, listingSort, skip, limit, pageCursor, summary);
+    }
+
+    /**
+     * Tìm trên chỉ mục: lấy id khớp từ khóa (đã xếp hạng) từ chỉ mục toàn văn, rồi lọc, sắp xếp
+     * và phân trang trên chỉ mục catalog
+     * @param keyword từ khóa, null nếu chỉ lọc
+     */
+    private Optional<Map<String, Object>> findIndexedSearchPage(String keyword,
+                                                               CatalogIndex.CatalogQuery.CatalogQueryBuilder query,
+                                                               boolean summary) {
+        Optional<List<Long>> matchedIds = keyword == null ? Optional.of(List.of()) : productSearchIndex.search(keyword);
+        if (matchedIds.isEmpty()) {
+            return Optional.empty();
+        }
+        return findIndexedPage(query.candidateIds(keyword == null ? null : matchedIds.get()).build(), summary);
+    }
+
+    @Override
+    public Map<String, Object> suggestProducts(String prefix, Integer limit) {
+        int size = limit == null || limit <= 0 ? DEFAULT_SUGGEST_LIMIT : Math.min(limit, MAX_SUGGEST_LIMIT);
+        return productSuggestIndex.suggest(prefix, size);
     }
 
     /**
@@ -880,6 +763,8 @@ public class ProductServiceImpl implements ProductService {
             }
         }
         
+        eventPublisher.publishEvent(ProductChangedEvent.saved(savedProduct.getId(), category.getId()));
+        
         return savedProduct;
     }
 
@@ -906,6 +791,7 @@ public class ProductServiceImpl implements ProductService {
         // Tìm sản phẩm cần cập nhật
         Product product = productRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Không tìm thấy sản phẩm với ID: " + id));
+        Long oldCategoryId = product.getCategory() != null ? product.getCategory().getId() : null;
         
         // Kiểm tra và lấy Category
         Category category = categoryRepository.findById(productDTO.getCategoryId())
@@ -982,6 +868,8 @@ public class ProductServiceImpl implements ProductService {
             }
         }
         
+        eventPublisher.publishEvent(ProductChangedEvent.saved(savedProduct.getId(), oldCategoryId, category.getId()));
+        
         return savedProduct;
     }
 }
\ No newline at end of file
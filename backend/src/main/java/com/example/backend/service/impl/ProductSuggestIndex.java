@@ -0,0 +1,394 @@
+package com.example.backend.service.impl;
+
+import com.example.backend.event.CategoryChangedEvent;
+import com.example.backend.event.ProductChangedEvent;
+import com.example.backend.repository.ProductRepository;
+import com.example.backend.repository.ProductSuggestRow;
+import com.example.backend.util.PrefixTrie;
+import com.example.backend.util.SearchTextAnalyzer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * Chỉ mục gợi ý tự động hoàn thành cho ô tìm kiếm: tên sản phẩm, thương hiệu và danh mục theo tiền tố đang gõ.
+ * Mỗi nhãn được đưa vào PrefixTrie theo từng vị trí đầu từ (đã bỏ dấu), nên "thinkp" khớp "Lenovo ThinkPad".
+ * Xếp hạng theo số lượng đã bán: sản phẩm theo quantitySold, thương hiệu/danh mục theo tổng quantitySold
+ * của các sản phẩm đang bán. Chỉ gồm sản phẩm đang hoạt động.
+ * Mỗi nút của trie giữ sẵn tối đa MAX_LIMIT id xếp hạng cao nhất, nên mỗi lần gõ phím chỉ đọc danh sách có sẵn.
+ * Dựng khi khởi động và cập nhật dần qua ProductChangedEvent; danh mục thay đổi thì chỉ làm mới các sản phẩm
+ * thuộc danh mục đó
+ */
+@Service
+@Slf4j
+public class ProductSuggestIndex {
+
+    private static final Pattern NON_ALPHANUMERIC = Pattern.compile("[^a-z0-9]+");
+    // Khóa trong trie được cắt ở độ dài này để giới hạn số nút; tiền tố dài hơn được lọc lại trên nhãn đầy đủ
+    private static final int MAX_KEY_LENGTH = 24;
+    // Số kết quả tối đa mỗi loại, cũng là số id giữ sẵn ở mỗi nút trie
+    public static final int MAX_LIMIT = 20;
+
+    private final ProductRepository productRepository;
+    private final boolean enabled;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    // Đọc và áp dụng của refresh chạy tuần tự để dòng cũ không ghi đè dòng mới (như CatalogIndex)
+    private final Object refreshMutex = new Object();
+    private final Set<Long> pendingIds = ConcurrentHashMap.newKeySet();
+
+    // Bằng điểm (số lượng bán) thì id lớn hơn trước, giống sắp xếp best_selling
+    private final PrefixTrie<Long> productTrie = new PrefixTrie<>(MAX_LIMIT, Comparator.naturalOrder());
+    private final PrefixTrie<Long> brandTrie = new PrefixTrie<>(MAX_LIMIT, Comparator.naturalOrder());
+    private final PrefixTrie<Long> categoryTrie = new PrefixTrie<>(MAX_LIMIT, Comparator.naturalOrder());
+    private final Map<Long, ProductEntry> products = new HashMap<>();
+    private final Map<Long, Group> brands = new HashMap<>();
+    private final Map<Long, Group> categories = new HashMap<>();
+
+    private volatile boolean ready;
+    private volatile boolean rebuilding;
+
+    public ProductSuggestIndex(ProductRepository productRepository,
+                               @Value("${app.suggest.index.enabled:true}") boolean enabled) {
+        this.productRepository = productRepository;
+        this.enabled = enabled;
+    }
+
+    public boolean isReady() {
+        return enabled && ready;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        if (!enabled) {
+            return;
+        }
+
+        rebuilding = true;
+        try {
+            long start = System.currentTimeMillis();
+            List<ProductSuggestRow> rows = productRepository.findAllSuggestRows();
+
+            lock.writeLock().lock();
+            try {
+                productTrie.clear();
+                brandTrie.clear();
+                categoryTrie.clear();
+                products.clear();
+                brands.clear();
+                categories.clear();
+                for (ProductSuggestRow row : rows) {
+                    add(row);
+                }
+                ready = true;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            log.info("Suggest index built with {} products, {} brands, {} categories ({} trie nodes) in {} ms",
+                    products.size(), brands.size(), categories.size(),
+                    productTrie.getNodeCount() + brandTrie.getNodeCount() + categoryTrie.getNodeCount(),
+                    System.currentTimeMillis() - start);
+        } finally {
+            rebuilding = false;
+        }
+
+        if (!pendingIds.isEmpty()) {
+            Set<Long> ids = new HashSet<>(pendingIds);
+            pendingIds.removeAll(ids);
+            refresh(ids);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        // Cả STOCK_CHANGED vì số lượng bán thay đổi thứ hạng
+        if (!enabled || event.getProductIds().isEmpty()) {
+            return;
+        }
+        if (rebuilding) {
+            pendingIds.addAll(event.getProductIds());
+            return;
+        }
+        refresh(event.getProductIds());
+    }
+
+    /**
+     * Đổi tên/slug hoặc xóa danh mục: làm mới các sản phẩm đang gắn với danh mục đó, phần còn lại của trie giữ nguyên
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCategoryChanged(CategoryChangedEvent event) {
+        if (!ready || event.getCategoryId() == null) {
+            return;
+        }
+        Set<Long> ids = new HashSet<>();
+        lock.readLock().lock();
+        try {
+            products.forEach((id, entry) -> {
+                if (event.getCategoryId().equals(entry.categoryId())) {
+                    ids.add(id);
+                }
+            });
+        } finally {
+            lock.readLock().unlock();
+        }
+        if (ids.isEmpty()) {
+            return;
+        }
+        if (rebuilding) {
+            pendingIds.addAll(ids);
+            return;
+        }
+        refresh(ids);
+    }
+
+    /**
+     * Gợi ý theo tiền tố, mỗi loại tối đa limit kết quả, xếp theo số lượng đã bán giảm dần
+     * @return {products: [{id, name, slug, quantitySold}], brands: [{id, name, slug}], categories: [{id, name, slug}]}
+     */
+    public Map<String, Object> suggest(String prefix, int limit) {
+        String normalized = normalize(prefix);
+        Map<String, Object> result = new LinkedHashMap<>();
+        if (normalized.isEmpty() || !isReady()) {
+            result.put("products", List.of());
+            result.put("brands", List.of());
+            result.put("categories", List.of());
+            return result;
+        }
+        String key = truncate(normalized);
+
+        lock.readLock().lock();
+        try {
+            List<Map<String, Object>> productItems = new ArrayList<>();
+            for (Long id : top(productTrie, products, key, normalized, limit)) {
+                ProductEntry entry = products.get(id);
+                Map<String, Object> item = new LinkedHashMap<>();
+                item.put("id", id);
+                item.put("name", entry.name());
+                item.put("slug", entry.slug());
+                item.put("quantitySold", entry.quantitySold());
+                productItems.add(item);
+            }
+            result.put("products", productItems);
+            result.put("brands", toGroupItems(top(brandTrie, brands, key, normalized, limit), brands));
+            result.put("categories", toGroupItems(top(categoryTrie, categories, key, normalized, limit), categories));
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Top theo số lượng bán, đọc từ danh sách giữ sẵn ở nút của tiền tố.
+     * Khi tiền tố dài hơn khóa đã cắt: nút của khóa cắt nằm ở độ sâu tối đa nên không có nút con, chỉ cần lọc
+     * các id gắn đúng khóa đó (đã xếp hạng) trên nhãn đầy đủ
+     */
+    private <T extends Labeled> List<Long> top(PrefixTrie<Long> trie, Map<Long, T> entries, String key, String normalized,
+                                               int limit) {
+        if (key.length() == normalized.length()) {
+            return trie.top(key, limit);
+        }
+        List<Long> result = new ArrayList<>();
+        for (Long id : trie.values(key)) {
+            if (entries.get(id).matches(normalized)) {
+                result.add(id);
+                if (result.size() >= limit) {
+                    break;
+                }
+            }
+        }
+        return result;
+    }
+
+    private static List<Map<String, Object>> toGroupItems(List<Long> ids, Map<Long, Group> groups) {
+        List<Map<String, Object>> items = new ArrayList<>();
+        for (Long id : ids) {
+            Group group = groups.get(id);
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("id", id);
+            item.put("name", group.name);
+            item.put("slug", group.slug);
+            items.add(item);
+        }
+        return items;
+    }
+
+    private void refresh(Collection<Long> productIds) {
+        synchronized (refreshMutex) {
+            List<ProductSuggestRow> rows = productRepository.findSuggestRowsByIdIn(productIds);
+
+            lock.writeLock().lock();
+            try {
+                Set<Long> missing = new HashSet<>(productIds);
+                for (ProductSuggestRow row : rows) {
+                    missing.remove(row.getId());
+                    remove(row.getId());
+                    add(row);
+                }
+                for (Long id : missing) {
+                    remove(id);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    private void add(ProductSuggestRow row) {
+        if (!Boolean.TRUE.equals(row.getIsActive()) || row.getName() == null) {
+            return;
+        }
+        int quantitySold = row.getQuantitySold() != null ? row.getQuantitySold() : 0;
+        String normalizedName = normalize(row.getName());
+        ProductEntry entry = new ProductEntry(row.getName(), row.getSlug(), normalizedName, quantitySold,
+                row.getBrandId(), row.getCategoryId());
+        products.put(row.getId(), entry);
+        for (String key : keys(normalizedName)) {
+            productTrie.add(key, row.getId(), quantitySold);
+        }
+        join(brands, brandTrie, row.getBrandId(), row.getBrandName(), row.getBrandSlug(), quantitySold);
+        join(categories, categoryTrie, row.getCategoryId(), row.getCategoryName(), row.getCategorySlug(), quantitySold);
+    }
+
+    private void remove(Long productId) {
+        ProductEntry entry = products.remove(productId);
+        if (entry == null) {
+            return;
+        }
+        for (String key : keys(entry.normalizedName())) {
+            productTrie.remove(key, productId);
+        }
+        leave(brands, brandTrie, entry.brandId(), entry.quantitySold());
+        leave(categories, categoryTrie, entry.categoryId(), entry.quantitySold());
+    }
+
+    /**
+     * Cộng sản phẩm vào thương hiệu/danh mục. Nhãn đổi (đổi tên) hoặc tổng số lượng bán đổi thì đánh lại khóa
+     * với điểm mới
+     */
+    private static void join(Map<Long, Group> groups, PrefixTrie<Long> trie, Long id, String name, String slug,
+                             int quantitySold) {
+        if (id == null || name == null) {
+            return;
+        }
+        Group group = groups.get(id);
+        boolean rekey = group == null || !group.name.equals(name) || quantitySold != 0;
+        if (group == null) {
+            group = new Group();
+            groups.put(id, group);
+        } else if (rekey) {
+            unindex(trie, id, group);
+        }
+        group.name = name;
+        group.normalizedName = normalize(name);
+        group.slug = slug;
+        group.productCount++;
+        group.totalSold += quantitySold;
+        if (rekey) {
+            for (String key : keys(group.normalizedName)) {
+                trie.add(key, id, group.totalSold);
+            }
+        }
+    }
+
+    private static void leave(Map<Long, Group> groups, PrefixTrie<Long> trie, Long id, int quantitySold) {
+        Group group = id != null ? groups.get(id) : null;
+        if (group == null) {
+            return;
+        }
+        if (--group.productCount <= 0) {
+            groups.remove(id);
+            unindex(trie, id, group);
+        } else if (quantitySold != 0) {
+            unindex(trie, id, group);
+            group.totalSold -= quantitySold;
+            for (String key : keys(group.normalizedName)) {
+                trie.add(key, id, group.totalSold);
+            }
+        }
+    }
+
+    private static void unindex(PrefixTrie<Long> trie, Long id, Group group) {
+        for (String key : keys(group.normalizedName)) {
+            trie.remove(key, id);
+        }
+    }
+
+    /**
+     * Bỏ dấu, chữ thường, mọi ký tự không phải chữ/số thành một khoảng trắng
+     */
+    private static String normalize(String text) {
+        return NON_ALPHANUMERIC.matcher(SearchTextAnalyzer.fold(text)).replaceAll(" ").trim();
+    }
+
+    /**
+     * Các khóa của nhãn: phần nhãn bắt đầu từ mỗi đầu từ, cắt ở MAX_KEY_LENGTH
+     */
+    private static Set<String> keys(String normalized) {
+        Set<String> keys = new HashSet<>();
+        for (int i = 0; i < normalized.length(); i++) {
+            if (i == 0 || normalized.charAt(i - 1) == ' ') {
+                keys.add(truncate(normalized.substring(i)));
+            }
+        }
+        return keys;
+    }
+
+    private static String truncate(String key) {
+        return key.length() > MAX_KEY_LENGTH ? key.substring(0, MAX_KEY_LENGTH) : key;
+    }
+
+    private static boolean matchesWordStart(String normalized, String prefix) {
+        int index = normalized.indexOf(prefix);
+        while (index >= 0) {
+            if (index == 0 || normalized.charAt(index - 1) == ' ') {
+                return true;
+            }
+            index = normalized.indexOf(prefix, index + 1);
+        }
+        return false;
+    }
+
+    private interface Labeled {
+        String normalizedLabel();
+
+        default boolean matches(String prefix) {
+            return matchesWordStart(normalizedLabel(), prefix);
+        }
+    }
+
+    private record ProductEntry(String name, String slug, String normalizedName, int quantitySold,
+                                Long brandId, Long categoryId) implements Labeled {
+        @Override
+        public String normalizedLabel() {
+            return normalizedName;
+        }
+    }
+
+    private static final class Group implements Labeled {
+        private String name;
+        private String slug;
+        private String normalizedName;
+        private int productCount;
+        private long totalSold;
+
+        @Override
+        public String normalizedLabel() {
+            return normalizedName;
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package com.example.backend.service.impl;
+
+import com.example.backend.event.CategoryChangedEvent;
+import com.example.backend.event.ProductChangedEvent;
+import com.example.backend.repository.ProductIndexRow;
+import com.example.backend.repository.ProductRepository;
+import com.example.backend.util.SpecificationValues;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Cache các giá trị thông số kỹ thuật (đã sắp xếp) theo danh mục, phục vụ bộ lọc ở sidebar.
+ * Mỗi danh mục giữ số sản phẩm cho từng (key, giá trị) của chính nó và toàn bộ danh mục con;
+ * khi sản phẩm được tạo/sửa/xóa/đổi danh mục, số đếm được cộng/trừ cho danh mục và mọi tổ tiên ngay lúc ghi.
+ * Đọc chỉ là tra map; kết quả dạng danh sách được ghi nhớ cho đến lần ghi tiếp theo vào danh mục đó
+ */
+@Service
+@Slf4j
+public class SpecificationFacetCache {
+
+    private final ProductRepository productRepository;
+    private final CategoryTree categoryTree;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    // Đọc và áp dụng của refresh chạy tuần tự để dòng cũ không ghi đè dòng mới (như CatalogIndex)
+    private final Object refreshMutex = new Object();
+
+    // Các (key, giá trị) đã ghi nhận của từng sản phẩm, để trừ đúng khi sản phẩm thay đổi
+    private final Map<Long, IndexedProduct> products = new HashMap<>();
+    // categoryId -> key -> giá trị (sắp xếp) -> số sản phẩm, đã cộng dồn từ danh mục con
+    private final Map<Long, Map<String, TreeMap<String, Integer>>> rollup = new HashMap<>();
+    private final Map<Long, Map<String, List<String>>> views = new ConcurrentHashMap<>();
+
+    private volatile boolean loaded;
+    // Cây danh mục đã đổi: số đếm cộng dồn cần tính lại theo cây mới ở lần đọc kế tiếp
+    private volatile boolean rollupStale;
+
+    public SpecificationFacetCache(ProductRepository productRepository, CategoryTree categoryTree) {
+        this.productRepository = productRepository;
+        this.categoryTree = categoryTree;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        lock.writeLock().lock();
+        try {
+            long start = System.currentTimeMillis();
+            products.clear();
+            for (ProductIndexRow row : productRepository.findAllIndexRows()) {
+                IndexedProduct product = toIndexedProduct(row);
+                if (product != null) {
+                    products.put(row.getId(), product);
+                }
+            }
+            rebuildRollup();
+            loaded = true;
+            log.info("Specification facet cache built for {} products in {} ms", products.size(),
+                    System.currentTimeMillis() - start);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        // Tồn kho/số lượng bán không ảnh hưởng tới thông số kỹ thuật
+        if (!loaded || event.getType() == ProductChangedEvent.Type.STOCK_CHANGED || event.getProductIds().isEmpty()) {
+            return;
+        }
+        refresh(event.getProductIds());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCategoryChanged(CategoryChangedEvent event) {
+        rollupStale = true;
+    }
+
+    /**
+     * Các giá trị thông số kỹ thuật của danh mục và danh mục con, mỗi key một danh sách đã sắp xếp
+     */
+    public Map<String, List<String>> getSpecifications(Long categoryId) {
+        if (!loaded) {
+            load();
+        }
+        if (rollupStale) {
+            lock.writeLock().lock();
+            try {
+                if (rollupStale) {
+                    rebuildRollup();
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        Map<String, List<String>> view = views.get(categoryId);
+        if (view != null) {
+            return view;
+        }
+        lock.readLock().lock();
+        try {
+            Map<String, List<String>> result = new HashMap<>();
+            rollup.getOrDefault(categoryId, Map.of())
+                    .forEach((key, counts) -> result.put(key, List.copyOf(counts.keySet())));
+            view = Collections.unmodifiableMap(result);
+            views.put(categoryId, view);
+            return view;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void refresh(Collection<Long> productIds) {
+        synchronized (refreshMutex) {
+            List<ProductIndexRow> rows = productRepository.findIndexRowsByIdIn(productIds);
+
+            lock.writeLock().lock();
+            try {
+                Set<Long> missing = new HashSet<>(productIds);
+                for (ProductIndexRow row : rows) {
+                    missing.remove(row.getId());
+                    apply(products.remove(row.getId()), -1);
+                    IndexedProduct product = toIndexedProduct(row);
+                    if (product != null) {
+                        products.put(row.getId(), product);
+                        apply(product, 1);
+                    }
+                }
+                for (Long id : missing) {
+                    apply(products.remove(id), -1);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    private void rebuildRollup() {
+        rollupStale = false;
+        rollup.clear();
+        views.clear();
+        for (IndexedProduct product : products.values()) {
+            apply(product, 1);
+        }
+    }
+
+    /**
+     * Cộng (delta = 1) hoặc trừ (delta = -1) các giá trị của sản phẩm vào danh mục của nó và mọi tổ tiên
+     */
+    private void apply(IndexedProduct product, int delta) {
+        if (product == null) {
+            return;
+        }
+        List<Long> categoryIds = new ArrayList<>(categoryTree.getAncestorIds(product.categoryId()));
+        categoryIds.add(product.categoryId());
+
+        for (Long categoryId : categoryIds) {
+            Map<String, TreeMap<String, Integer>> keys = rollup.computeIfAbsent(categoryId, k -> new HashMap<>());
+            for (SpecTerm term : product.terms()) {
+                TreeMap<String, Integer> counts = keys.computeIfAbsent(term.key(), k -> new TreeMap<>());
+                if (counts.merge(term.value(), delta, Integer::sum) <= 0) {
+                    counts.remove(term.value());
+                    if (counts.isEmpty()) {
+                        keys.remove(term.key());
+                    }
+                }
+            }
+            views.remove(categoryId);
+        }
+    }
+
+    private static IndexedProduct toIndexedProduct(ProductIndexRow row) {
+        if (row.getCategoryId() == null || row.getSpecifications() == null || row.getSpecifications().isEmpty()) {
+            return null;
+        }
+        Set<SpecTerm> terms = new LinkedHashSet<>();
+        for (Map.Entry<String, Object> entry : row.getSpecifications().entrySet()) {
+            for (String value : SpecificationValues.valuesOf(entry.getValue())) {
+                terms.add(new SpecTerm(entry.getKey(), value));
+            }
+        }
+        return new IndexedProduct(row.getCategoryId(), List.copyOf(terms));
+    }
+
+    private record IndexedProduct(Long categoryId, List<SpecTerm> terms) {
+    }
+
+    private record SpecTerm(String key, String value) {
+    }
+}
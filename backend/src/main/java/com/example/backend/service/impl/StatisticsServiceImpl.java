@@ -22,6 +22,7 @@ public class StatisticsServiceImpl implements StatisticsService {
     private final OrderRepository orderRepository;
     private final UserRepository userRepository;
     private final ProductRepository productRepository;
+    private final ProductDetailCache productDetailCache;
 
     @Override
     public Map<String, Object> getDashboardStatistics() {
@@ -346,4 +347,9 @@ public class StatisticsServiceImpl implements StatisticsService {
         
         return orderMap;
     }
-} 
\ No newline at end of file
+
+    @Override
+    public Map<String, Object> getProductCacheStatistics() {
+        return productDetailCache.getStats();
+    }
+}
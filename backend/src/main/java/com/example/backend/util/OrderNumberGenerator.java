@@ -0,0 +1,68 @@
+package com.example.backend.util;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Sinh mã đơn hàng kiểu Snowflake, không cần truy vấn database:
+ * "OD" + thời gian yyMMddHHmmssSSS (giờ Việt Nam) + mã node 3 chữ số + số thứ tự trong mili giây 3 chữ số,
+ * ví dụ OD250412093015123007042 (12/04/2025 09:30:15.123, node 7, số thứ tự 42). Mã tăng dần theo thời gian.
+ *
+ * Trạng thái là một số long duy nhất (mili giây * 1000 + số thứ tự), cập nhật bằng compareAndSet:
+ * giá trị mới = max(thời gian hiện tại * 1000, giá trị trước + 1). Vì vậy trong một JVM mã luôn tăng ngặt,
+ * kể cả khi đồng hồ bị lùi hoặc có hơn 1000 mã trong một mili giây (khi đó mượn tạm mili giây kế tiếp).
+ * Hai JVM khác nhau không trùng mã nếu được cấu hình mã node khác nhau
+ */
+public final class OrderNumberGenerator {
+
+    public static final String PREFIX = "OD";
+    public static final int MAX_NODE_ID = 999;
+
+    private static final int SEQUENCE_PER_MILLI = 1000;
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("yyMMddHHmmssSSS")
+            // Múi giờ không có giờ mùa hè: hai mili giây khác nhau không bao giờ ra cùng một chuỗi thời gian
+            .withZone(ZoneId.of("Asia/Ho_Chi_Minh"));
+
+    private final String node;
+    private final LongSupplier clock;
+    private final AtomicLong last = new AtomicLong();
+
+    public OrderNumberGenerator(int nodeId) {
+        this(nodeId, System::currentTimeMillis);
+    }
+
+    /**
+     * @param nodeId mã node 0..999, mỗi instance backend một giá trị riêng
+     * @param clock  nguồn thời gian (mili giây epoch)
+     */
+    public OrderNumberGenerator(int nodeId, LongSupplier clock) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("Mã node phải nằm trong khoảng 0.." + MAX_NODE_ID + ": " + nodeId);
+        }
+        this.node = String.format("%03d", nodeId);
+        this.clock = clock;
+    }
+
+    public String next() {
+        long previous;
+        long current;
+        do {
+            previous = last.get();
+            current = Math.max(clock.getAsLong() * SEQUENCE_PER_MILLI, previous + 1);
+        } while (!last.compareAndSet(previous, current));
+
+        long millis = current / SEQUENCE_PER_MILLI;
+        int sequence = (int) (current % SEQUENCE_PER_MILLI);
+        StringBuilder builder = new StringBuilder(PREFIX.length() + 21);
+        builder.append(PREFIX);
+        TIME_FORMAT.formatTo(Instant.ofEpochMilli(millis), builder);
+        builder.append(node);
+        if (sequence < 100) {
+            builder.append(sequence < 10 ? "00" : "0");
+        }
+        return builder.append(sequence).toString();
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.backend.util;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Danh sách id tăng dần được nén bằng delta + varint (mỗi khoảng cách giữa hai id liên tiếp chiếm 1-5 byte).
+ * Dùng cho chỉ mục ngược, nơi phần lớn danh sách ngắn và thưa nên rẻ hơn nhiều so với một BitSet đầy đủ.
+ * Thêm id lớn hơn id cuối chỉ là ghi nối; các thay đổi khác giải nén, sửa và nén lại (chỉ xảy ra khi ghi).
+ * Không an toàn luồng - nơi sử dụng tự đồng bộ
+ */
+public final class PostingList {
+
+    private static final byte[] EMPTY = new byte[0];
+
+    private byte[] data = EMPTY;
+    private int length;
+    private int size;
+    private int last = -1;
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean add(int id) {
+        if (id > last) {
+            append(id);
+            return true;
+        }
+        int[] ids = toArray();
+        int position = Arrays.binarySearch(ids, id);
+        if (position >= 0) {
+            return false;
+        }
+        int insertAt = -position - 1;
+        int[] updated = new int[ids.length + 1];
+        System.arraycopy(ids, 0, updated, 0, insertAt);
+        updated[insertAt] = id;
+        System.arraycopy(ids, insertAt, updated, insertAt + 1, ids.length - insertAt);
+        encode(updated);
+        return true;
+    }
+
+    public boolean remove(int id) {
+        if (id > last) {
+            return false;
+        }
+        int[] ids = toArray();
+        int position = Arrays.binarySearch(ids, id);
+        if (position < 0) {
+            return false;
+        }
+        int[] updated = new int[ids.length - 1];
+        System.arraycopy(ids, 0, updated, 0, position);
+        System.arraycopy(ids, position + 1, updated, position, ids.length - position - 1);
+        encode(updated);
+        return true;
+    }
+
+    /**
+     * Hợp danh sách vào BitSet đích (target |= this)
+     */
+    public void orInto(BitSet target) {
+        int position = 0;
+        int current = 0;
+        while (position < length) {
+            int delta = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = data[position++];
+                delta |= (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            current += delta;
+            target.set(current);
+        }
+    }
+
+    public int[] toArray() {
+        int[] ids = new int[size];
+        int position = 0;
+        int current = 0;
+        for (int i = 0; i < size; i++) {
+            int delta = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = data[position++];
+                delta |= (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            current += delta;
+            ids[i] = current;
+        }
+        return ids;
+    }
+
+    private void encode(int[] ids) {
+        data = EMPTY;
+        length = 0;
+        size = 0;
+        last = -1;
+        for (int id : ids) {
+            append(id);
+        }
+    }
+
+    private void append(int id) {
+        // Id đầu tiên được ghi nguyên giá trị (delta so với 0)
+        int delta = size == 0 ? id : id - last;
+        if (length + 5 > data.length) {
+            data = Arrays.copyOf(data, Math.max(8, data.length * 2));
+        }
+        while ((delta & ~0x7F) != 0) {
+            data[length++] = (byte) ((delta & 0x7F) | 0x80);
+            delta >>>= 7;
+        }
+        data[length++] = (byte) delta;
+        last = id;
+        size++;
+    }
+}
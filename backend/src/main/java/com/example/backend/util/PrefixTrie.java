@@ -0,0 +1,302 @@
+package com.example.backend.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Cây tiền tố (trie) gọn cho gợi ý tự động hoàn thành.
+ * Mỗi nút chỉ giữ mảng ký tự con đã sắp xếp và mảng nút con tương ứng (tìm nhị phân), không dùng HashMap
+ * cho từng nút nên tốn ít bộ nhớ. Một giá trị có thể gắn với nhiều khóa (ví dụ mỗi từ trong tên sản phẩm).
+ *
+ * Mỗi giá trị có một điểm xếp hạng. Mỗi nút giữ sẵn tối đa topSize giá trị điểm cao nhất trong cây con của nó
+ * (đã sắp xếp, mỗi giá trị một lần), cập nhật khi thêm/xóa theo đường đi từ nút của khóa lên gốc,
+ * nên top() chỉ đi xuống nút của tiền tố rồi đọc danh sách có sẵn, không duyệt cây con.
+ * Một giá trị phải có cùng điểm ở mọi khóa; muốn đổi điểm thì xóa khỏi mọi khóa rồi thêm lại.
+ * Không an toàn luồng - nơi sử dụng tự đồng bộ
+ */
+public final class PrefixTrie<V> {
+
+    private static final char[] NO_KEYS = new char[0];
+
+    private final int topSize;
+    // Điểm giảm dần, bằng điểm thì theo tieBreak giảm dần
+    private final Comparator<Ranked<V>> order;
+    private final Node<V> root = new Node<>();
+    private int nodeCount = 1;
+
+    /**
+     * @param topSize  số giá trị giữ sẵn ở mỗi nút, cũng là limit lớn nhất của top()
+     * @param tieBreak thứ tự giữa các giá trị cùng điểm (giá trị lớn hơn đứng trước)
+     */
+    public PrefixTrie(int topSize, Comparator<? super V> tieBreak) {
+        if (topSize <= 0) {
+            throw new IllegalArgumentException("topSize phải lớn hơn 0");
+        }
+        this.topSize = topSize;
+        this.order = Comparator.<Ranked<V>>comparingLong(Ranked::score)
+                .thenComparing(Ranked::value, tieBreak)
+                .reversed();
+    }
+
+    public void add(String key, V value, long score) {
+        Node<V>[] path = newPath(key.length());
+        Node<V> node = root;
+        path[0] = node;
+        for (int i = 0; i < key.length(); i++) {
+            node = node.childOrCreate(key.charAt(i), this);
+            path[i + 1] = node;
+        }
+        Ranked<V> existing = find(node.values, value);
+        if (existing != null) {
+            if (existing.score() == score) {
+                return;
+            }
+            remove(key, value);
+            add(key, value, score);
+            return;
+        }
+        Ranked<V> ranked = new Ranked<>(value, score);
+        if (node.values == null) {
+            node.values = new ArrayList<>(1);
+        }
+        insertSorted(node.values, ranked);
+
+        // Đưa lên danh sách top của các nút trên đường đi; nút nào không nhận thì các nút phía trên
+        // (có danh sách top tốt hơn hoặc bằng) cũng không nhận
+        for (int i = key.length(); i >= 0; i--) {
+            if (!offer(path[i], ranked)) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Bỏ giá trị khỏi khóa, cắt các nút không còn dùng và tính lại danh sách top của các nút từng chứa giá trị
+     */
+    public void remove(String key, V value) {
+        Node<V>[] path = newPath(key.length());
+        Node<V> node = root;
+        path[0] = node;
+        for (int i = 0; i < key.length() && node != null; i++) {
+            node = node.child(key.charAt(i));
+            path[i + 1] = node;
+        }
+        Ranked<V> existing = node != null ? find(node.values, value) : null;
+        if (existing == null) {
+            return;
+        }
+        node.values.remove(existing);
+        if (node.values.isEmpty()) {
+            node.values = null;
+        }
+
+        for (int i = key.length(); i >= 0; i--) {
+            Node<V> current = path[i];
+            if (i > 0 && current.isEmpty()) {
+                path[i - 1].removeChild(key.charAt(i - 1));
+                nodeCount--;
+                continue;
+            }
+            if (find(current.top, value) == null) {
+                // Danh sách top của nút này không đổi nên của các nút phía trên cũng không đổi
+                break;
+            }
+            recompute(current);
+        }
+    }
+
+    public void clear() {
+        root.keys = NO_KEYS;
+        root.children = null;
+        root.values = null;
+        root.top = null;
+        nodeCount = 1;
+    }
+
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * limit giá trị điểm cao nhất trong số các giá trị có khóa bắt đầu bằng prefix, đọc từ danh sách giữ sẵn ở nút
+     * của prefix. limit lớn hơn topSize chỉ trả về topSize giá trị
+     * @return danh sách giảm dần theo điểm, mỗi giá trị xuất hiện một lần
+     */
+    public List<V> top(String prefix, int limit) {
+        Node<V> node = find(prefix);
+        if (node == null || node.top == null || limit <= 0) {
+            return List.of();
+        }
+        int size = Math.min(limit, node.top.size());
+        List<V> result = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            result.add(node.top.get(i).value());
+        }
+        return result;
+    }
+
+    /**
+     * Các giá trị gắn đúng với key (không gồm khóa dài hơn), giảm dần theo điểm
+     */
+    public List<V> values(String key) {
+        Node<V> node = find(key);
+        if (node == null || node.values == null) {
+            return List.of();
+        }
+        List<V> result = new ArrayList<>(node.values.size());
+        for (Ranked<V> ranked : node.values) {
+            result.add(ranked.value());
+        }
+        return result;
+    }
+
+    private Node<V> find(String prefix) {
+        Node<V> node = root;
+        for (int i = 0; i < prefix.length() && node != null; i++) {
+            node = node.child(prefix.charAt(i));
+        }
+        return node;
+    }
+
+    /**
+     * Thêm vào danh sách top của nút nếu đủ điểm
+     * @return false nếu giá trị đã có sẵn hoặc không đủ điểm (danh sách không đổi)
+     */
+    private boolean offer(Node<V> node, Ranked<V> ranked) {
+        if (node.top == null) {
+            node.top = new ArrayList<>(1);
+        }
+        if (find(node.top, ranked.value()) != null) {
+            return false;
+        }
+        if (node.top.size() >= topSize) {
+            if (order.compare(ranked, node.top.get(topSize - 1)) >= 0) {
+                return false;
+            }
+            node.top.remove(topSize - 1);
+        }
+        insertSorted(node.top, ranked);
+        return true;
+    }
+
+    /**
+     * Dựng lại danh sách top của nút từ giá trị của chính nó và danh sách top của các nút con
+     */
+    private void recompute(Node<V> node) {
+        List<Ranked<V>> candidates = new ArrayList<>();
+        if (node.values != null) {
+            candidates.addAll(node.values);
+        }
+        if (node.children != null) {
+            for (Node<V> child : node.children) {
+                if (child.top != null) {
+                    candidates.addAll(child.top);
+                }
+            }
+        }
+        candidates.sort(order);
+        List<Ranked<V>> top = new ArrayList<>(Math.min(topSize, candidates.size()));
+        Set<V> seen = new HashSet<>();
+        for (Ranked<V> candidate : candidates) {
+            if (top.size() >= topSize) {
+                break;
+            }
+            if (seen.add(candidate.value())) {
+                top.add(candidate);
+            }
+        }
+        node.top = top.isEmpty() ? null : top;
+    }
+
+    private void insertSorted(List<Ranked<V>> list, Ranked<V> ranked) {
+        int index = 0;
+        while (index < list.size() && order.compare(list.get(index), ranked) < 0) {
+            index++;
+        }
+        list.add(index, ranked);
+    }
+
+    private static <V> Ranked<V> find(List<Ranked<V>> list, V value) {
+        if (list != null) {
+            for (Ranked<V> ranked : list) {
+                if (ranked.value().equals(value)) {
+                    return ranked;
+                }
+            }
+        }
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <V> Node<V>[] newPath(int length) {
+        return new Node[length + 1];
+    }
+
+    private record Ranked<V>(V value, long score) {
+    }
+
+    private static final class Node<V> {
+        private char[] keys = NO_KEYS;
+        private Node<V>[] children;
+        private List<Ranked<V>> values;
+        private List<Ranked<V>> top;
+
+        Node<V> child(char c) {
+            int index = Arrays.binarySearch(keys, c);
+            return index >= 0 ? children[index] : null;
+        }
+
+        @SuppressWarnings("unchecked")
+        Node<V> childOrCreate(char c, PrefixTrie<V> trie) {
+            int index = Arrays.binarySearch(keys, c);
+            if (index >= 0) {
+                return children[index];
+            }
+            int insertAt = -index - 1;
+            Node<V> child = new Node<>();
+            char[] newKeys = new char[keys.length + 1];
+            Node<V>[] newChildren = new Node[keys.length + 1];
+            System.arraycopy(keys, 0, newKeys, 0, insertAt);
+            System.arraycopy(keys, insertAt, newKeys, insertAt + 1, keys.length - insertAt);
+            newKeys[insertAt] = c;
+            if (children != null) {
+                System.arraycopy(children, 0, newChildren, 0, insertAt);
+                System.arraycopy(children, insertAt, newChildren, insertAt + 1, keys.length - insertAt);
+            }
+            newChildren[insertAt] = child;
+            keys = newKeys;
+            children = newChildren;
+            trie.nodeCount++;
+            return child;
+        }
+
+        @SuppressWarnings("unchecked")
+        void removeChild(char c) {
+            int index = Arrays.binarySearch(keys, c);
+            if (index < 0) {
+                return;
+            }
+            if (keys.length == 1) {
+                keys = NO_KEYS;
+                children = null;
+                return;
+            }
+            char[] newKeys = new char[keys.length - 1];
+            Node<V>[] newChildren = new Node[keys.length - 1];
+            System.arraycopy(keys, 0, newKeys, 0, index);
+            System.arraycopy(keys, index + 1, newKeys, index, keys.length - index - 1);
+            System.arraycopy(children, 0, newChildren, 0, index);
+            System.arraycopy(children, index + 1, newChildren, index, keys.length - index - 1);
+            keys = newKeys;
+            children = newChildren;
+        }
+
+        boolean isEmpty() {
+            return values == null && keys.length == 0;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.backend.util;
+
+import com.example.backend.model.Product;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Tính giá dùng chung cho lọc/sắp xếp sản phẩm, giỏ hàng và đơn hàng.
+ * Tiền được biểu diễn bằng long theo đơn vị nhỏ nhất (1/100), giảm giá theo basis point (1/100 của 1%),
+ * nên các phép tính trên đường nóng chỉ là số học nguyên, không tạo BigDecimal.
+ * BigDecimal chỉ xuất hiện ở biên: khi đọc giá gốc từ entity và khi trả kết quả ra DTO/entity
+ */
+public final class PriceCalculator {
+
+    public static final int MINOR_UNIT_SCALE = 2;
+
+    private static final long BASIS_POINTS = 10_000L;
+
+    private PriceCalculator() {
+    }
+
+    /**
+     * Giá sau giảm giá (đơn vị nhỏ nhất), làm tròn HALF_UP
+     */
+    public static long effectivePrice(long priceMinorUnits, Float discountPercent) {
+        long discountBasisPoints = discountPercent != null ? Math.round(discountPercent * 100.0f) : 0L;
+        discountBasisPoints = Math.max(0L, Math.min(BASIS_POINTS, discountBasisPoints));
+        return (priceMinorUnits * (BASIS_POINTS - discountBasisPoints) + BASIS_POINTS / 2) / BASIS_POINTS;
+    }
+
+    public static long effectivePrice(BigDecimal price, Float discountPercent) {
+        return price != null ? effectivePrice(toMinorUnits(price), discountPercent) : 0L;
+    }
+
+    /**
+     * Giá sau giảm của sản phẩm: dùng cột effective_price đã lưu, chỉ tính lại khi chưa có
+     */
+    public static long effectivePrice(Product product) {
+        Long stored = product.getEffectivePrice();
+        return stored != null ? stored : effectivePrice(product.getPrice(), product.getDiscount());
+    }
+
+    public static long subtotal(long unitPriceMinorUnits, int quantity) {
+        return Math.multiplyExact(unitPriceMinorUnits, (long) quantity);
+    }
+
+    public static long toMinorUnits(BigDecimal amount) {
+        return amount.setScale(MINOR_UNIT_SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    /**
+     * Chuyển giá trị lọc từ request sang đơn vị nhỏ nhất: cận dưới làm tròn lên (CEILING), cận trên làm tròn xuống (FLOOR)
+     */
+    public static long toMinorUnits(double amount, RoundingMode roundingMode) {
+        return BigDecimal.valueOf(amount).setScale(MINOR_UNIT_SCALE, roundingMode).unscaledValue().longValueExact();
+    }
+
+    public static BigDecimal toAmount(long minorUnits) {
+        return BigDecimal.valueOf(minorUnits, MINOR_UNIT_SCALE);
+    }
+}
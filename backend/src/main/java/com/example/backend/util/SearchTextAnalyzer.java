@@ -0,0 +1,130 @@
+package com.example.backend.util;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Phân tích văn bản cho tìm kiếm sản phẩm.
+ * - Bỏ dấu tiếng Việt và chuyển về chữ thường ("Bàn phím Đen" -> "ban phim den")
+ * - Tách từ theo khoảng trắng, mỗi từ lại tách theo ký tự không phải chữ/số ("i7-13700H" -> "i7", "13700h")
+ * - Sinh thêm term ghép cho mã model: ghép các phần của cùng một từ ("i713700h") và ghép chữ + số
+ *   đứng liền nhau ("RTX 4060" -> "rtx4060"), để "rtx4060", "RTX 4060" hay "RTX-4060" đều khớp nhau
+ */
+public final class SearchTextAnalyzer {
+
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final Pattern NON_ALPHANUMERIC = Pattern.compile("[^a-z0-9]+");
+
+    private SearchTextAnalyzer() {
+    }
+
+    public static String fold(String text) {
+        if (text == null) {
+            return "";
+        }
+        String lower = text.toLowerCase(Locale.ROOT).replace('đ', 'd');
+        return COMBINING_MARKS.matcher(Normalizer.normalize(lower, Normalizer.Form.NFD)).replaceAll("");
+    }
+
+    /**
+     * Các term để đánh chỉ mục, giữ trùng lặp để tính tần suất
+     */
+    public static List<String> indexTerms(String text) {
+        List<String> terms = new ArrayList<>();
+        List<String[]> words = words(text);
+        for (int w = 0; w < words.size(); w++) {
+            String[] parts = words.get(w);
+            for (String part : parts) {
+                terms.add(part);
+            }
+            if (parts.length > 1) {
+                terms.add(String.join("", parts));
+            }
+            String adjacent = adjacentJoin(words, w);
+            if (adjacent != null) {
+                terms.add(adjacent);
+            }
+        }
+        return terms;
+    }
+
+    /**
+     * Các mệnh đề của câu truy vấn: mỗi phần của từ là một mệnh đề (AND giữa các mệnh đề),
+     * gồm chính phần đó và các term ghép có chứa nó (OR trong mệnh đề)
+     */
+    public static List<Set<String>> queryClauses(String query) {
+        List<Set<String>> clauses = new ArrayList<>();
+        List<String[]> words = words(query);
+        Set<String> previousLast = null;
+        for (int w = 0; w < words.size(); w++) {
+            String[] parts = words.get(w);
+            String joined = parts.length > 1 ? String.join("", parts) : null;
+            List<Set<String>> wordClauses = new ArrayList<>();
+            for (String part : parts) {
+                Set<String> clause = new LinkedHashSet<>();
+                clause.add(part);
+                if (joined != null) {
+                    clause.add(joined);
+                }
+                wordClauses.add(clause);
+            }
+
+            // Term ghép giữa từ trước và từ hiện tại thỏa cả hai mệnh đề ở hai bên
+            String adjacent = w > 0 ? adjacentJoin(words, w - 1) : null;
+            if (adjacent != null && previousLast != null) {
+                previousLast.add(adjacent);
+                wordClauses.get(0).add(adjacent);
+            }
+
+            clauses.addAll(wordClauses);
+            previousLast = wordClauses.get(wordClauses.size() - 1);
+        }
+        return clauses;
+    }
+
+    /**
+     * Các phần từ của văn bản theo thứ tự, không sinh term ghép
+     */
+    public static List<String> parts(String text) {
+        List<String> parts = new ArrayList<>();
+        for (String[] word : words(text)) {
+            parts.addAll(List.of(word));
+        }
+        return parts;
+    }
+
+    private static List<String[]> words(String text) {
+        List<String[]> words = new ArrayList<>();
+        for (String word : WHITESPACE.split(fold(text))) {
+            String[] parts = NON_ALPHANUMERIC.splitAsStream(word)
+                    .filter(part -> !part.isEmpty())
+                    .toArray(String[]::new);
+            if (parts.length > 0) {
+                words.add(parts);
+            }
+        }
+        return words;
+    }
+
+    /**
+     * Ghép phần cuối của từ w (toàn chữ cái) với phần đầu của từ w + 1 (bắt đầu bằng số), ví dụ "rtx" + "4060"
+     */
+    private static String adjacentJoin(List<String[]> words, int w) {
+        if (w + 1 >= words.size()) {
+            return null;
+        }
+        String[] current = words.get(w);
+        String last = current[current.length - 1];
+        String next = words.get(w + 1)[0];
+        if (last.chars().allMatch(Character::isLetter) && Character.isDigit(next.charAt(0))) {
+            return last + next;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.backend.util;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Gộp các lời gọi giống nhau đang chạy đồng thời (single-flight): lời gọi đầu tiên với một khóa thực sự tính toán,
+ * các lời gọi cùng khóa đến sau chờ và dùng chung kết quả. Kết quả được giữ thêm ttl sau khi tính xong
+ * để gộp cả các yêu cầu đến sát nhau; ttl = 0 thì chỉ gộp các lời gọi đang chạy.
+ * Lỗi không được giữ lại: mọi lời gọi đang chờ nhận cùng ngoại lệ, lời gọi sau sẽ tính lại
+ */
+public final class SingleFlight<K, V> {
+
+    // Số khóa tối đa trước khi dọn các kết quả đã hết hạn
+    private static final int PURGE_THRESHOLD = 1024;
+
+    private final long ttlNanos;
+    private final ConcurrentHashMap<K, Call<V>> calls = new ConcurrentHashMap<>();
+    private final LongAdder executions = new LongAdder();
+    private final LongAdder shared = new LongAdder();
+
+    public SingleFlight(long ttlMillis) {
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+    }
+
+    @FunctionalInterface
+    public interface Loader<V> {
+        V load() throws Throwable;
+    }
+
+    public V execute(K key, Loader<V> loader) throws Throwable {
+        while (true) {
+            Call<V> call = calls.get(key);
+            if (call != null && call.isExpired(ttlNanos)) {
+                calls.remove(key, call);
+                call = null;
+            }
+            if (call == null) {
+                Call<V> created = new Call<>();
+                call = calls.putIfAbsent(key, created);
+                if (call == null) {
+                    return lead(key, created, loader);
+                }
+            }
+            if (!call.isExpired(ttlNanos)) {
+                shared.increment();
+                return call.await();
+            }
+        }
+    }
+
+    /**
+     * Bỏ mọi kết quả đang giữ (dữ liệu đã thay đổi); lời gọi đang chạy vẫn trả kết quả cho người đang chờ
+     * nhưng không được giữ lại cho lời gọi sau
+     */
+    public void invalidate() {
+        calls.clear();
+    }
+
+    public long getExecutions() {
+        return executions.sum();
+    }
+
+    public long getShared() {
+        return shared.sum();
+    }
+
+    private V lead(K key, Call<V> call, Loader<V> loader) throws Throwable {
+        executions.increment();
+        if (calls.size() > PURGE_THRESHOLD) {
+            calls.values().removeIf(existing -> existing.isExpired(ttlNanos));
+        }
+        try {
+            V value = loader.load();
+            call.completedAt = System.nanoTime();
+            if (ttlNanos <= 0) {
+                calls.remove(key, call);
+            }
+            call.future.complete(value);
+            return value;
+        } catch (Throwable e) {
+            calls.remove(key, call);
+            call.future.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private static final class Call<V> {
+        private final CompletableFuture<V> future = new CompletableFuture<>();
+        // 0 khi đang chạy
+        private volatile long completedAt;
+
+        boolean isExpired(long ttlNanos) {
+            long completed = completedAt;
+            return completed != 0 && System.nanoTime() - completed > ttlNanos;
+        }
+
+        V await() throws Throwable {
+            try {
+                return future.join();
+            } catch (CompletionException e) {
+                throw e.getCause() != null ? e.getCause() : e;
+            }
+        }
+    }
+}
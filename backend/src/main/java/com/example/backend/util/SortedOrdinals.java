@@ -0,0 +1,144 @@
+package com.example.backend.util;
+
+import java.util.Arrays;
+
+/**
+ * Danh sách ordinal được giữ sẵn theo thứ tự tăng dần của (khóa, khóa phụ), lưu dạng mảng song song.
+ * Đọc theo vị trí (đi xuôi hoặc ngược) không cần sắp xếp; tìm vị trí bắt đầu bằng tìm kiếm nhị phân.
+ * Thêm/xóa dịch phần đuôi mảng bằng System.arraycopy; đổi khóa của một phần tử chỉ dịch đoạn nằm giữa
+ * vị trí cũ và vị trí mới (cập nhật tại chỗ). Không an toàn luồng - nơi sử dụng tự đồng bộ
+ */
+public final class SortedOrdinals {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private long[] keys = new long[INITIAL_CAPACITY];
+    private long[] tieBreaks = new long[INITIAL_CAPACITY];
+    private int[] ordinals = new int[INITIAL_CAPACITY];
+    private int size;
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int ordinalAt(int position) {
+        return ordinals[position];
+    }
+
+    public long keyAt(int position) {
+        return keys[position];
+    }
+
+    public long tieBreakAt(int position) {
+        return tieBreaks[position];
+    }
+
+    public void add(int ordinal, long key, long tieBreak) {
+        if (size == keys.length) {
+            int capacity = keys.length * 2;
+            keys = Arrays.copyOf(keys, capacity);
+            tieBreaks = Arrays.copyOf(tieBreaks, capacity);
+            ordinals = Arrays.copyOf(ordinals, capacity);
+        }
+        int position = lowerBound(key, tieBreak);
+        int tail = size - position;
+        System.arraycopy(keys, position, keys, position + 1, tail);
+        System.arraycopy(tieBreaks, position, tieBreaks, position + 1, tail);
+        System.arraycopy(ordinals, position, ordinals, position + 1, tail);
+        set(position, ordinal, key, tieBreak);
+        size++;
+    }
+
+    public boolean remove(long key, long tieBreak) {
+        int position = indexOf(key, tieBreak);
+        if (position < 0) {
+            return false;
+        }
+        int tail = size - position - 1;
+        System.arraycopy(keys, position + 1, keys, position, tail);
+        System.arraycopy(tieBreaks, position + 1, tieBreaks, position, tail);
+        System.arraycopy(ordinals, position + 1, ordinals, position, tail);
+        size--;
+        return true;
+    }
+
+    /**
+     * Đổi khóa của phần tử (oldKey, tieBreak) thành newKey, chỉ dịch các phần tử nằm giữa vị trí cũ và mới
+     * @return false nếu không tìm thấy phần tử
+     */
+    public boolean move(long oldKey, long newKey, long tieBreak) {
+        int from = indexOf(oldKey, tieBreak);
+        if (from < 0) {
+            return false;
+        }
+        int ordinal = ordinals[from];
+        int to = lowerBound(newKey, tieBreak);
+        if (to > from) {
+            // Phần tử đi về sau: các phần tử (from, to) lùi lên một vị trí
+            to--;
+            System.arraycopy(keys, from + 1, keys, from, to - from);
+            System.arraycopy(tieBreaks, from + 1, tieBreaks, from, to - from);
+            System.arraycopy(ordinals, from + 1, ordinals, from, to - from);
+        } else if (to < from) {
+            System.arraycopy(keys, to, keys, to + 1, from - to);
+            System.arraycopy(tieBreaks, to, tieBreaks, to + 1, from - to);
+            System.arraycopy(ordinals, to, ordinals, to + 1, from - to);
+        }
+        set(to, ordinal, newKey, tieBreak);
+        return true;
+    }
+
+    /**
+     * Vị trí đầu tiên có (khóa, khóa phụ) >= (key, tieBreak)
+     */
+    public int lowerBound(long key, long tieBreak) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (compareAt(middle, key, tieBreak) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Vị trí đầu tiên có (khóa, khóa phụ) > (key, tieBreak)
+     */
+    public int upperBound(long key, long tieBreak) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (compareAt(middle, key, tieBreak) <= 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private int indexOf(long key, long tieBreak) {
+        int position = lowerBound(key, tieBreak);
+        return position < size && compareAt(position, key, tieBreak) == 0 ? position : -1;
+    }
+
+    private int compareAt(int position, long key, long tieBreak) {
+        int result = Long.compare(keys[position], key);
+        return result != 0 ? result : Long.compare(tieBreaks[position], tieBreak);
+    }
+
+    private void set(int position, int ordinal, long key, long tieBreak) {
+        keys[position] = key;
+        tieBreaks[position] = tieBreak;
+        ordinals[position] = ordinal;
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.backend.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Chuẩn hóa giá trị thông số kỹ thuật trong Product.specifications (JSON) thành danh sách chuỗi.
+ * Hỗ trợ 3 dạng: giá trị đơn (String/Number/Boolean), danh sách/mảng, và map (lấy các value)
+ */
+public final class SpecificationValues {
+
+    private SpecificationValues() {
+    }
+
+    public static List<String> valuesOf(Object value) {
+        List<String> result = new ArrayList<>();
+        if (value instanceof String || value instanceof Number || value instanceof Boolean) {
+            result.add(normalize(String.valueOf(value)));
+        } else if (value instanceof Object[]) {
+            addAll(Arrays.asList((Object[]) value), result);
+        } else if (value instanceof Collection) {
+            addAll((Collection<?>) value, result);
+        } else if (value instanceof Map) {
+            addAll(((Map<?, ?>) value).values(), result);
+        }
+        return result;
+    }
+
+    /**
+     * Chuẩn hóa giá trị dùng chung cho cả lúc đánh chỉ mục và lúc lọc
+     */
+    public static String normalize(String value) {
+        return value == null ? null : value.trim();
+    }
+
+    private static void addAll(Collection<?> items, List<String> result) {
+        for (Object item : items) {
+            result.add(normalize(String.valueOf(item)));
+        }
+    }
+}
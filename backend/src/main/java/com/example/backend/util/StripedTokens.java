@@ -0,0 +1,96 @@
+package com.example.backend.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bộ đếm suất (token) chia thành nhiều ô độc lập. Mỗi luồng lấy suất từ ô "nhà" của nó bằng compareAndSet,
+ * chỉ khi ô nhà không đủ mới lấy tiếp sang các ô khác, nên các luồng đồng thời hiếm khi tranh chấp cùng một ô.
+ * Không dùng khóa; lấy không đủ thì trả lại phần đã lấy và báo thất bại ngay.
+ * Khi chỉ còn ít suất nằm rải rác ở nhiều ô, hai yêu cầu đồng thời có thể cùng thất bại dù tổng vẫn đủ cho một
+ */
+public final class StripedTokens {
+
+    // Các ô cách nhau 8 long (64 byte) để hai ô không nằm chung một cache line
+    private static final int PADDING = 8;
+
+    private final AtomicLongArray cells;
+    private final int stripes;
+
+    /**
+     * @param total   tổng số suất, chia đều cho các ô (phần dư vào các ô đầu)
+     * @param stripes số ô
+     */
+    public StripedTokens(long total, int stripes) {
+        if (stripes <= 0) {
+            throw new IllegalArgumentException("stripes phải lớn hơn 0");
+        }
+        this.stripes = stripes;
+        this.cells = new AtomicLongArray(stripes * PADDING);
+        long share = Math.max(0, total) / stripes;
+        long remainder = Math.max(0, total) % stripes;
+        for (int i = 0; i < stripes; i++) {
+            cells.set(i * PADDING, share + (i < remainder ? 1 : 0));
+        }
+    }
+
+    /**
+     * Lấy quantity suất (tất cả hoặc không)
+     * @return false nếu không đủ suất; khi đó không suất nào bị lấy
+     */
+    public boolean tryTake(long quantity) {
+        if (quantity <= 0) {
+            return true;
+        }
+        int home = home();
+        long needed = quantity;
+        for (int i = 0; i < stripes && needed > 0; i++) {
+            int index = ((home + i) % stripes) * PADDING;
+            long current;
+            while ((current = cells.get(index)) > 0) {
+                long take = Math.min(current, needed);
+                if (cells.compareAndSet(index, current, current - take)) {
+                    needed -= take;
+                    break;
+                }
+            }
+        }
+        if (needed == 0) {
+            return true;
+        }
+        long taken = quantity - needed;
+        if (taken > 0) {
+            put(taken);
+        }
+        return false;
+    }
+
+    /**
+     * Trả lại (hoặc thêm) quantity suất vào ô nhà của luồng hiện tại
+     */
+    public void put(long quantity) {
+        if (quantity > 0) {
+            cells.getAndAdd(home() * PADDING, quantity);
+        }
+    }
+
+    /**
+     * Tổng số suất còn lại; không phải ảnh chụp nguyên tử khi đang có luồng khác lấy/trả
+     */
+    public long available() {
+        long sum = 0;
+        for (int i = 0; i < stripes; i++) {
+            sum += cells.get(i * PADDING);
+        }
+        return sum;
+    }
+
+    public int stripes() {
+        return stripes;
+    }
+
+    private int home() {
+        // Trộn id luồng để các luồng có id liên tiếp rơi vào các ô khác nhau
+        long mixed = Thread.currentThread().threadId() * 0x9E3779B97F4A7C15L;
+        return Math.floorMod((int) (mixed >>> 32), stripes);
+    }
+}
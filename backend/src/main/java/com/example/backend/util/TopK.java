@@ -0,0 +1,114 @@
+package com.example.backend.util;
+
+import java.util.Arrays;
+
+/**
+ * Chọn k phần tử đầu tiên theo thứ tự (khóa, khóa phụ) mà không sắp xếp toàn bộ.
+ * Khóa được tính sẵn vào mảng long trước khi chọn, nên phép so sánh chỉ là so sánh số nguyên.
+ * Với k nhỏ so với n (trang đầu của danh sách) dùng heap giới hạn k phần tử: O(n log k) thay vì O(n log n);
+ * khi k gần bằng n thì sắp xếp toàn bộ mảng chỉ số
+ */
+public final class TopK {
+
+    private TopK() {
+    }
+
+    /**
+     * @param keys       khóa sắp xếp chính của n phần tử
+     * @param tieBreaks  khóa phụ khi khóa chính bằng nhau (cùng chiều với khóa chính)
+     * @param n          số phần tử dùng trong hai mảng
+     * @param k          số phần tử cần lấy
+     * @param ascending  true nếu tăng dần, false nếu giảm dần
+     * @return chỉ số (vào keys) của min(k, n) phần tử đầu tiên, đã theo đúng thứ tự
+     */
+    public static int[] select(long[] keys, long[] tieBreaks, int n, int k, boolean ascending) {
+        int size = Math.max(0, Math.min(k, n));
+        if (size == 0) {
+            return new int[0];
+        }
+        if (size * 2 >= n) {
+            return sortAll(keys, tieBreaks, n, ascending, size);
+        }
+
+        // Heap có phần tử "kém nhất" trong k phần tử tốt nhất ở gốc
+        int[] heap = new int[size];
+        for (int i = 0; i < size; i++) {
+            heap[i] = i;
+            siftUp(heap, i, keys, tieBreaks, ascending);
+        }
+        for (int i = size; i < n; i++) {
+            if (before(i, heap[0], keys, tieBreaks, ascending)) {
+                heap[0] = i;
+                siftDown(heap, 0, size, keys, tieBreaks, ascending);
+            }
+        }
+
+        // Lấy dần phần tử kém nhất ra cuối mảng: kết quả theo đúng thứ tự
+        for (int end = size - 1; end > 0; end--) {
+            int worst = heap[0];
+            heap[0] = heap[end];
+            heap[end] = worst;
+            siftDown(heap, 0, end, keys, tieBreaks, ascending);
+        }
+        return heap;
+    }
+
+    private static int[] sortAll(long[] keys, long[] tieBreaks, int n, boolean ascending, int size) {
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> compare(a, b, keys, tieBreaks, ascending));
+        int[] result = new int[size];
+        for (int i = 0; i < size; i++) {
+            result[i] = order[i];
+        }
+        return result;
+    }
+
+    /**
+     * Phần tử a đứng trước phần tử b trong kết quả
+     */
+    private static boolean before(int a, int b, long[] keys, long[] tieBreaks, boolean ascending) {
+        return compare(a, b, keys, tieBreaks, ascending) < 0;
+    }
+
+    private static int compare(int a, int b, long[] keys, long[] tieBreaks, boolean ascending) {
+        int result = Long.compare(keys[a], keys[b]);
+        if (result == 0) {
+            result = Long.compare(tieBreaks[a], tieBreaks[b]);
+        }
+        return ascending ? result : -result;
+    }
+
+    private static void siftUp(int[] heap, int index, long[] keys, long[] tieBreaks, boolean ascending) {
+        int item = heap[index];
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (!before(heap[parent], item, keys, tieBreaks, ascending)) {
+                break;
+            }
+            heap[index] = heap[parent];
+            index = parent;
+        }
+        heap[index] = item;
+    }
+
+    private static void siftDown(int[] heap, int index, int size, long[] keys, long[] tieBreaks, boolean ascending) {
+        int item = heap[index];
+        int half = size >>> 1;
+        while (index < half) {
+            int child = 2 * index + 1;
+            int right = child + 1;
+            if (right < size && before(heap[child], heap[right], keys, tieBreaks, ascending)) {
+                child = right;
+            }
+            if (!before(item, heap[child], keys, tieBreaks, ascending)) {
+                break;
+            }
+            heap[index] = heap[child];
+            index = child;
+        }
+        heap[index] = item;
+    }
+}
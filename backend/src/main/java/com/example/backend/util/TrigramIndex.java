@@ -0,0 +1,140 @@
+package com.example.backend.util;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Chỉ mục trigram trên một tập từ vựng, dùng để tìm từ gần đúng nhất (sửa lỗi chính tả).
+ * Ứng viên được lấy theo số trigram chung, sau đó xác minh bằng khoảng cách chỉnh sửa có giới hạn
+ * (Damerau-Levenshtein dạng OSA, dừng sớm khi vượt ngưỡng) nên chỉ tốn vài micro giây cho mỗi từ.
+ * Mỗi từ có bộ đếm tham chiếu để thêm/bớt dần. Không an toàn luồng - nơi sử dụng tự đồng bộ
+ */
+public final class TrigramIndex {
+
+    private final Map<String, Integer> termCounts = new HashMap<>();
+    private final Map<String, Set<String>> termsByTrigram = new HashMap<>();
+
+    public void add(String term) {
+        if (termCounts.merge(term, 1, Integer::sum) == 1) {
+            for (String trigram : trigrams(term)) {
+                termsByTrigram.computeIfAbsent(trigram, k -> new HashSet<>()).add(term);
+            }
+        }
+    }
+
+    public void remove(String term) {
+        Integer count = termCounts.get(term);
+        if (count == null) {
+            return;
+        }
+        if (count > 1) {
+            termCounts.put(term, count - 1);
+            return;
+        }
+        termCounts.remove(term);
+        for (String trigram : trigrams(term)) {
+            Set<String> terms = termsByTrigram.get(trigram);
+            if (terms != null) {
+                terms.remove(term);
+                if (terms.isEmpty()) {
+                    termsByTrigram.remove(trigram);
+                }
+            }
+        }
+    }
+
+    public void clear() {
+        termCounts.clear();
+        termsByTrigram.clear();
+    }
+
+    public boolean contains(String term) {
+        return termCounts.containsKey(term);
+    }
+
+    /**
+     * Từ gần nhất trong từ vựng với khoảng cách chỉnh sửa không quá maxDistance;
+     * cùng khoảng cách thì ưu tiên từ xuất hiện nhiều hơn
+     * @return null nếu không có từ nào đủ gần
+     */
+    public String closest(String word, int maxDistance) {
+        Set<String> grams = trigrams(word);
+        Map<String, Integer> shared = new HashMap<>();
+        for (String trigram : grams) {
+            for (String term : termsByTrigram.getOrDefault(trigram, Set.of())) {
+                shared.merge(term, 1, Integer::sum);
+            }
+        }
+
+        // Mỗi thao tác chỉnh sửa làm mất tối đa 3 trigram
+        int minShared = Math.max(1, grams.size() - 3 * maxDistance);
+        String best = null;
+        int bestDistance = maxDistance + 1;
+        int bestCount = 0;
+        for (Map.Entry<String, Integer> entry : shared.entrySet()) {
+            String term = entry.getKey();
+            if (entry.getValue() < minShared || Math.abs(term.length() - word.length()) > maxDistance) {
+                continue;
+            }
+            int distance = distance(word, term, maxDistance);
+            int count = termCounts.get(term);
+            if (distance < bestDistance
+                    || (distance == bestDistance && best != null
+                    && (count > bestCount || (count == bestCount && term.compareTo(best) < 0)))) {
+                best = term;
+                bestDistance = distance;
+                bestCount = count;
+            }
+        }
+        return bestDistance <= maxDistance ? best : null;
+    }
+
+    /**
+     * Khoảng cách Damerau-Levenshtein (OSA) giữa a và b, trả về maxDistance + 1 khi vượt ngưỡng
+     */
+    public static int distance(String a, String b, int maxDistance) {
+        int n = a.length();
+        int m = b.length();
+        if (Math.abs(n - m) > maxDistance) {
+            return maxDistance + 1;
+        }
+        int[] previousPrevious = new int[m + 1];
+        int[] previous = new int[m + 1];
+        int[] current = new int[m + 1];
+        for (int j = 0; j <= m; j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= n; i++) {
+            current[0] = i;
+            int rowMin = current[0];
+            for (int j = 1; j <= m; j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                int value = Math.min(Math.min(previous[j] + 1, current[j - 1] + 1), previous[j - 1] + cost);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    value = Math.min(value, previousPrevious[j - 2] + 1);
+                }
+                current[j] = value;
+                rowMin = Math.min(rowMin, value);
+            }
+            if (rowMin > maxDistance) {
+                return maxDistance + 1;
+            }
+            int[] recycled = previousPrevious;
+            previousPrevious = previous;
+            previous = current;
+            current = recycled;
+        }
+        return Math.min(previous[m], maxDistance + 1);
+    }
+
+    private static Set<String> trigrams(String term) {
+        String padded = "  " + term + " ";
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            grams.add(padded.substring(i, i + 3));
+        }
+        return grams;
+    }
+}
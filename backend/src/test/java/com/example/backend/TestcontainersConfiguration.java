@@ -0,0 +1,22 @@
+package com.example.backend;
+
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.context.annotation.Bean;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.utility.DockerImageName;
+
+/**
+ * PostgreSQL trong Docker thay cho datasource cấu hình sẵn, dùng cho các test chạy truy vấn native
+ * (unnest, UPDATE ... RETURNING, jsonb_path_exists). Lớp test đánh dấu @Testcontainers(disabledWithoutDocker = true)
+ * để tự bỏ qua khi máy không có Docker
+ */
+@TestConfiguration(proxyBeanMethods = false)
+public class TestcontainersConfiguration {
+
+    @Bean
+    @ServiceConnection
+    PostgreSQLContainer<?> postgresContainer() {
+        return new PostgreSQLContainer<>(DockerImageName.parse("postgres:16-alpine"));
+    }
+}
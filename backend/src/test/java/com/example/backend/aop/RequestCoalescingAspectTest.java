@@ -0,0 +1,69 @@
+package com.example.backend.aop;
+
+import com.example.backend.event.ProductChangedEvent;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Khóa gộp chỉ bỏ qua thứ tự của tham số @FilterSet; danh sách có thứ tự vẫn tạo khóa riêng
+ */
+class RequestCoalescingAspectTest {
+
+    private final Catalog target = new Catalog();
+    private final RequestCoalescingAspect aspect = new RequestCoalescingAspect(true, 60_000);
+    private final Catalog catalog = proxy(target, aspect);
+
+    @Test
+    void filterSetOrderDoesNotMatter() {
+        catalog.find(List.of(3L, 1L, 2L), Map.of("ram", List.of("8GB", "16GB")), List.of());
+        catalog.find(List.of(1L, 2L, 3L), Map.of("ram", List.of("16GB", "8GB")), List.of());
+
+        assertThat(target.calls).isEqualTo(1);
+    }
+
+    @Test
+    void orderedListKeepsItsOrder() {
+        catalog.find(List.of(), Map.of(), List.of(5L, 7L));
+        catalog.find(List.of(), Map.of(), List.of(7L, 5L));
+        catalog.find(List.of(), Map.of(), List.of(5L, 7L));
+
+        assertThat(target.calls).isEqualTo(2);
+    }
+
+    @Test
+    void stockChangeKeepsResultOtherChangesDropIt() {
+        catalog.find(List.of(1L), Map.of(), List.of());
+
+        aspect.onProductChanged(ProductChangedEvent.stockChanged(Set.of(1L)));
+        catalog.find(List.of(1L), Map.of(), List.of());
+        assertThat(target.calls).isEqualTo(1);
+
+        aspect.onProductChanged(ProductChangedEvent.deleted(1L));
+        catalog.find(List.of(1L), Map.of(), List.of());
+        assertThat(target.calls).isEqualTo(2);
+    }
+
+    private static Catalog proxy(Catalog target, RequestCoalescingAspect aspect) {
+        AspectJProxyFactory factory = new AspectJProxyFactory(target);
+        factory.setProxyTargetClass(true);
+        factory.addAspect(aspect);
+        return factory.getProxy();
+    }
+
+    static class Catalog {
+        int calls;
+
+        @Coalesced
+        public Object find(@FilterSet List<Long> brandIds, @FilterSet Map<String, List<String>> specifications,
+                           List<Long> pinnedIds) {
+            calls++;
+            return calls;
+        }
+    }
+}
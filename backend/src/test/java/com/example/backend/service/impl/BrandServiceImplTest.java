@@ -0,0 +1,93 @@
+package com.example.backend.service.impl;
+
+import com.example.backend.event.ProductChangedEvent;
+import com.example.backend.repository.BrandRepository;
+import com.example.backend.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Cache thương hiệu theo danh mục: loại bỏ LRU khi đầy, thay đổi sản phẩm chỉ xóa nhánh danh mục cũ/mới và tổ tiên
+ */
+class BrandServiceImplTest {
+
+    private final BrandRepository brandRepository = mock(BrandRepository.class);
+    private final CategoryTree categoryTree = mock(CategoryTree.class);
+    private BrandServiceImpl brandService;
+
+    @BeforeEach
+    void setUp() {
+        when(categoryTree.contains(anyLong())).thenReturn(true);
+        // Cây: 1 > 2 > 3 và 1 > 4; 5 là một gốc khác
+        for (long id = 1; id <= 5; id++) {
+            when(categoryTree.getSubtreeIds(id)).thenReturn(List.of(id));
+        }
+        when(categoryTree.getAncestorIds(2L)).thenReturn(List.of(1L));
+        when(categoryTree.getAncestorIds(3L)).thenReturn(List.of(1L, 2L));
+        when(categoryTree.getAncestorIds(4L)).thenReturn(List.of(1L));
+        brandService = new BrandServiceImpl(brandRepository, mock(ProductRepository.class),
+                mock(ApplicationEventPublisher.class), categoryTree, 3);
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedWhenFull() {
+        load(1L, 2L, 3L);
+        // 1 vừa được dùng nên 2 là phần tử lâu không dùng nhất
+        load(1L);
+        load(4L);
+
+        load(1L, 3L, 4L);
+        verifyLoads(1L, 1);
+        verifyLoads(3L, 1);
+        verifyLoads(4L, 1);
+        load(2L);
+        verifyLoads(2L, 2);
+    }
+
+    @Test
+    void productChangeDropsOnlyOldAndNewAncestry() {
+        load(3L, 4L, 5L);
+
+        // Sản phẩm chuyển từ danh mục 3 sang 5
+        brandService.onProductChanged(new ProductChangedEvent(ProductChangedEvent.Type.SAVED, Set.of(9L), Set.of(3L, 5L)));
+        load(3L, 4L, 5L);
+
+        verifyLoads(3L, 2);
+        verifyLoads(4L, 1);
+        verifyLoads(5L, 2);
+    }
+
+    @Test
+    void unknownCategoriesDropEverythingAndStockChangesNothing() {
+        load(4L, 5L);
+
+        brandService.onProductChanged(ProductChangedEvent.stockChanged(Set.of(9L)));
+        load(4L, 5L);
+        verifyLoads(4L, 1);
+
+        brandService.onProductChanged(ProductChangedEvent.saved(9L));
+        load(4L, 5L);
+        verifyLoads(4L, 2);
+        verifyLoads(5L, 2);
+    }
+
+    private void load(Long... categoryIds) {
+        for (Long categoryId : categoryIds) {
+            brandService.getBrandsByCategoryId(categoryId);
+        }
+    }
+
+    private void verifyLoads(Long categoryId, int times) {
+        verify(brandRepository, times(times)).findWithProductCountByCategoryIdIn(List.of(categoryId));
+    }
+}
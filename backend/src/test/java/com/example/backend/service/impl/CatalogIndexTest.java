@@ -0,0 +1,271 @@
+package com.example.backend.service.impl;
+
+import com.example.backend.repository.ProductCursor;
+import com.example.backend.repository.ProductIndexRow;
+import com.example.backend.repository.ProductRepository;
+import com.example.backend.util.SpecificationValues;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.Predicate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * So sánh kết quả của CatalogIndex với một "oracle" lọc và sắp xếp toàn bộ danh sách bằng stream,
+ * cùng định nghĩa thứ tự với ProductSpecifications.orderBy (khóa chính, sau đó id cùng chiều)
+ */
+class CatalogIndexTest {
+
+    private static final List<String> SORTS = List.of(
+            ProductCursor.NEWEST, ProductCursor.PRICE_ASC, ProductCursor.PRICE_DESC, ProductCursor.BEST_SELLING);
+    private static final LocalDateTime BASE_TIME = LocalDateTime.of(2025, 1, 1, 8, 0);
+
+    private final List<Row> rows = new ArrayList<>();
+    private CatalogIndex index;
+
+    @BeforeEach
+    void setUp() {
+        // Nhiều giá trị trùng nhau (giá, số lượng bán, thời điểm tạo) để kiểm tra khóa phụ id
+        Random random = new Random(42);
+        for (long id = 1; id <= 400; id++) {
+            Map<String, Object> specifications = new HashMap<>();
+            specifications.put("ram", List.of("4GB", "8GB", "16GB").get(random.nextInt(3)));
+            if (random.nextBoolean()) {
+                specifications.put("colors", random.nextBoolean() ? List.of("black", "white") : List.of("black"));
+            }
+            rows.add(new Row(id, (random.nextInt(40) + 1) * 100_000L, 1L + random.nextInt(6), 1L + random.nextInt(5),
+                    random.nextInt(10) > 0, random.nextInt(5) == 0, random.nextInt(10),
+                    BASE_TIME.plusMinutes(random.nextInt(50)), specifications));
+        }
+        ProductRepository productRepository = mock(ProductRepository.class);
+        when(productRepository.findAllIndexRows()).thenReturn(new ArrayList<>(rows));
+        index = new CatalogIndex(productRepository, true, new long[]{10_000, 20_000});
+        index.rebuild();
+    }
+
+    @Test
+    void pagesMatchFilterAndSortOracle() {
+        List<Query> queries = List.of(
+                // Phần lớn sản phẩm của danh mục đều khớp: đi dọc thứ tự giữ sẵn
+                new Query(List.of(1L, 2L), null, null, null, null),
+                // Bộ lọc chọn lọc: sắp xếp tập khớp
+                new Query(null, List.of(3L), 10_000.0, 25_000.0, null),
+                new Query(List.of(4L), null, null, null, Map.of("ram", List.of("8GB", "16GB"))));
+        int[][] pages = {{0, 10}, {5, 7}, {37, 20}, {1000, 10}};
+
+        for (Query query : queries) {
+            for (String sort : SORTS) {
+                List<Long> expected = oracle(query.matcher(), sort);
+                for (int[] page : pages) {
+                    CatalogIndex.CatalogPage result = index.query(query.builder()
+                            .sortBy(sort).skip(page[0]).limit(page[1]).build()).orElseThrow();
+
+                    assertThat(result.getTotal()).isEqualTo(expected.size());
+                    assertThat(result.getProductIds()).as("%s %s skip=%d limit=%d", query, sort, page[0], page[1])
+                            .isEqualTo(expected.subList(Math.min(page[0], expected.size()),
+                                    Math.min(page[0] + page[1], expected.size())));
+                }
+            }
+        }
+    }
+
+    @Test
+    void emptyResultReturnsEmptyPage() {
+        CatalogIndex.CatalogPage result = index.query(CatalogIndex.CatalogQuery.builder()
+                .brandIds(List.of(999L)).sortBy(ProductCursor.NEWEST).skip(0).limit(10).build()).orElseThrow();
+
+        assertThat(result.getTotal()).isZero();
+        assertThat(result.getProductIds()).isEmpty();
+    }
+
+    @Test
+    void cursorContinuationHasNoDuplicatesOrGaps() {
+        Query query = new Query(List.of(1L, 2L, 3L), null, null, null, null);
+        for (String sort : SORTS) {
+            List<Long> expected = oracle(query.matcher(), sort);
+            List<Long> collected = new ArrayList<>();
+            ProductCursor cursor = null;
+            while (true) {
+                List<Long> page = index.query(query.builder().sortBy(sort).cursor(cursor).limit(13).build())
+                        .orElseThrow().getProductIds();
+                collected.addAll(page);
+                if (page.size() < 13) {
+                    break;
+                }
+                Row last = row(page.get(page.size() - 1));
+                cursor = ProductCursor.after(sort, last.id(), last.effectivePrice(), last.quantitySold(), last.createdAt());
+            }
+
+            assertThat(collected).as(sort).isEqualTo(expected);
+        }
+    }
+
+    @Test
+    void facetCountsExcludeTheirOwnGroup() {
+        List<Long> brands = List.of(1L, 2L);
+        Map<String, List<String>> specifications = Map.of("ram", List.of("8GB"));
+        CatalogIndex.Facets facets = index.query(CatalogIndex.CatalogQuery.builder()
+                .isActive(true).brandIds(brands).specifications(specifications)
+                .sortBy(ProductCursor.NEWEST).skip(0).limit(10).includeFacets(true)
+                .build()).orElseThrow().getFacets();
+
+        Predicate<Row> active = Row::active;
+        Predicate<Row> brand = row -> brands.contains(row.brandId());
+        Predicate<Row> ram = row -> hasSpecification(row, "ram", "8GB");
+
+        // Thương hiệu: đếm với bộ lọc ram nhưng không lọc thương hiệu
+        Map<Long, Integer> expectedBrands = new HashMap<>();
+        rows.stream().filter(active.and(ram)).forEach(row -> expectedBrands.merge(row.brandId(), 1, Integer::sum));
+        assertThat(facets.getBrandCounts()).isEqualTo(expectedBrands);
+
+        // ram: đếm với bộ lọc thương hiệu nhưng không lọc ram
+        Map<String, Integer> expectedRam = new HashMap<>();
+        rows.stream().filter(active.and(brand))
+                .forEach(row -> expectedRam.merge((String) row.specifications().get("ram"), 1, Integer::sum));
+        assertThat(facets.getSpecificationCounts().get("ram")).isEqualTo(expectedRam);
+
+        // Key không bị lọc và khoảng giá: đếm trên đúng tập kết quả
+        List<Row> matches = rows.stream().filter(active.and(brand).and(ram)).toList();
+        Map<String, Integer> expectedColors = new HashMap<>();
+        for (Row row : matches) {
+            for (String color : SpecificationValues.valuesOf(row.specifications().get("colors"))) {
+                expectedColors.merge(color, 1, Integer::sum);
+            }
+        }
+        assertThat(facets.getSpecificationCounts().getOrDefault("colors", Map.of())).isEqualTo(expectedColors);
+        assertThat(facets.getPriceBuckets().stream().mapToInt(CatalogIndex.PriceBucket::getCount).sum())
+                .isEqualTo(matches.size());
+    }
+
+    private List<Long> oracle(Predicate<Row> matcher, String sort) {
+        return rows.stream().filter(matcher).sorted(comparator(sort)).map(Row::id).toList();
+    }
+
+    private static Comparator<Row> comparator(String sort) {
+        Comparator<Row> ascending;
+        switch (sort) {
+            case ProductCursor.PRICE_ASC:
+            case ProductCursor.PRICE_DESC:
+                ascending = Comparator.comparingLong(Row::effectivePrice);
+                break;
+            case ProductCursor.BEST_SELLING:
+                ascending = Comparator.comparingInt(Row::quantitySold);
+                break;
+            default:
+                ascending = Comparator.comparing(Row::createdAt);
+                break;
+        }
+        ascending = ascending.thenComparingLong(Row::id);
+        return ProductCursor.PRICE_ASC.equals(sort) ? ascending : ascending.reversed();
+    }
+
+    private Row row(Long id) {
+        return rows.stream().filter(row -> row.id().equals(id)).findFirst().orElseThrow();
+    }
+
+    private static boolean hasSpecification(Row row, String key, String value) {
+        return SpecificationValues.valuesOf(row.specifications().get(key)).contains(value);
+    }
+
+    /**
+     * Bộ lọc của một truy vấn, dựng được cả CatalogQuery lẫn điều kiện tương ứng cho oracle (luôn is_active = true)
+     */
+    private record Query(List<Long> categoryIds, List<Long> brandIds, Double minPrice, Double maxPrice,
+                         Map<String, List<String>> specifications) {
+
+        CatalogIndex.CatalogQuery.CatalogQueryBuilder builder() {
+            return CatalogIndex.CatalogQuery.builder()
+                    .isActive(true)
+                    .categoryIds(categoryIds)
+                    .brandIds(brandIds)
+                    .minPrice(minPrice)
+                    .maxPrice(maxPrice)
+                    .specifications(specifications);
+        }
+
+        Predicate<Row> matcher() {
+            return row -> row.active()
+                    && (categoryIds == null || categoryIds.contains(row.categoryId()))
+                    && (brandIds == null || brandIds.contains(row.brandId()))
+                    && (minPrice == null || row.effectivePrice() >= minPrice * 100)
+                    && (maxPrice == null || row.effectivePrice() <= maxPrice * 100)
+                    && (specifications == null || specifications.entrySet().stream().allMatch(entry -> {
+                        Set<String> values = new HashSet<>(SpecificationValues.valuesOf(row.specifications().get(entry.getKey())));
+                        return entry.getValue().stream().anyMatch(values::contains);
+                    }));
+        }
+    }
+
+    private record Row(Long id, long effectivePrice, Long brandId, Long categoryId, boolean active, boolean featured,
+                       int quantitySold, LocalDateTime createdAt, Map<String, Object> specifications)
+            implements ProductIndexRow {
+
+        @Override
+        public Long getId() {
+            return id;
+        }
+
+        @Override
+        public BigDecimal getPrice() {
+            return BigDecimal.valueOf(effectivePrice, 2);
+        }
+
+        @Override
+        public Float getDiscount() {
+            return 0f;
+        }
+
+        @Override
+        public Long getEffectivePrice() {
+            return effectivePrice;
+        }
+
+        @Override
+        public Long getBrandId() {
+            return brandId;
+        }
+
+        @Override
+        public Long getCategoryId() {
+            return categoryId;
+        }
+
+        @Override
+        public Boolean getIsActive() {
+            return active;
+        }
+
+        @Override
+        public Boolean getIsFeatured() {
+            return featured;
+        }
+
+        @Override
+        public Integer getQuantitySold() {
+            return quantitySold;
+        }
+
+        @Override
+        public LocalDateTime getCreatedAt() {
+            return createdAt;
+        }
+
+        @Override
+        public Map<String, Object> getSpecifications() {
+            return specifications;
+        }
+    }
+}
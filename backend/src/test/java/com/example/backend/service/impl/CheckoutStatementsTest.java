@@ -0,0 +1,150 @@
+package com.example.backend.service.impl;
+
+import com.example.backend.TestcontainersConfiguration;
+import com.example.backend.config.OrderNumberConfig;
+import com.example.backend.dto.CreateOrderDTO;
+import com.example.backend.model.CartItem;
+import com.example.backend.model.PaymentMethod;
+import com.example.backend.model.Product;
+import com.example.backend.model.User;
+import com.example.backend.model.UserAddress;
+import com.example.backend.repository.CartItemRepository;
+import com.example.backend.repository.ProductRepository;
+import com.example.backend.repository.UserAddressRepository;
+import com.example.backend.repository.UserRepository;
+import com.example.backend.service.OrderService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Đếm số prepared statement (Hibernate Statistics) của một lần đặt hàng trên PostgreSQL thật: insert đơn hàng, mục đơn hàng
+ * và lịch sử trạng thái theo lô, xóa giỏ hàng bằng một câu DELETE, nên số câu lệnh không tăng theo số dòng giỏ hàng.
+ * Mỗi lần executeBatch dùng một prepared statement. Lần đặt hàng đầu tiên làm nóng (nạp khối id từ sequence)
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({TestcontainersConfiguration.class, OrderServiceImpl.class, InventoryReservationService.class,
+        OrderNumberConfig.class})
+@Testcontainers(disabledWithoutDocker = true)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CheckoutStatementsTest {
+
+    // Đọc user, địa chỉ, giỏ hàng (kèm sản phẩm và ảnh); UPDATE giữ hàng; insert order, order_items,
+    // order_status_history; DELETE giỏ hàng; cộng thêm tối đa một lần lấy khối id cho mỗi sequence
+    private static final long MAX_STATEMENTS_COD = 8 + 3;
+    private static final long MAX_STATEMENTS_ONLINE = 8 + 3;
+
+    @MockitoBean
+    private FlashSaleInventory flashSaleInventory;
+
+    @Autowired
+    private OrderService orderService;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private UserAddressRepository addressRepository;
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private CartItemRepository cartItemRepository;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+    private User user;
+    private UserAddress address;
+    private List<Product> products;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        user = new User();
+        user.setName("Checkout");
+        user.setEmail("checkout-" + System.nanoTime() + "@example.com");
+        user.setPassword("secret");
+        user = userRepository.save(user);
+
+        address = new UserAddress();
+        address.setUser(user);
+        address.setFullName("Checkout");
+        address.setMobileNo("0900000000");
+        address.setFullAddress("1 Lê Lợi, Bến Nghé, Quận 1, Hồ Chí Minh");
+        address.setStreet("1 Lê Lợi");
+        address.setWard("Bến Nghé");
+        address.setDistrict("Quận 1");
+        address.setCity("Hồ Chí Minh");
+        address.setCountry("Việt Nam");
+        address = addressRepository.save(address);
+
+        products = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            Product product = new Product();
+            String sku = "CHECKOUT-" + System.nanoTime() + "-" + i;
+            product.setName(sku);
+            product.setSku(sku);
+            product.setPrice(new BigDecimal("100000"));
+            product.setQuantityInStock(1_000);
+            products.add(productRepository.save(product));
+        }
+    }
+
+    @Test
+    void codCheckoutStatementsDoNotGrowWithCartSize() {
+        assertBoundedStatements(PaymentMethod.COD, MAX_STATEMENTS_COD, 1);
+    }
+
+    @Test
+    void onlineCheckoutStatementsDoNotGrowWithCartSize() {
+        // Đơn thanh toán online có 2 dòng lịch sử trạng thái (PENDING, CONFIRMED) nhưng vẫn chỉ ghi đơn hàng một lần
+        assertBoundedStatements(PaymentMethod.CREDIT_CARD, MAX_STATEMENTS_ONLINE, 2);
+    }
+
+    private void assertBoundedStatements(PaymentMethod paymentMethod, long maxStatements, int historyRows) {
+        checkout(1, paymentMethod);
+        for (int size : new int[]{1, 5, 20}) {
+            long statements = checkout(size, paymentMethod);
+
+            assertThat(statements).as("prepared statement khi đặt %d dòng", size).isLessThanOrEqualTo(maxStatements);
+            assertThat(statistics.getEntityInsertCount()).isEqualTo(1 + size + historyRows);
+            assertThat(statistics.getEntityUpdateCount()).as("đơn hàng chỉ được ghi một lần").isZero();
+        }
+    }
+
+    /**
+     * @return số prepared statement của một lần createOrder (gồm cả flush lúc commit)
+     */
+    private long checkout(int size, PaymentMethod paymentMethod) {
+        List<Long> cartItemIds = new ArrayList<>();
+        for (Product product : products.subList(0, size)) {
+            CartItem cartItem = new CartItem();
+            cartItem.setUser(user);
+            cartItem.setProduct(product);
+            cartItem.setQuantity(1);
+            cartItemIds.add(cartItemRepository.save(cartItem).getId());
+        }
+
+        statistics.clear();
+        orderService.createOrder(user.getId(), new CreateOrderDTO(address.getId(), paymentMethod, null, cartItemIds));
+        return statistics.getPrepareStatementCount();
+    }
+}
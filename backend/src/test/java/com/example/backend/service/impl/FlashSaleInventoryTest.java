@@ -0,0 +1,130 @@
+package com.example.backend.service.impl;
+
+import com.example.backend.exception.BadRequestException;
+import com.example.backend.repository.ProductRepository;
+import com.example.backend.repository.ProductStockRow;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Dừng sale phải chờ đơn đã lấy suất kết thúc transaction rồi mới ghi số lượng xuống database
+ */
+class FlashSaleInventoryTest {
+
+    private static final Long PRODUCT_ID = 1L;
+
+    private final ProductRepository productRepository = mock(ProductRepository.class);
+    private final ExecutorService executor = Executors.newFixedThreadPool(2);
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void stopWaitsForInFlightClaimBeforeWritingBack() throws Exception {
+        FlashSaleInventory inventory = inventory(10_000);
+        inventory.start(PRODUCT_ID);
+
+        CountDownLatch claimed = new CountDownLatch(1);
+        CountDownLatch commit = new CountDownLatch(1);
+        Future<Set<Long>> order = executor.submit(() -> inTransaction(inventory, claimed, commit));
+        claimed.await();
+
+        CompletableFuture<Void> stop = CompletableFuture.runAsync(() -> inventory.stop(PRODUCT_ID), executor);
+        Thread.sleep(200);
+        assertThat(stop).isNotDone();
+        verify(productRepository, never()).deductStock(any(), any());
+
+        commit.countDown();
+        assertThat(order.get(5, TimeUnit.SECONDS)).containsExactly(PRODUCT_ID);
+        stop.get(5, TimeUnit.SECONDS);
+
+        verify(productRepository).deductStock(new Long[]{PRODUCT_ID}, new Integer[]{3});
+        assertThat(inventory.getActiveSales()).isEmpty();
+        // Sau khi dừng, đơn mới trừ kho trên database
+        assertThat(inventory.claim(Map.of(PRODUCT_ID, 1))).isEmpty();
+    }
+
+    @Test
+    void stopTimesOutAndKeepsSaleRunning() throws Exception {
+        FlashSaleInventory inventory = inventory(100);
+        inventory.start(PRODUCT_ID);
+
+        CountDownLatch claimed = new CountDownLatch(1);
+        CountDownLatch commit = new CountDownLatch(1);
+        Future<Set<Long>> order = executor.submit(() -> inTransaction(inventory, claimed, commit));
+        claimed.await();
+
+        assertThatThrownBy(() -> inventory.stop(PRODUCT_ID)).isInstanceOf(BadRequestException.class);
+        assertThat(inventory.getActiveSales()).hasSize(1);
+
+        commit.countDown();
+        order.get(5, TimeUnit.SECONDS);
+        inventory.stop(PRODUCT_ID);
+        verify(productRepository).deductStock(new Long[]{PRODUCT_ID}, new Integer[]{3});
+    }
+
+    /**
+     * Giả lập transaction của đơn hàng: lấy 3 suất, chờ tín hiệu rồi commit
+     */
+    private static Set<Long> inTransaction(FlashSaleInventory inventory, CountDownLatch claimed,
+                                           CountDownLatch commit) throws InterruptedException {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            Set<Long> result = inventory.claim(Map.of(PRODUCT_ID, 3));
+            claimed.countDown();
+            commit.await();
+            for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+                synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+            }
+            return result;
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private FlashSaleInventory inventory(long stopTimeoutMs) {
+        ProductStockRow row = mock(ProductStockRow.class);
+        when(row.getId()).thenReturn(PRODUCT_ID);
+        when(row.getSku()).thenReturn("SKU-FLASH");
+        when(row.getName()).thenReturn("Flash");
+        when(row.getQuantityInStock()).thenReturn(10);
+        when(productRepository.findStockRowsByIdIn(List.of(PRODUCT_ID))).thenReturn(List.of(row));
+
+        TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+        doAnswer(invocation -> {
+            invocation.getArgument(0, Consumer.class).accept(mock(TransactionStatus.class));
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+
+        return new FlashSaleInventory(productRepository, transactionTemplate, mock(ApplicationEventPublisher.class),
+                true, 4, stopTimeoutMs);
+    }
+}
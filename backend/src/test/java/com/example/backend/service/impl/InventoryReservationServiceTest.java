@@ -0,0 +1,126 @@
+package com.example.backend.service.impl;
+
+import com.example.backend.TestcontainersConfiguration;
+import com.example.backend.exception.ApiError;
+import com.example.backend.exception.GlobalExceptionHandler;
+import com.example.backend.exception.InsufficientStockException;
+import com.example.backend.model.Product;
+import com.example.backend.repository.ProductRepository;
+import com.example.backend.repository.ProductStockRow;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowableOfType;
+
+/**
+ * Giữ/hoàn tồn kho bằng câu UPDATE native trên PostgreSQL thật: thiếu một SKU thì cả đơn không bị trừ,
+ * và entity Product đã nạp trong giao dịch không ghi đè tồn kho cũ khi flush.
+ * Mỗi bước chạy trong transaction riêng (không dùng transaction rollback của @DataJpaTest) để đọc được dữ liệu đã commit
+ */
+@DataJpaTest(properties = "spring.jpa.hibernate.ddl-auto=create-drop")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({TestcontainersConfiguration.class, InventoryReservationService.class})
+@Testcontainers(disabledWithoutDocker = true)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class InventoryReservationServiceTest {
+
+    @MockitoBean
+    private FlashSaleInventory flashSaleInventory;
+
+    @Autowired
+    private InventoryReservationService reservationService;
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    void tearDown() {
+        productRepository.deleteAll();
+    }
+
+    @Test
+    void shortSkuRollsBackWholeReservation() {
+        Product plenty = product("SKU-PLENTY", 10);
+        Product scarce = product("SKU-SHORT", 1);
+
+        InsufficientStockException exception = catchThrowableOfType(InsufficientStockException.class,
+                () -> inTransaction(() -> reservationService.reserve(Map.of(plenty.getId(), 3, scarce.getId(), 2))));
+
+        assertThat(exception.getShortages()).containsExactly(
+                new InsufficientStockException.StockShortage(scarce.getId(), "SKU-SHORT", "SKU-SHORT", 2, 1));
+        assertStock(plenty.getId(), 10, 0);
+        assertStock(scarce.getId(), 1, 0);
+
+        // Body 409 liệt kê từng SKU thiếu hàng
+        ResponseEntity<ApiError> response = new GlobalExceptionHandler().handleInsufficientStockException(
+                exception, new ServletWebRequest(new MockHttpServletRequest()));
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.CONFLICT);
+        assertThat(response.getBody().getErrors()).containsExactly(Map.entry("SKU-SHORT", "SKU-SHORT: yêu cầu 2, còn 1"));
+    }
+
+    @Test
+    void releaseRestoresReservedStock() {
+        Product product = product("SKU-RELEASE", 10);
+
+        inTransaction(() -> reservationService.reserve(Map.of(product.getId(), 3)));
+        assertStock(product.getId(), 7, 3);
+
+        inTransaction(() -> reservationService.release(Map.of(product.getId(), 3)));
+        assertStock(product.getId(), 10, 0);
+    }
+
+    @Test
+    void loadedProductDoesNotWriteBackOldStock() {
+        Product product = product("SKU-MANAGED", 10);
+
+        inTransaction(() -> {
+            Product loaded = productRepository.findById(product.getId()).orElseThrow();
+            reservationService.reserve(Map.of(product.getId(), 3));
+            assertThat(loaded.getQuantityInStock()).isEqualTo(7);
+            // Một thay đổi khác làm entity bị flush
+            loaded.setDescription("đã sửa");
+        });
+
+        assertStock(product.getId(), 7, 3);
+        assertThat(productRepository.findById(product.getId()).orElseThrow().getDescription()).isEqualTo("đã sửa");
+    }
+
+    private Product product(String sku, int stock) {
+        Product product = new Product();
+        product.setName(sku);
+        product.setSku(sku);
+        product.setPrice(new BigDecimal("100000"));
+        product.setQuantityInStock(stock);
+        return productRepository.save(product);
+    }
+
+    private void inTransaction(Runnable action) {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> action.run());
+    }
+
+    private void assertStock(Long productId, int inStock, int sold) {
+        ProductStockRow row = productRepository.findStockRowsByIdIn(List.of(productId)).get(0);
+        assertThat(row.getQuantityInStock()).isEqualTo(inStock);
+        assertThat(row.getQuantitySold()).isEqualTo(sold);
+    }
+}
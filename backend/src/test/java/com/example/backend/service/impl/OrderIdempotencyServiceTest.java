@@ -0,0 +1,146 @@
+package com.example.backend.service.impl;
+
+import com.example.backend.dto.CreateOrderDTO;
+import com.example.backend.dto.OrderResponseDTO;
+import com.example.backend.exception.BadRequestException;
+import com.example.backend.exception.ConflictException;
+import com.example.backend.model.PaymentMethod;
+import com.example.backend.service.OrderService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Gửi lại cùng Idempotency-Key: trả đơn đã tạo, khác nội dung thì 400, request trùng đồng thời chỉ tạo một đơn
+ */
+class OrderIdempotencyServiceTest {
+
+    private static final Long USER_ID = 7L;
+
+    private final OrderService orderService = mock(OrderService.class);
+    private final ExecutorService executor = Executors.newFixedThreadPool(8);
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void replayReturnsFirstOrderWithoutCreatingAgain() {
+        OrderIdempotencyService service = service(5_000);
+        when(orderService.createOrder(eq(USER_ID), any())).thenReturn(order(1L, "OD1"));
+
+        OrderIdempotencyService.Outcome first = service.createOrder(USER_ID, "key-1", request(List.of(1L, 2L)));
+        OrderIdempotencyService.Outcome replay = service.createOrder(USER_ID, "key-1", request(List.of(1L, 2L)));
+
+        assertThat(first).isEqualTo(new OrderIdempotencyService.Outcome(1L, "OD1", false));
+        assertThat(replay).isEqualTo(new OrderIdempotencyService.Outcome(1L, "OD1", true));
+        verify(orderService, times(1)).createOrder(eq(USER_ID), any());
+    }
+
+    @Test
+    void sameKeyWithDifferentBodyIsRejected() {
+        OrderIdempotencyService service = service(5_000);
+        when(orderService.createOrder(eq(USER_ID), any())).thenReturn(order(1L, "OD1"));
+        service.createOrder(USER_ID, "key-1", request(List.of(1L, 2L)));
+
+        assertThatThrownBy(() -> service.createOrder(USER_ID, "key-1", request(List.of(1L))))
+                .isInstanceOf(BadRequestException.class);
+        // Cùng khóa nhưng của người dùng khác là một khóa khác
+        when(orderService.createOrder(eq(8L), any())).thenReturn(order(2L, "OD2"));
+        assertThat(service.createOrder(8L, "key-1", request(List.of(1L))).replayed()).isFalse();
+    }
+
+    @Test
+    void concurrentDuplicatesCreateOneOrder() throws Exception {
+        OrderIdempotencyService service = service(5_000);
+        CountDownLatch release = new CountDownLatch(1);
+        when(orderService.createOrder(eq(USER_ID), any())).thenAnswer(invocation -> {
+            release.await();
+            return order(1L, "OD1");
+        });
+
+        List<Future<OrderIdempotencyService.Outcome>> results = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            results.add(executor.submit(() -> service.createOrder(USER_ID, "key-1", request(List.of(1L)))));
+        }
+        Thread.sleep(100);
+        release.countDown();
+
+        int created = 0;
+        for (Future<OrderIdempotencyService.Outcome> result : results) {
+            OrderIdempotencyService.Outcome outcome = result.get(5, TimeUnit.SECONDS);
+            assertThat(outcome.orderNumber()).isEqualTo("OD1");
+            created += outcome.replayed() ? 0 : 1;
+        }
+        assertThat(created).isEqualTo(1);
+        verify(orderService, times(1)).createOrder(eq(USER_ID), any());
+    }
+
+    @Test
+    void duplicateWhileStillProcessingGetsConflict() throws Exception {
+        OrderIdempotencyService service = service(50);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(orderService.createOrder(eq(USER_ID), any())).thenAnswer(invocation -> {
+            started.countDown();
+            release.await();
+            return order(1L, "OD1");
+        });
+        Future<OrderIdempotencyService.Outcome> first =
+                executor.submit(() -> service.createOrder(USER_ID, "key-1", request(List.of(1L))));
+        started.await();
+
+        assertThatThrownBy(() -> service.createOrder(USER_ID, "key-1", request(List.of(1L))))
+                .isInstanceOf(ConflictException.class);
+
+        release.countDown();
+        assertThat(first.get(5, TimeUnit.SECONDS).replayed()).isFalse();
+        assertThat(service.createOrder(USER_ID, "key-1", request(List.of(1L))).replayed()).isTrue();
+    }
+
+    @Test
+    void failureReleasesKeyForRetry() {
+        OrderIdempotencyService service = service(5_000);
+        when(orderService.createOrder(eq(USER_ID), any()))
+                .thenThrow(new StackOverflowError())
+                .thenReturn(order(1L, "OD1"));
+
+        assertThatThrownBy(() -> service.createOrder(USER_ID, "key-1", request(List.of(1L))))
+                .isInstanceOf(StackOverflowError.class);
+        assertThat(service.createOrder(USER_ID, "key-1", request(List.of(1L))).replayed()).isFalse();
+        verify(orderService, times(2)).createOrder(eq(USER_ID), any());
+    }
+
+    private OrderIdempotencyService service(long waitMs) {
+        return new OrderIdempotencyService(orderService, new ObjectMapper(), 1_000, 24, waitMs);
+    }
+
+    private static CreateOrderDTO request(List<Long> cartItemIds) {
+        return new CreateOrderDTO(3L, PaymentMethod.COD, null, cartItemIds);
+    }
+
+    private static OrderResponseDTO order(Long id, String orderNumber) {
+        OrderResponseDTO order = new OrderResponseDTO();
+        order.setId(id);
+        order.setOrderNumber(orderNumber);
+        return order;
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.backend.service.impl;
+
+import com.example.backend.dto.CreateOrderDTO;
+import com.example.backend.model.CartItem;
+import com.example.backend.model.Order;
+import com.example.backend.model.OrderItem;
+import com.example.backend.model.PaymentMethod;
+import com.example.backend.model.Product;
+import com.example.backend.model.User;
+import com.example.backend.model.UserAddress;
+import com.example.backend.repository.CartItemRepository;
+import com.example.backend.repository.OrderRepository;
+import com.example.backend.repository.UserAddressRepository;
+import com.example.backend.repository.UserRepository;
+import com.example.backend.util.OrderNumberGenerator;
+import com.example.backend.util.PriceCalculator;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tổng tiền đơn hàng phải bằng tổng CartItem.getSubtotalMinorUnits mà giỏ hàng hiển thị, kể cả khi giá lẻ nửa đơn vị
+ */
+class OrderTotalTest {
+
+    private final OrderRepository orderRepository = mock(OrderRepository.class);
+    private final CartItemRepository cartItemRepository = mock(CartItemRepository.class);
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final UserAddressRepository addressRepository = mock(UserAddressRepository.class);
+
+    private final OrderServiceImpl orderService = new OrderServiceImpl(orderRepository, cartItemRepository,
+            userRepository, addressRepository, mock(InventoryReservationService.class),
+            new OrderNumberGenerator(1), mock(ApplicationEventPublisher.class));
+
+    @Test
+    void orderTotalEqualsCartSubtotals() {
+        List<CartItem> cartItems = List.of(
+                cartItem(1L, product(10L, "1.01", 50f), 3),
+                cartItem(2L, product(11L, "1.05", 10f), 7),
+                cartItem(3L, product(12L, "24990000.99", 12.5f), 2),
+                cartItem(4L, product(13L, "199000", null), 1),
+                cartItem(5L, product(14L, "350000", 100f), 4));
+        long cartTotal = cartItems.stream().mapToLong(CartItem::getSubtotalMinorUnits).sum();
+
+        Order order = placeOrder(cartItems, PaymentMethod.COD);
+
+        assertThat(order.getTotalAmount()).isEqualTo(PriceCalculator.toAmount(cartTotal));
+        assertThat(order.getItems()).extracting(OrderItem::getSubtotal).containsExactlyElementsOf(cartItems.stream()
+                .map(item -> PriceCalculator.toAmount(item.getSubtotalMinorUnits()))
+                .toList());
+    }
+
+    @Test
+    void storedEffectivePriceIsUsedByCartAndOrder() {
+        Product product = product(20L, "100.00", 10f);
+        // Giá sau giảm đã lưu (ví dụ do đợt khuyến mãi khác tính) khác giá tính lại từ price/discount
+        product.setEffectivePrice(8_333L);
+        List<CartItem> cartItems = List.of(cartItem(1L, product, 3));
+
+        Order order = placeOrder(cartItems, PaymentMethod.BANK_TRANSFER);
+
+        assertThat(cartItems.get(0).getSubtotalMinorUnits()).isEqualTo(24_999);
+        assertThat(order.getTotalAmount()).isEqualTo(new BigDecimal("249.99"));
+    }
+
+    private Order placeOrder(List<CartItem> cartItems, PaymentMethod paymentMethod) {
+        User user = new User();
+        user.setId(7L);
+        when(userRepository.findById(7L)).thenReturn(Optional.of(user));
+        when(addressRepository.findByIdAndUserId(9L, 7L)).thenReturn(Optional.of(new UserAddress()));
+        when(cartItemRepository.findAllByIdInAndUserId(anyList(), eq(7L))).thenReturn(cartItems);
+        when(orderRepository.save(any(Order.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        CreateOrderDTO request = new CreateOrderDTO();
+        request.setShippingAddressId(9L);
+        request.setPaymentMethod(paymentMethod);
+        request.setCartItemIds(cartItems.stream().map(CartItem::getId).toList());
+        orderService.createOrder(7L, request);
+
+        ArgumentCaptor<Order> saved = ArgumentCaptor.forClass(Order.class);
+        verify(orderRepository).save(saved.capture());
+        return saved.getValue();
+    }
+
+    private static Product product(Long id, String price, Float discount) {
+        Product product = new Product();
+        product.setId(id);
+        product.setName("SP " + id);
+        product.setPrice(new BigDecimal(price));
+        product.setDiscount(discount);
+        return product;
+    }
+
+    private static CartItem cartItem(Long id, Product product, int quantity) {
+        CartItem cartItem = new CartItem();
+        cartItem.setId(id);
+        cartItem.setProduct(product);
+        cartItem.setQuantity(quantity);
+        return cartItem;
+    }
+}
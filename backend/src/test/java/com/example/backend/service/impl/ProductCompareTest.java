@@ -0,0 +1,95 @@
+package com.example.backend.service.impl;
+
+import com.example.backend.exception.BadRequestException;
+import com.example.backend.model.Category;
+import com.example.backend.model.Product;
+import com.example.backend.repository.BrandRepository;
+import com.example.backend.repository.CategoryRepository;
+import com.example.backend.repository.ProductImageRepository;
+import com.example.backend.repository.ProductRepository;
+import com.example.backend.service.FileStorageService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * So sánh sản phẩm dùng khung thông số của danh mục gốc chung; khác danh mục gốc thì trả lỗi 400
+ */
+class ProductCompareTest {
+
+    private final CategoryRepository categoryRepository = mock(CategoryRepository.class);
+    private final CategoryTree categoryTree = mock(CategoryTree.class);
+    private final ProductDetailCache productDetailCache = mock(ProductDetailCache.class);
+    private final ProductServiceImpl productService = new ProductServiceImpl(mock(ProductRepository.class),
+            categoryRepository, mock(BrandRepository.class), mock(ProductImageRepository.class),
+            mock(FileStorageService.class), mock(CatalogIndex.class), categoryTree,
+            mock(SpecificationFacetCache.class), mock(ProductSearchIndex.class), mock(ProductSuggestIndex.class),
+            productDetailCache, mock(ApplicationEventPublisher.class), new ObjectMapper());
+
+    private final Category phones = category(1L);
+    private final Category laptops = category(2L);
+
+    ProductCompareTest() {
+        phones.setSpecificationFields(List.of(new Category.SpecificationField("ram", "RAM", "RAM", "text", 1)));
+        when(categoryTree.getRootId(10L)).thenReturn(1L);
+        when(categoryTree.getRootId(11L)).thenReturn(1L);
+        when(categoryTree.getRootId(20L)).thenReturn(2L);
+        when(categoryRepository.findById(1L)).thenReturn(Optional.of(phones));
+        when(categoryRepository.findById(2L)).thenReturn(Optional.of(laptops));
+    }
+
+    @Test
+    void productsUnderSameRootUseItsFields() {
+        givenProducts(product(1L, 10L, "8GB"), product(2L, 11L, "12GB"), product(3L, null, "8GB"));
+
+        Map<String, Object> result = productService.compareProducts(List.of(1L, 2L, 3L));
+
+        assertThat(result.get("rootCategoryId")).isEqualTo(1L);
+        @SuppressWarnings("unchecked")
+        List<Map<String, Object>> rows = (List<Map<String, Object>>) result.get("rows");
+        assertThat(rows).singleElement().satisfies(row -> {
+            assertThat(row.get("labelVi")).isEqualTo("RAM");
+            assertThat(row.get("differs")).isEqualTo(true);
+        });
+    }
+
+    @Test
+    void mixedRootsAreRejected() {
+        givenProducts(product(1L, 10L, "8GB"), product(2L, 20L, "16GB"));
+
+        assertThatThrownBy(() -> productService.compareProducts(List.of(1L, 2L)))
+                .isInstanceOf(BadRequestException.class);
+        // Thứ tự không quan trọng: sản phẩm đầu tiên không quyết định danh mục gốc
+        assertThatThrownBy(() -> productService.compareProducts(List.of(2L, 1L)))
+                .isInstanceOf(BadRequestException.class);
+    }
+
+    private void givenProducts(Product... products) {
+        when(productDetailCache.getAllById(anyCollection(), any())).thenReturn(List.of(products));
+    }
+
+    private static Category category(Long id) {
+        Category category = new Category();
+        category.setId(id);
+        return category;
+    }
+
+    private static Product product(Long id, Long categoryId, String ram) {
+        Product product = new Product();
+        product.setId(id);
+        product.setCategory(categoryId != null ? category(categoryId) : null);
+        product.setSpecifications(Map.of("ram", ram));
+        return product;
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.backend.service.impl;
+
+import com.example.backend.repository.ProductRepository;
+import com.example.backend.repository.ProductSearchRow;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tìm kiếm không dấu, mã model viết liền/tách rời và gợi ý "có phải bạn muốn tìm" trên chỉ mục trong bộ nhớ
+ */
+class ProductSearchIndexTest {
+
+    private ProductSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        ProductRepository productRepository = mock(ProductRepository.class);
+        when(productRepository.findAllSearchRows()).thenReturn(List.of(
+                new Row(1L, "Apple iPhone 15", "Điện thoại màn hình 6.1 inch", "Apple"),
+                new Row(2L, "Lenovo ThinkPad X1", "Laptop doanh nhân i7-13700H", "Lenovo"),
+                new Row(3L, "Bàn phím cơ Logitech", "Bàn phím không dây", "Logitech")));
+        index = new ProductSearchIndex(productRepository, true);
+        index.rebuild();
+    }
+
+    @Test
+    void matchesWithoutDiacriticsAndJoinedModelNumbers() {
+        assertThat(index.search("iphone15")).contains(List.of(1L));
+        assertThat(index.search("IPHONE 15")).contains(List.of(1L));
+        assertThat(index.search("ban phim")).contains(List.of(3L));
+        assertThat(index.search("i713700h")).contains(List.of(2L));
+        assertThat(index.search("iphone 16")).contains(List.of());
+    }
+
+    @Test
+    void suggestsClosestTermsForMisspelledWords() {
+        assertThat(index.suggest("lenvo thinkpad")).contains("lenovo thinkpad");
+        assertThat(index.suggest("logitec")).contains("logitech");
+        // Từ đã có trong chỉ mục hoặc quá ngắn thì giữ nguyên
+        assertThat(index.suggest("lenovo")).isEmpty();
+        assertThat(index.suggest("x9")).isEmpty();
+    }
+
+    private record Row(Long id, String name, String description, String brandName) implements ProductSearchRow {
+
+        @Override
+        public Long getId() {
+            return id;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public String getDescription() {
+            return description;
+        }
+
+        @Override
+        public String getBrandName() {
+            return brandName;
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.backend.service.impl;
+
+import com.example.backend.event.CategoryChangedEvent;
+import com.example.backend.event.ProductChangedEvent;
+import com.example.backend.repository.ProductRepository;
+import com.example.backend.repository.ProductSuggestRow;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Gợi ý đọc từ danh sách xếp hạng sẵn trong trie; đổi danh mục chỉ làm mới sản phẩm của danh mục đó
+ */
+class ProductSuggestIndexTest {
+
+    private final ProductRepository productRepository = mock(ProductRepository.class);
+    private ProductSuggestIndex index;
+
+    @BeforeEach
+    void setUp() {
+        List<ProductSuggestRow> rows = new ArrayList<>();
+        rows.add(new Row(1L, "Apple iPhone 15", 30, 1L, "Apple", 10L, "Điện thoại"));
+        rows.add(new Row(2L, "Apple iPhone 15 Pro Max Titan Tự Nhiên 256GB", 50, 1L, "Apple", 10L, "Điện thoại"));
+        rows.add(new Row(3L, "Apple iPhone 15 Pro Max Titan Xanh 256GB", 40, 1L, "Apple", 10L, "Điện thoại"));
+        rows.add(new Row(4L, "iPad Air", 80, 1L, "Apple", 11L, "Máy tính bảng"));
+        when(productRepository.findAllSuggestRows()).thenReturn(rows);
+        index = new ProductSuggestIndex(productRepository, true);
+        index.rebuild();
+    }
+
+    @Test
+    void ranksBySoldAndFiltersTruncatedPrefix() {
+        assertThat(productIds(index.suggest("ip", 10))).containsExactly(4L, 2L, 3L, 1L);
+        assertThat(productIds(index.suggest("iphone", 2))).containsExactly(2L, 3L);
+        // Dài hơn khóa đã cắt (24 ký tự): lọc lại trên tên đầy đủ
+        assertThat(productIds(index.suggest("iphone 15 pro max titan xanh", 10))).containsExactly(3L);
+        assertThat(productIds(index.suggest("iphone 15 pro max titan tu", 10))).containsExactly(2L);
+    }
+
+    @Test
+    void stockChangeReranksProduct() {
+        when(productRepository.findSuggestRowsByIdIn(Set.of(1L)))
+                .thenReturn(List.of(new Row(1L, "Apple iPhone 15", 90, 1L, "Apple", 10L, "Điện thoại")));
+
+        index.onProductChanged(ProductChangedEvent.stockChanged(Set.of(1L)));
+
+        assertThat(productIds(index.suggest("iphone", 10))).containsExactly(1L, 2L, 3L);
+    }
+
+    @Test
+    void categoryChangeRefreshesOnlyItsProducts() {
+        when(productRepository.findSuggestRowsByIdIn(Set.of(4L)))
+                .thenReturn(List.of(new Row(4L, "iPad Air", 80, 1L, "Apple", 11L, "Tablet")));
+
+        index.onCategoryChanged(new CategoryChangedEvent(11L));
+
+        verify(productRepository, times(1)).findAllSuggestRows();
+        verify(productRepository).findSuggestRowsByIdIn(Set.of(4L));
+        assertThat(names(index.suggest("tablet", 10), "categories")).containsExactly("Tablet");
+        assertThat(names(index.suggest("may tinh", 10), "categories")).isEmpty();
+        assertThat(names(index.suggest("dien", 10), "categories")).containsExactly("Điện thoại");
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Long> productIds(Map<String, Object> result) {
+        return ((List<Map<String, Object>>) result.get("products")).stream()
+                .map(item -> (Long) item.get("id"))
+                .toList();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<String> names(Map<String, Object> result, String type) {
+        return ((List<Map<String, Object>>) result.get(type)).stream()
+                .map(item -> (String) item.get("name"))
+                .toList();
+    }
+
+    private record Row(Long id, String name, Integer quantitySold, Long brandId, String brandName,
+                       Long categoryId, String categoryName) implements ProductSuggestRow {
+
+        @Override
+        public Long getId() {
+            return id;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public String getSlug() {
+            return "p-" + id;
+        }
+
+        @Override
+        public Boolean getIsActive() {
+            return true;
+        }
+
+        @Override
+        public Integer getQuantitySold() {
+            return quantitySold;
+        }
+
+        @Override
+        public Long getBrandId() {
+            return brandId;
+        }
+
+        @Override
+        public String getBrandName() {
+            return brandName;
+        }
+
+        @Override
+        public String getBrandSlug() {
+            return "b-" + brandId;
+        }
+
+        @Override
+        public Long getCategoryId() {
+            return categoryId;
+        }
+
+        @Override
+        public String getCategoryName() {
+            return categoryName;
+        }
+
+        @Override
+        public String getCategorySlug() {
+            return "c-" + categoryId;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.backend.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Kiểm tra tính duy nhất của mã đơn hàng khi nhiều luồng (và nhiều node) sinh mã cùng lúc
+ */
+class OrderNumberGeneratorTest {
+
+    private static final int NODES = 3;
+    private static final int THREADS_PER_NODE = 8;
+    private static final int ORDERS_PER_THREAD = 20_000;
+
+    @Test
+    void concurrentGeneratorsNeverRepeat() throws Exception {
+        // Đồng hồ gần như đứng yên và thỉnh thoảng lùi lại: buộc số thứ tự vượt 1000 mã/mili giây
+        AtomicLong ticks = new AtomicLong();
+        long start = System.currentTimeMillis();
+        LongSupplier clock = () -> {
+            long tick = ticks.incrementAndGet();
+            return start + tick / 5000 - (tick % 7919 == 0 ? 5 : 0);
+        };
+        List<OrderNumberGenerator> generators = new ArrayList<>();
+        for (int node = 0; node < NODES; node++) {
+            generators.add(new OrderNumberGenerator(node * 100 + 7, clock));
+        }
+
+        Set<String> seen = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(NODES * THREADS_PER_NODE);
+        CountDownLatch ready = new CountDownLatch(1);
+        List<Future<Boolean>> results = new ArrayList<>();
+        try {
+            for (OrderNumberGenerator generator : generators) {
+                for (int t = 0; t < THREADS_PER_NODE; t++) {
+                    results.add(executor.submit(() -> {
+                        ready.await();
+                        String previous = "";
+                        boolean increasing = true;
+                        for (int i = 0; i < ORDERS_PER_THREAD; i++) {
+                            String orderNumber = generator.next();
+                            // Cùng node, cùng độ dài nên so sánh chuỗi là so sánh thứ tự sinh
+                            increasing &= orderNumber.compareTo(previous) > 0;
+                            previous = orderNumber;
+                            seen.add(orderNumber);
+                        }
+                        return increasing;
+                    }));
+                }
+            }
+            ready.countDown();
+            for (Future<Boolean> result : results) {
+                assertThat(result.get()).isTrue();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(seen).hasSize(NODES * THREADS_PER_NODE * ORDERS_PER_THREAD);
+    }
+
+    @Test
+    void formatKeepsPrefixTimeNodeAndSequence() {
+        // 2025-04-12 02:30:15.123 UTC = 09:30:15.123 giờ Việt Nam
+        long millis = 1_744_425_015_123L;
+        OrderNumberGenerator generator = new OrderNumberGenerator(7, () -> millis);
+
+        assertThat(generator.next()).isEqualTo("OD250412093015123007000");
+        assertThat(generator.next()).isEqualTo("OD250412093015123007001");
+    }
+
+    @Test
+    void rejectsNodeIdOutOfRange() {
+        assertThatThrownBy(() -> new OrderNumberGenerator(OrderNumberGenerator.MAX_NODE_ID + 1))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new OrderNumberGenerator(-1))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
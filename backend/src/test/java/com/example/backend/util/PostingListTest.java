@@ -0,0 +1,56 @@
+package com.example.backend.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Mã hóa delta + varint phải giải mã lại đúng danh sách, kể cả khi thêm/xóa không theo thứ tự
+ */
+class PostingListTest {
+
+    @Test
+    void encodeDecodeRoundTripsAgainstTreeSet() {
+        Random random = new Random(7);
+        PostingList posting = new PostingList();
+        TreeSet<Integer> expected = new TreeSet<>();
+        for (int i = 0; i < 5_000; i++) {
+            // Khoảng cách từ 1 đến hơn 2^28 để dùng đủ 1-5 byte varint
+            int id = random.nextInt(4) == 0 ? random.nextInt(Integer.MAX_VALUE) : random.nextInt(300);
+            if (random.nextInt(3) == 0) {
+                assertThat(posting.remove(id)).isEqualTo(expected.remove(id));
+            } else {
+                assertThat(posting.add(id)).isEqualTo(expected.add(id));
+            }
+        }
+
+        assertThat(posting.size()).isEqualTo(expected.size());
+        assertThat(posting.toArray()).containsExactly(expected.stream().mapToInt(Integer::intValue).toArray());
+
+        BitSet bits = new BitSet();
+        bits.set(1);
+        posting.orInto(bits);
+        TreeSet<Integer> union = new TreeSet<>(expected);
+        union.add(1);
+        assertThat(bits.stream().toArray()).containsExactly(union.stream().mapToInt(Integer::intValue).toArray());
+    }
+
+    @Test
+    void appendOnlyKeepsOrderAndRejectsDuplicates() {
+        PostingList posting = new PostingList();
+        assertThat(posting.add(0)).isTrue();
+        assertThat(posting.add(127)).isTrue();
+        assertThat(posting.add(128)).isTrue();
+        assertThat(posting.add(128)).isFalse();
+        assertThat(posting.add(Integer.MAX_VALUE)).isTrue();
+
+        assertThat(posting.toArray()).containsExactly(0, 127, 128, Integer.MAX_VALUE);
+        assertThat(posting.remove(5)).isFalse();
+        assertThat(posting.remove(0)).isTrue();
+        assertThat(posting.toArray()).containsExactly(127, 128, Integer.MAX_VALUE);
+    }
+}
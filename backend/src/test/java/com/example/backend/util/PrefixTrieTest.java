@@ -0,0 +1,122 @@
+package com.example.backend.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Danh sách top giữ sẵn ở mỗi nút phải bằng kết quả duyệt toàn bộ giá trị, sau mọi chuỗi thêm/xóa/đổi điểm
+ */
+class PrefixTrieTest {
+
+    private static final int TOP_SIZE = 5;
+    private static final String ALPHABET = "abc";
+
+    @Test
+    void topMatchesFullScanAfterRandomUpdates() {
+        Random random = new Random(11);
+        PrefixTrie<Long> trie = new PrefixTrie<>(TOP_SIZE, Comparator.naturalOrder());
+        // Mô hình: giá trị -> (điểm, các khóa)
+        Map<Long, Long> scores = new HashMap<>();
+        Map<Long, Set<String>> keysOf = new HashMap<>();
+
+        for (int step = 0; step < 3_000; step++) {
+            long value = random.nextInt(60);
+            Set<String> oldKeys = keysOf.remove(value);
+            if (oldKeys != null) {
+                for (String key : oldKeys) {
+                    trie.remove(key, value);
+                }
+                scores.remove(value);
+            }
+            if (random.nextInt(4) > 0) {
+                // Nhiều giá trị trùng điểm để kiểm tra thứ tự phụ
+                long score = random.nextInt(10);
+                Set<String> keys = new HashSet<>();
+                for (int k = 1 + random.nextInt(3); k > 0; k--) {
+                    keys.add(randomKey(random));
+                }
+                for (String key : keys) {
+                    trie.add(key, value, score);
+                }
+                scores.put(value, score);
+                keysOf.put(value, keys);
+            }
+
+            if (step % 50 == 0) {
+                for (String prefix : prefixes()) {
+                    assertThat(trie.top(prefix, TOP_SIZE)).as("step %d prefix '%s'", step, prefix)
+                            .isEqualTo(oracle(scores, keysOf, prefix, TOP_SIZE));
+                }
+            }
+        }
+
+        for (String prefix : prefixes()) {
+            assertThat(trie.top(prefix, 2)).isEqualTo(oracle(scores, keysOf, prefix, 2));
+        }
+    }
+
+    @Test
+    void removingLastValuePrunesNodes() {
+        PrefixTrie<Long> trie = new PrefixTrie<>(TOP_SIZE, Comparator.naturalOrder());
+        trie.add("ab", 1L, 5);
+        trie.add("abc", 2L, 7);
+        int nodes = trie.getNodeCount();
+
+        trie.remove("abc", 2L);
+        assertThat(trie.getNodeCount()).isEqualTo(nodes - 1);
+        assertThat(trie.top("a", TOP_SIZE)).containsExactly(1L);
+
+        trie.remove("ab", 1L);
+        assertThat(trie.getNodeCount()).isEqualTo(1);
+        assertThat(trie.top("", TOP_SIZE)).isEmpty();
+    }
+
+    @Test
+    void valuesReturnsOnlyExactKeyRanked() {
+        PrefixTrie<Long> trie = new PrefixTrie<>(TOP_SIZE, Comparator.naturalOrder());
+        trie.add("ab", 1L, 1);
+        trie.add("ab", 2L, 9);
+        trie.add("ab", 3L, 9);
+        trie.add("abc", 4L, 100);
+
+        assertThat(trie.values("ab")).containsExactly(3L, 2L, 1L);
+        assertThat(trie.top("ab", TOP_SIZE)).containsExactly(4L, 3L, 2L, 1L);
+    }
+
+    private static List<Long> oracle(Map<Long, Long> scores, Map<Long, Set<String>> keysOf, String prefix, int limit) {
+        return scores.keySet().stream()
+                .filter(value -> keysOf.get(value).stream().anyMatch(key -> key.startsWith(prefix)))
+                .sorted(Comparator.<Long>comparingLong(scores::get).thenComparing(Comparator.naturalOrder()).reversed())
+                .limit(limit)
+                .toList();
+    }
+
+    private static List<String> prefixes() {
+        List<String> prefixes = new ArrayList<>(List.of(""));
+        for (char a : ALPHABET.toCharArray()) {
+            prefixes.add(String.valueOf(a));
+            for (char b : ALPHABET.toCharArray()) {
+                prefixes.add("" + a + b);
+            }
+        }
+        return prefixes;
+    }
+
+    private static String randomKey(Random random) {
+        StringBuilder key = new StringBuilder();
+        for (int i = random.nextInt(4); i >= 0; i--) {
+            key.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+        }
+        return key.toString();
+    }
+}
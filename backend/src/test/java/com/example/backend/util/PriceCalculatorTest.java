@@ -0,0 +1,77 @@
+package com.example.backend.util;
+
+import com.example.backend.model.Product;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Làm tròn HALF_UP ở nửa đơn vị nhỏ nhất, các mức giảm giá biên và chuyển đổi BigDecimal/long
+ */
+class PriceCalculatorTest {
+
+    @Test
+    void roundsHalfMinorUnitUp() {
+        // 101 * 50% = 50.5 -> 51
+        assertThat(PriceCalculator.effectivePrice(101, 50f)).isEqualTo(51);
+        // 3 * 50% = 1.5 -> 2
+        assertThat(PriceCalculator.effectivePrice(3, 50f)).isEqualTo(2);
+        // 105 * 90% = 94.5 -> 95
+        assertThat(PriceCalculator.effectivePrice(105, 10f)).isEqualTo(95);
+        // 1 * 50% = 0.5 -> 1; 1 * 51% = 0.49 -> 0
+        assertThat(PriceCalculator.effectivePrice(1, 50f)).isEqualTo(1);
+        assertThat(PriceCalculator.effectivePrice(1, 51f)).isZero();
+        // Dưới nửa đơn vị thì làm tròn xuống: 999 * 66.67% = 333.03 -> 333
+        assertThat(PriceCalculator.effectivePrice(999, 66.67f)).isEqualTo(333);
+    }
+
+    @Test
+    void boundaryDiscounts() {
+        assertThat(PriceCalculator.effectivePrice(1_990_000, 0f)).isEqualTo(1_990_000);
+        assertThat(PriceCalculator.effectivePrice(1_990_000, null)).isEqualTo(1_990_000);
+        assertThat(PriceCalculator.effectivePrice(1_990_000, 100f)).isZero();
+        // Giá trị ngoài [0, 100] bị chặn lại
+        assertThat(PriceCalculator.effectivePrice(1_990_000, -5f)).isEqualTo(1_990_000);
+        assertThat(PriceCalculator.effectivePrice(1_990_000, 150f)).isZero();
+        assertThat(PriceCalculator.effectivePrice((BigDecimal) null, 10f)).isZero();
+    }
+
+    @Test
+    void matchesBigDecimalHalfUpReference() {
+        BigDecimal price = new BigDecimal("24990000.99");
+        for (float discount = 0f; discount <= 100f; discount += 0.25f) {
+            BigDecimal expected = price.multiply(BigDecimal.valueOf(10_000 - Math.round(discount * 100)))
+                    .divide(BigDecimal.valueOf(10_000), 2, RoundingMode.HALF_UP);
+            assertThat(PriceCalculator.toAmount(PriceCalculator.effectivePrice(price, discount)))
+                    .as("giảm %s%%", discount).isEqualTo(expected);
+        }
+    }
+
+    @Test
+    void usesStoredEffectivePriceWhenPresent() {
+        Product product = new Product();
+        product.setPrice(new BigDecimal("100.00"));
+        product.setDiscount(10f);
+        // Chưa có cột effective_price (bản ghi cũ): tính lại từ giá và giảm giá
+        product.setEffectivePrice(null);
+        assertThat(PriceCalculator.effectivePrice(product)).isEqualTo(9_000);
+
+        product.setEffectivePrice(8_500L);
+        assertThat(PriceCalculator.effectivePrice(product)).isEqualTo(8_500);
+    }
+
+    @Test
+    void convertsBetweenAmountAndMinorUnits() {
+        assertThat(PriceCalculator.toMinorUnits(new BigDecimal("10.005"))).isEqualTo(1_001);
+        assertThat(PriceCalculator.toMinorUnits(new BigDecimal("10.004"))).isEqualTo(1_000);
+        assertThat(PriceCalculator.toMinorUnits(new BigDecimal("25000000"))).isEqualTo(2_500_000_000L);
+        assertThat(PriceCalculator.toAmount(1_001)).isEqualTo(new BigDecimal("10.01"));
+        // Cận dưới của bộ lọc làm tròn lên, cận trên làm tròn xuống
+        assertThat(PriceCalculator.toMinorUnits(10.001, RoundingMode.CEILING)).isEqualTo(1_001);
+        assertThat(PriceCalculator.toMinorUnits(10.009, RoundingMode.FLOOR)).isEqualTo(1_000);
+        assertThat(PriceCalculator.subtotal(333, 3)).isEqualTo(999);
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.backend.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Bỏ dấu tiếng Việt và ghép mã model: "iPhone 15", "iphone15" và "iPhone-15" phải khớp nhau
+ */
+class SearchTextAnalyzerTest {
+
+    @Test
+    void foldRemovesVietnameseDiacritics() {
+        assertThat(SearchTextAnalyzer.fold("Bàn phím Đen")).isEqualTo("ban phim den");
+        assertThat(SearchTextAnalyzer.fold("ĐIỆN THOẠI Sạc nhanh")).isEqualTo("dien thoai sac nhanh");
+        assertThat(SearchTextAnalyzer.fold("Tai nghe chống ồn")).isEqualTo("tai nghe chong on");
+        assertThat(SearchTextAnalyzer.fold(null)).isEmpty();
+    }
+
+    @Test
+    void indexTermsJoinPartsAndAdjacentModelNumbers() {
+        assertThat(SearchTextAnalyzer.indexTerms("Apple iPhone 15"))
+                .containsExactly("apple", "iphone", "iphone15", "15");
+        assertThat(SearchTextAnalyzer.indexTerms("Laptop i7-13700H"))
+                .containsExactly("laptop", "i7", "13700h", "i713700h");
+        // Chữ đứng sau số không được ghép
+        assertThat(SearchTextAnalyzer.indexTerms("15 Pro")).containsExactly("15", "pro");
+    }
+
+    @Test
+    void spacedAndJoinedModelNumbersMatchEachOther() {
+        assertMatches("iphone15", "Apple iPhone 15");
+        assertMatches("iPhone 15", "Apple iPhone15");
+        assertMatches("iphone-15", "Apple iPhone 15");
+        assertMatches("RTX 4060", "Card RTX-4060");
+        assertMatches("điện thoại", "Dien Thoai");
+        assertThat(matches("iphone 16", "Apple iPhone 15")).isFalse();
+    }
+
+    @Test
+    void queryClausesShareAdjacentJoin() {
+        assertThat(SearchTextAnalyzer.queryClauses("iPhone 15")).containsExactly(
+                Set.of("iphone", "iphone15"), Set.of("15", "iphone15"));
+        assertThat(SearchTextAnalyzer.parts("Bàn phím i7-13700H")).containsExactly("ban", "phim", "i7", "13700h");
+    }
+
+    private static void assertMatches(String query, String text) {
+        assertThat(matches(query, text)).as("'%s' khớp '%s'", query, text).isTrue();
+    }
+
+    /**
+     * Như ProductSearchIndex: mỗi mệnh đề phải có ít nhất một term nằm trong các term của văn bản
+     */
+    private static boolean matches(String query, String text) {
+        List<String> terms = SearchTextAnalyzer.indexTerms(text);
+        return SearchTextAnalyzer.queryClauses(query).stream().allMatch(clause -> clause.stream().anyMatch(terms::contains));
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.backend.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Lời gọi đồng thời cùng khóa dùng chung một lần thực thi; lỗi chuyển cho mọi người chờ nhưng không được giữ lại;
+ * kết quả hết hạn sau ttl
+ */
+class SingleFlightTest {
+
+    @Test
+    void concurrentCallsShareOneExecution() throws Exception {
+        SingleFlight<String, Integer> singleFlight = new SingleFlight<>(0);
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            Future<Integer> leader = executor.submit(() -> call(singleFlight, "k", () -> {
+                started.countDown();
+                release.await();
+                return loads.incrementAndGet();
+            }));
+            assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+            List<Future<Integer>> followers = new ArrayList<>();
+            for (int i = 0; i < 7; i++) {
+                followers.add(executor.submit(() -> call(singleFlight, "k", loads::incrementAndGet)));
+            }
+            // Chờ đến khi cả 7 lời gọi đã nhập vào lời gọi đang chạy rồi mới cho nó hoàn tất
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (singleFlight.getShared() < 7 && System.nanoTime() < deadline) {
+                Thread.sleep(1);
+            }
+            release.countDown();
+
+            assertThat(leader.get(5, TimeUnit.SECONDS)).isEqualTo(1);
+            for (Future<Integer> follower : followers) {
+                assertThat(follower.get(5, TimeUnit.SECONDS)).isEqualTo(1);
+            }
+            assertThat(loads.get()).isEqualTo(1);
+            assertThat(singleFlight.getExecutions()).isEqualTo(1);
+            assertThat(singleFlight.getShared()).isEqualTo(7);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void errorReachesWaitersAndIsNotCached() throws Throwable {
+        SingleFlight<String, Integer> singleFlight = new SingleFlight<>(60_000);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Integer> leader = executor.submit(() -> call(singleFlight, "k", () -> {
+                started.countDown();
+                release.await();
+                throw new IllegalStateException("db down");
+            }));
+            assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+            Future<Integer> follower = executor.submit(() -> call(singleFlight, "k", () -> 2));
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (singleFlight.getShared() < 1 && System.nanoTime() < deadline) {
+                Thread.sleep(1);
+            }
+            release.countDown();
+
+            assertThatThrownBy(() -> leader.get(5, TimeUnit.SECONDS)).hasRootCauseMessage("db down");
+            assertThatThrownBy(() -> follower.get(5, TimeUnit.SECONDS))
+                    .hasCauseInstanceOf(IllegalStateException.class);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // Dù ttl dài, lời gọi sau lỗi phải tính lại
+        assertThat(singleFlight.execute("k", () -> 3)).isEqualTo(3);
+        assertThat(singleFlight.getExecutions()).isEqualTo(2);
+    }
+
+    @Test
+    void resultIsKeptForTtlThenRecomputed() throws Throwable {
+        SingleFlight<String, Integer> singleFlight = new SingleFlight<>(50);
+        AtomicInteger loads = new AtomicInteger();
+
+        assertThat(singleFlight.execute("k", loads::incrementAndGet)).isEqualTo(1);
+        assertThat(singleFlight.execute("k", loads::incrementAndGet)).isEqualTo(1);
+        assertThat(singleFlight.execute("other", loads::incrementAndGet)).isEqualTo(2);
+
+        Thread.sleep(100);
+        assertThat(singleFlight.execute("k", loads::incrementAndGet)).isEqualTo(3);
+
+        singleFlight.invalidate();
+        assertThat(singleFlight.execute("k", loads::incrementAndGet)).isEqualTo(4);
+    }
+
+    private static Integer call(SingleFlight<String, Integer> singleFlight, String key,
+                                SingleFlight.Loader<Integer> loader) throws Exception {
+        try {
+            return singleFlight.execute(key, loader);
+        } catch (Exception e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.backend.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Thêm/xóa/đổi khóa ngẫu nhiên rồi so với danh sách được sắp xếp lại từ đầu
+ */
+class SortedOrdinalsTest {
+
+    @Test
+    void addRemoveMoveKeepOrderAgainstModel() {
+        Random random = new Random(5);
+        SortedOrdinals sorted = new SortedOrdinals();
+        // ordinal -> khóa; khóa phụ chính là ordinal (như id) nên không trùng
+        Map<Integer, Long> model = new HashMap<>();
+
+        for (int step = 0; step < 5_000; step++) {
+            int ordinal = random.nextInt(200);
+            long key = random.nextInt(20);
+            Long current = model.get(ordinal);
+            int action = random.nextInt(3);
+            if (current == null) {
+                sorted.add(ordinal, key, ordinal);
+                model.put(ordinal, key);
+            } else if (action == 0) {
+                assertThat(sorted.remove(current, ordinal)).isTrue();
+                model.remove(ordinal);
+            } else {
+                assertThat(sorted.move(current, key, ordinal)).isTrue();
+                model.put(ordinal, key);
+            }
+
+            if (step % 100 == 0) {
+                assertMatches(sorted, model);
+            }
+        }
+        assertMatches(sorted, model);
+    }
+
+    @Test
+    void moveToEitherEndAndToSamePosition() {
+        SortedOrdinals sorted = new SortedOrdinals();
+        for (int ordinal = 0; ordinal < 5; ordinal++) {
+            sorted.add(ordinal, ordinal * 10L, ordinal);
+        }
+
+        assertThat(sorted.move(0, 100, 0)).isTrue();
+        assertThat(ordinals(sorted)).containsExactly(1, 2, 3, 4, 0);
+        assertThat(sorted.move(100, -5, 0)).isTrue();
+        assertThat(ordinals(sorted)).containsExactly(0, 1, 2, 3, 4);
+        assertThat(sorted.move(20, 21, 2)).isTrue();
+        assertThat(ordinals(sorted)).containsExactly(0, 1, 2, 3, 4);
+        assertThat(sorted.keyAt(2)).isEqualTo(21);
+    }
+
+    @Test
+    void missingElementIsNotRemovedOrMoved() {
+        SortedOrdinals sorted = new SortedOrdinals();
+        sorted.add(1, 10, 1);
+
+        assertThat(sorted.remove(10, 2)).isFalse();
+        assertThat(sorted.move(11, 20, 1)).isFalse();
+        assertThat(sorted.size()).isEqualTo(1);
+    }
+
+    @Test
+    void boundsSplitEqualKeys() {
+        SortedOrdinals sorted = new SortedOrdinals();
+        sorted.add(3, 5, 3);
+        sorted.add(1, 5, 1);
+        sorted.add(2, 7, 2);
+
+        assertThat(sorted.lowerBound(5, Long.MIN_VALUE)).isZero();
+        assertThat(sorted.upperBound(5, 1)).isEqualTo(1);
+        assertThat(sorted.upperBound(5, Long.MAX_VALUE)).isEqualTo(2);
+        assertThat(sorted.lowerBound(8, Long.MIN_VALUE)).isEqualTo(3);
+    }
+
+    private static void assertMatches(SortedOrdinals sorted, Map<Integer, Long> model) {
+        List<Integer> expected = model.keySet().stream()
+                .sorted(Comparator.<Integer>comparingLong(model::get).thenComparing(Comparator.naturalOrder()))
+                .toList();
+        assertThat(ordinals(sorted)).isEqualTo(expected);
+        for (int position = 0; position < sorted.size(); position++) {
+            assertThat(sorted.keyAt(position)).isEqualTo(model.get(sorted.ordinalAt(position)));
+            assertThat(sorted.tieBreakAt(position)).isEqualTo(sorted.ordinalAt(position));
+        }
+    }
+
+    private static List<Integer> ordinals(SortedOrdinals sorted) {
+        List<Integer> result = new ArrayList<>();
+        for (int position = 0; position < sorted.size(); position++) {
+            result.add(sorted.ordinalAt(position));
+        }
+        return result;
+    }
+}
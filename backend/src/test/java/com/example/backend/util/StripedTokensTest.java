@@ -0,0 +1,81 @@
+package com.example.backend.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Nhiều luồng cùng lấy/trả suất: tổng số suất đang giữ không bao giờ vượt số đã nạp và không suất nào bị mất
+ */
+class StripedTokensTest {
+
+    private static final long STOCK = 5_000;
+    private static final int STRIPES = 8;
+    private static final int THREADS = 16;
+    private static final int ATTEMPTS_PER_THREAD = 20_000;
+
+    @Test
+    void concurrentClaimsNeverExceedLoadedStock() throws Exception {
+        StripedTokens tokens = new StripedTokens(STOCK, STRIPES);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch ready = new CountDownLatch(1);
+        List<Future<Long>> results = new ArrayList<>();
+        try {
+            for (int t = 0; t < THREADS; t++) {
+                long seed = t;
+                results.add(executor.submit(() -> {
+                    ready.await();
+                    Random random = new Random(seed);
+                    long kept = 0;
+                    for (int i = 0; i < ATTEMPTS_PER_THREAD; i++) {
+                        long quantity = 1 + random.nextInt(5);
+                        if (!tokens.tryTake(quantity)) {
+                            continue;
+                        }
+                        // Khoảng một phần tư số đơn rollback và trả suất lại
+                        if (random.nextInt(4) == 0) {
+                            tokens.put(quantity);
+                        } else {
+                            kept += quantity;
+                        }
+                    }
+                    return kept;
+                }));
+            }
+            ready.countDown();
+            long claimed = 0;
+            for (Future<Long> result : results) {
+                claimed += result.get();
+            }
+
+            assertThat(claimed).isLessThanOrEqualTo(STOCK);
+            assertThat(claimed + tokens.available()).isEqualTo(STOCK);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void tryTakeIsAllOrNothingAcrossStripes() {
+        StripedTokens tokens = new StripedTokens(10, 4);
+
+        assertThat(tokens.tryTake(11)).isFalse();
+        assertThat(tokens.available()).isEqualTo(10);
+        // Mỗi ô chỉ có 2-3 suất nên phải gom từ nhiều ô
+        assertThat(tokens.tryTake(7)).isTrue();
+        assertThat(tokens.available()).isEqualTo(3);
+        assertThat(tokens.tryTake(4)).isFalse();
+        assertThat(tokens.available()).isEqualTo(3);
+
+        tokens.put(7);
+        assertThat(tokens.available()).isEqualTo(10);
+    }
+}
@@ -0,0 +1,118 @@
+package com.example.backend.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * So sánh cách lấy trang đầu (skip + limit phần tử) của danh sách sản phẩm sắp xếp theo giá:
+ * - comparatorSortBigDecimal: sắp xếp toàn bộ bằng Comparator tính giá sau giảm (BigDecimal) trong mỗi lần so sánh
+ * - comparatorSortPrecomputed: sắp xếp toàn bộ bằng Comparator trên khóa long đã tính sẵn
+ * - topK: TopK.select trên khóa long đã tính sẵn, chỉ sắp xếp skip + limit phần tử
+ *
+ * Không chạy cùng mvn test. Chạy thủ công:
+ * mvn test-compile dependency:build-classpath -Dmdep.outputFile=cp.txt -Dmdep.includeScope=test
+ * java -cp target/test-classes:target/classes:$(cat cp.txt) org.openjdk.jmh.Main TopKBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TopKBenchmark {
+
+    private static final int SKIP = 12;
+    private static final int LIMIT = 12;
+
+    @Param({"1000", "10000", "100000"})
+    private int size;
+
+    private List<Row> rows;
+    private long[] ids;
+    private long[] prices;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        rows = new ArrayList<>(size);
+        ids = new long[size];
+        prices = new long[size];
+        for (int i = 0; i < size; i++) {
+            BigDecimal price = BigDecimal.valueOf(1_000_000L + random.nextInt(50_000_000));
+            float discount = random.nextInt(4) == 0 ? random.nextInt(30) : 0f;
+            rows.add(new Row(i + 1L, price, discount));
+            ids[i] = i + 1L;
+            prices[i] = PriceCalculator.effectivePrice(price, discount);
+        }
+    }
+
+    @Benchmark
+    public List<Long> comparatorSortBigDecimal() {
+        List<Row> sorted = new ArrayList<>(rows);
+        sorted.sort(Comparator.comparing(Row::discountedPrice).thenComparing(Row::id));
+        List<Long> page = new ArrayList<>(LIMIT);
+        for (int i = SKIP; i < SKIP + LIMIT; i++) {
+            page.add(sorted.get(i).id());
+        }
+        return page;
+    }
+
+    @Benchmark
+    public List<Long> comparatorSortPrecomputed() {
+        Integer[] order = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> {
+            int result = Long.compare(prices[a], prices[b]);
+            return result != 0 ? result : Long.compare(ids[a], ids[b]);
+        });
+        List<Long> page = new ArrayList<>(LIMIT);
+        for (int i = SKIP; i < SKIP + LIMIT; i++) {
+            page.add(ids[order[i]]);
+        }
+        return page;
+    }
+
+    @Benchmark
+    public List<Long> topK() {
+        int[] order = TopK.select(prices, ids, size, SKIP + LIMIT, true);
+        List<Long> page = new ArrayList<>(LIMIT);
+        for (int i = SKIP; i < SKIP + LIMIT; i++) {
+            page.add(ids[order[i]]);
+        }
+        return page;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(TopKBenchmark.class.getSimpleName()).build()).run();
+    }
+
+    private record Row(Long id, BigDecimal price, Float discount) {
+        BigDecimal discountedPrice() {
+            BigDecimal rate = BigDecimal.valueOf(100 - discount).divide(BigDecimal.valueOf(100), 4, RoundingMode.HALF_UP);
+            return price.multiply(rate);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.backend.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * So sánh TopK.select với sắp xếp toàn bộ: cùng thứ tự, kể cả khi khóa chính trùng nhau (phân định bằng khóa phụ)
+ */
+class TopKTest {
+
+    @Test
+    void selectMatchesFullSortInBothDirections() {
+        Random random = new Random(3);
+        for (int round = 0; round < 200; round++) {
+            int n = 1 + random.nextInt(300);
+            long[] keys = new long[n];
+            long[] tieBreaks = new long[n];
+            for (int i = 0; i < n; i++) {
+                // Ít giá trị khác nhau để có nhiều khóa trùng; khóa phụ (như id) không trùng
+                keys[i] = random.nextInt(8) - 4;
+                tieBreaks[i] = i * 7919L % 100_003;
+            }
+            for (boolean ascending : new boolean[]{true, false}) {
+                int[] expected = fullSort(keys, tieBreaks, n, ascending);
+                // k nhỏ dùng heap, k >= n/2 sắp xếp toàn bộ
+                for (int k : new int[]{1, 2, 10, n / 2 - 1, n / 2, n - 1, n, n + 5}) {
+                    if (k <= 0) {
+                        continue;
+                    }
+                    assertThat(TopK.select(keys, tieBreaks, n, k, ascending))
+                            .as("n=%d k=%d ascending=%s", n, k, ascending)
+                            .containsExactly(Arrays.copyOf(expected, Math.min(k, n)));
+                }
+            }
+        }
+    }
+
+    @Test
+    void usesOnlyFirstNElements() {
+        long[] keys = {5, 1, 4, -100};
+        long[] tieBreaks = {0, 1, 2, 3};
+
+        assertThat(TopK.select(keys, tieBreaks, 3, 2, true)).containsExactly(1, 2);
+        assertThat(TopK.select(keys, tieBreaks, 3, 0, true)).isEmpty();
+        assertThat(TopK.select(keys, tieBreaks, 0, 5, false)).isEmpty();
+    }
+
+    @Test
+    void equalKeysAreOrderedByTieBreakInSameDirection() {
+        long[] keys = {7, 7, 7, 7, 9};
+        long[] tieBreaks = {40, 10, 30, 20, 0};
+
+        assertThat(TopK.select(keys, tieBreaks, 5, 3, true)).containsExactly(1, 3, 2);
+        assertThat(TopK.select(keys, tieBreaks, 5, 3, false)).containsExactly(4, 0, 2);
+    }
+
+    private static int[] fullSort(long[] keys, long[] tieBreaks, int n, boolean ascending) {
+        Comparator<Integer> comparator = Comparator.<Integer>comparingLong(i -> keys[i])
+                .thenComparingLong(i -> tieBreaks[i]);
+        return IntStream.range(0, n).boxed()
+                .sorted(ascending ? comparator : comparator.reversed())
+                .mapToInt(Integer::intValue)
+                .toArray();
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.backend.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Khoảng cách OSA có ngưỡng và tìm từ gần nhất cho "có phải bạn muốn tìm"
+ */
+class TrigramIndexTest {
+
+    @Test
+    void distanceCountsTranspositionAsOneEdit() {
+        assertThat(TrigramIndex.distance("lenovo", "lenovo", 2)).isZero();
+        assertThat(TrigramIndex.distance("lenvoo", "lenovo", 2)).isEqualTo(1);
+        assertThat(TrigramIndex.distance("lenvo", "lenovo", 2)).isEqualTo(1);
+        assertThat(TrigramIndex.distance("samsnug", "samsung", 2)).isEqualTo(1);
+        assertThat(TrigramIndex.distance("kitten", "sitting", 3)).isEqualTo(3);
+        // OSA không sửa lại một chuỗi con đã hoán vị: "ca" -> "abc" là 3, không phải 2 như Damerau-Levenshtein đầy đủ
+        assertThat(TrigramIndex.distance("ca", "abc", 3)).isEqualTo(3);
+        assertThat(TrigramIndex.distance("", "abc", 3)).isEqualTo(3);
+    }
+
+    @Test
+    void distanceStopsAtThreshold() {
+        assertThat(TrigramIndex.distance("kitten", "sitting", 1)).isEqualTo(2);
+        assertThat(TrigramIndex.distance("asus", "lenovo", 2)).isEqualTo(3);
+        assertThat(TrigramIndex.distance("a", "abcdef", 2)).isEqualTo(3);
+    }
+
+    @Test
+    void closestPicksNearestThenMostFrequent() {
+        TrigramIndex index = new TrigramIndex();
+        index.add("lenovo");
+        index.add("logitech");
+        index.add("laptop");
+        index.add("laptop");
+        index.add("lapdop");
+
+        assertThat(index.closest("lenvo", 1)).isEqualTo("lenovo");
+        assertThat(index.closest("logitec", 1)).isEqualTo("logitech");
+        // "laptoop" cách "laptop" 1, cách "lapdop" 2
+        assertThat(index.closest("laptoop", 2)).isEqualTo("laptop");
+        // Cùng khoảng cách 1: "laptop" xuất hiện nhiều hơn
+        assertThat(index.closest("lapcop", 1)).isEqualTo("laptop");
+        assertThat(index.closest("xiaomi", 2)).isNull();
+    }
+
+    @Test
+    void removeKeepsTermUntilLastReference() {
+        TrigramIndex index = new TrigramIndex();
+        index.add("asus");
+        index.add("asus");
+
+        index.remove("asus");
+        assertThat(index.contains("asus")).isTrue();
+        assertThat(index.closest("asuss", 1)).isEqualTo("asus");
+
+        index.remove("asus");
+        assertThat(index.contains("asus")).isFalse();
+        assertThat(index.closest("asuss", 1)).isNull();
+    }
+}
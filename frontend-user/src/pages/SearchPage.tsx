@@ -31,7 +31,8 @@ const SearchPage: React.FC = () => {
   const [customPriceMin, setCustomPriceMin] = useState<string>('');
   const [customPriceMax, setCustomPriceMax] = useState<string>('');
   const [selectedBrands, setSelectedBrands] = useState<number[]>([]);
-  const [sortOption, setSortOption] = useState('newest');
+  // Trang tìm kiếm chủ động yêu cầu xếp theo độ liên quan; API /search vẫn mặc định newest
+  const [sortOption, setSortOption] = useState('relevance');
   const [isFilterOpen, setIsFilterOpen] = useState(false);
   
   // Theo dõi các phần của bộ lọc được thu gọn
@@ -397,6 +398,7 @@ const SearchPage: React.FC = () => {
               onChange={(e) => setSortOption(e.target.value)}
               className="appearance-none px-4 py-2 pr-8 rounded border bg-transparent text-sm hover:bg-muted focus:outline-none"
             >
+              <option value="relevance">Liên quan nhất</option>
               <option value="newest">Nổi bật</option>
               <option value="price_asc">Giá: Thấp đến cao</option>
               <option value="price_desc">Giá: Cao đến thấp</option>